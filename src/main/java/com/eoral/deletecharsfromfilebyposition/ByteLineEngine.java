@@ -0,0 +1,556 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+
+/**
+ * Executes deletion rules on a file whose charset is ASCII compatible. Lines are located in the raw bytes of a
+ * memory-mapped window, so only the lines that have rules are decoded and encoded again (or not even those, with
+ * {@link ColumnUnit#BYTE}); consecutive lines without rules are written as a single slice of the window. Line breaks
+ * are kept as they are in the input. Once the last line that has rules is passed, the rest of the input is copied
+ * without being split into lines.
+ */
+public class ByteLineEngine {
+
+    public static final int DEFAULT_MAX_LINE_LENGTH = 8 * 1024 * 1024;
+
+    private static final int MOVE_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_RUN_LENGTH = 8 * 1024 * 1024;
+
+    private final DeletionRuleExecution deletionRuleExecution;
+    private final Charset charset;
+    private final BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine;
+    private final int maxLineLength;
+    private volatile boolean changed;
+
+    /**
+     * Where {@link #processLines} has stopped: the offset right after the last line it has read, and the number of that
+     * line.
+     */
+    private static class LinesProcessed {
+
+        private final long tailOffset;
+        private final int lastLineNumber;
+
+        private LinesProcessed(long tailOffset, int lastLineNumber) {
+            this.tailOffset = tailOffset;
+            this.lastLineNumber = lastLineNumber;
+        }
+    }
+
+    /**
+     * Called at the checkpoints of {@link #processResumable}, when everything before the given input offset has been
+     * processed and its result has been written to the output channel, though not forced to the storage device.
+     */
+    public interface CheckpointListener {
+        void checkpoint(long inputOffset, int lineNumber, long outputLength) throws IOException;
+    }
+
+    public ByteLineEngine(
+            DeletionRuleExecution deletionRuleExecution,
+            Charset charset,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        this(deletionRuleExecution, charset, behaviorAfterDeletionRulesExecutedForEachLine, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Lines longer than max line length bytes are never held in memory as a whole: lines without rules are copied in
+     * parts, and lines with rules are processed by a {@link StreamingLineEditor}.
+     */
+    public ByteLineEngine(
+            DeletionRuleExecution deletionRuleExecution,
+            Charset charset,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            int maxLineLength) {
+        this.deletionRuleExecution = deletionRuleExecution;
+        this.charset = charset;
+        this.behaviorAfterDeletionRulesExecutedForEachLine = behaviorAfterDeletionRulesExecutedForEachLine;
+        this.maxLineLength = maxLineLength;
+    }
+
+    public int getMaxLineLength() {
+        return maxLineLength;
+    }
+
+    /**
+     * Returns true if any line processed by this engine so far has been deleted or has lost any char. Chunks processed
+     * on other threads count as well.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Writes the result to the output channel starting from offset 0 and returns the number of bytes written. The rest
+     * of the input after the last line that has rules is copied with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+     */
+    public long process(FileChannel input, FileChannel output, SortedDeletionRules sortedDeletionRules)
+            throws IOException {
+        return process(input, output, sortedDeletionRules, null, null);
+    }
+
+    /**
+     * Same as {@link #process(FileChannel, FileChannel, SortedDeletionRules)}, but if a line offset index of the input
+     * is given, the lines before the sampled line closest to the first line that has rules are copied without being
+     * read. If a builder is given, the offsets of the output lines are recorded into it. Neither is used if some rules
+     * are counted from the end.
+     */
+    public long process(
+            FileChannel input, FileChannel output, SortedDeletionRules sortedDeletionRules,
+            LineOffsetIndex lineOffsetIndex, LineOffsetIndex.Builder lineOffsetIndexBuilder) throws IOException {
+        if (!sortedDeletionRules.getRulesCountedFromEnd().isEmpty()) {
+            PositionalChannelWriter writer = new PositionalChannelWriter(output, 0);
+            long tailOffset = processLinesWithTrailingLines(input, output, sortedDeletionRules, writer, false);
+            return copyTail(input, tailOffset, input.size(), output, writer);
+        }
+        int firstLineNumber = 1;
+        long startOffset = 0;
+        if (lineOffsetIndex != null && !sortedDeletionRules.isEmpty()) {
+            firstLineNumber = lineOffsetIndex.getSampledLineAtOrBefore(sortedDeletionRules.getFirstLine());
+            startOffset = lineOffsetIndex.getOffsetOfSampledLineAtOrBefore(sortedDeletionRules.getFirstLine());
+            Utils.transfer(input, 0, startOffset, output, 0);
+        }
+        return process(input, startOffset, input.size(), firstLineNumber, sortedDeletionRules.cursor(firstLineNumber),
+                sortedDeletionRules.getLastLine(), output, startOffset, lineOffsetIndexBuilder);
+    }
+
+    /**
+     * Processes the part of the input between the given offsets, whose first line has the given line number, and
+     * writes the result to the output channel starting from offset 0. Returns the number of bytes written.
+     */
+    public long process(
+            FileChannel input, long startOffset, long endOffset, int firstLineNumber,
+            DeletionRuleCursor deletionRuleCursor, int lastLine, FileChannel output) throws IOException {
+        return process(input, startOffset, endOffset, firstLineNumber, deletionRuleCursor, lastLine, output, 0, null);
+    }
+
+    /**
+     * Same as {@link #process(FileChannel, long, long, int, DeletionRuleCursor, int, FileChannel)}, but writes the
+     * result starting from the given output offset, and returns the offset right after it.
+     */
+    public long process(
+            FileChannel input, long startOffset, long endOffset, int firstLineNumber,
+            DeletionRuleCursor deletionRuleCursor, int lastLine, FileChannel output, long outputStartPosition)
+            throws IOException {
+        return process(input, startOffset, endOffset, firstLineNumber, deletionRuleCursor, lastLine, output,
+                outputStartPosition, null);
+    }
+
+    private long process(
+            FileChannel input, long startOffset, long endOffset, int firstLineNumber,
+            DeletionRuleCursor deletionRuleCursor, int lastLine, FileChannel output, long outputStartPosition,
+            LineOffsetIndex.Builder lineOffsetIndexBuilder) throws IOException {
+        PositionalChannelWriter writer = new PositionalChannelWriter(output, outputStartPosition);
+        ByteLineReader reader = new ByteLineReader(
+                input, startOffset, endOffset, ByteLineReader.DEFAULT_MAPPED_WINDOW_SIZE, true);
+        reader.setMaxLineLength(maxLineLength);
+        long tailOffset = processLines(reader, startOffset, firstLineNumber, deletionRuleCursor, lastLine, writer,
+                false, lineOffsetIndexBuilder, 0, null).tailOffset;
+        return copyTail(input, tailOffset, endOffset, output, writer);
+    }
+
+    /**
+     * Copies the input between the given offsets to where the writer is, and returns the length of the output.
+     */
+    private long copyTail(
+            FileChannel input, long tailOffset, long endOffset, FileChannel output, PositionalChannelWriter writer)
+            throws IOException {
+        long tailLength = endOffset - tailOffset;
+        Utils.transfer(input, tailOffset, tailLength, output, writer.getPosition());
+        return writer.getPosition() + tailLength;
+    }
+
+    /**
+     * Same as {@link #process(FileChannel, FileChannel, SortedDeletionRules)}, but starts from the given input offset,
+     * where line count before + 1 starts, and writes from the given output offset, so that an earlier call that has
+     * been interrupted can be continued. Each time at least checkpoint interval bytes of input have been processed
+     * since the last checkpoint, the listener is called at the end of the current line. The rest of the input after
+     * the last line that has rules is copied in slices of checkpoint interval bytes, with a checkpoint after each; its
+     * checkpoints have the last line that has rules as line number, so that continuing from them goes on copying.
+     */
+    public long processResumable(
+            FileChannel input, FileChannel output, SortedDeletionRules sortedDeletionRules, long startOffset,
+            int lineCountBefore, long outputStartPosition, long checkpointInterval, CheckpointListener listener)
+            throws IOException {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be greater than or equal to 1.");
+        }
+        long endOffset = input.size();
+        int lastLine = sortedDeletionRules.getLastLine();
+        PositionalChannelWriter writer = new PositionalChannelWriter(output, outputStartPosition);
+        long tailOffset = startOffset;
+        if (lineCountBefore < lastLine) {
+            ByteLineReader reader = new ByteLineReader(
+                    input, startOffset, endOffset, ByteLineReader.DEFAULT_MAPPED_WINDOW_SIZE, true);
+            reader.setMaxLineLength(maxLineLength);
+            tailOffset = processLines(reader, startOffset, lineCountBefore + 1,
+                    sortedDeletionRules.cursor(lineCountBefore + 1), lastLine, writer, false, null,
+                    checkpointInterval, listener).tailOffset;
+        }
+        long outputLength = writer.getPosition();
+        while (tailOffset < endOffset) {
+            long sliceLength = Long.min(checkpointInterval, endOffset - tailOffset);
+            Utils.transfer(input, tailOffset, sliceLength, output, outputLength);
+            tailOffset += sliceLength;
+            outputLength += sliceLength;
+            listener.checkpoint(tailOffset, Integer.max(lastLine, lineCountBefore), outputLength);
+        }
+        return outputLength;
+    }
+
+    /**
+     * Reads the input stream to its end and writes the result to the output stream. Neither stream is closed, and the
+     * output stream is flushed at the end. The rest of the input after the last line that has rules is copied with
+     * {@link InputStream#transferTo(OutputStream)}. If some rules are counted from the end, the lines they can be on
+     * are held back by a {@link TrailingLinesInputStream} until the end of the input, and every line is read.
+     */
+    public void process(InputStream input, OutputStream output, SortedDeletionRules sortedDeletionRules)
+            throws IOException {
+        DeletionRuleCursor deletionRuleCursor = sortedDeletionRules.cursor(1);
+        int lastLine = sortedDeletionRules.getLastLine();
+        List<DeletionRule> rulesCountedFromEnd = sortedDeletionRules.getRulesCountedFromEnd();
+        if (!rulesCountedFromEnd.isEmpty()) {
+            TrailingLinesInputStream trailingLinesInput =
+                    new TrailingLinesInputStream(input, TrailingLines.getLineCountToFind(rulesCountedFromEnd));
+            input = trailingLinesInput;
+            deletionRuleCursor = new CombinedDeletionRuleCursor(
+                    deletionRuleCursor, trailingLinesInput.cursor(rulesCountedFromEnd));
+            lastLine = SortedDeletionRules.NO_MORE_LINES;
+        }
+        PositionalChannelWriter writer = new PositionalChannelWriter(Channels.newChannel(output));
+        ByteLineReader reader = new ByteLineReader(Channels.newChannel(input), ByteLineReader.DEFAULT_BUFFER_SIZE);
+        reader.setMaxLineLength(maxLineLength);
+        processLines(reader, 0, 1, deletionRuleCursor, lastLine, writer, false, null, 0, null);
+        writer.write(reader.getBufferedBytesAfterLine()); // read ahead while looking for the last line break
+        writer.flush();
+        input.transferTo(output);
+        output.flush();
+    }
+
+    /**
+     * Rewrites the file through the given channel, which must be open for reading and writing, and returns the new
+     * size of the file. Nothing is written until the first line that actually changes. After that, every byte is
+     * written at or before the offset it was read from, and the file is truncated at the end.
+     */
+    public long processInPlace(FileChannel channel, SortedDeletionRules sortedDeletionRules) throws IOException {
+        return processInPlace(channel, sortedDeletionRules, null, null);
+    }
+
+    /**
+     * Same as {@link #processInPlace(FileChannel, SortedDeletionRules)}, but if a line offset index of the file is
+     * given, reading starts from the sampled line closest to the first line that has rules. If a builder is given, the
+     * offsets of the lines of the rewritten file are recorded into it. Neither is used if some rules are counted from
+     * the end.
+     */
+    public long processInPlace(
+            FileChannel channel, SortedDeletionRules sortedDeletionRules,
+            LineOffsetIndex lineOffsetIndex, LineOffsetIndex.Builder lineOffsetIndexBuilder) throws IOException {
+        long tailOffset;
+        PositionalChannelWriter writer;
+        if (sortedDeletionRules.getRulesCountedFromEnd().isEmpty()) {
+            int firstLineNumber = 1;
+            long startOffset = 0;
+            if (lineOffsetIndex != null && !sortedDeletionRules.isEmpty()) {
+                firstLineNumber = lineOffsetIndex.getSampledLineAtOrBefore(sortedDeletionRules.getFirstLine());
+                startOffset = lineOffsetIndex.getOffsetOfSampledLineAtOrBefore(sortedDeletionRules.getFirstLine());
+            }
+            writer = new PositionalChannelWriter(channel, startOffset);
+            tailOffset = processLines(createReader(channel, startOffset, channel.size(), true), startOffset,
+                    firstLineNumber, sortedDeletionRules.cursor(firstLineNumber), sortedDeletionRules.getLastLine(),
+                    writer, true, lineOffsetIndexBuilder, 0, null).tailOffset;
+        } else {
+            writer = new PositionalChannelWriter(channel, 0);
+            tailOffset = processLinesWithTrailingLines(channel, channel, sortedDeletionRules, writer, true);
+        }
+        long size = channel.size();
+        long newSize = writer.getPosition() + (size - tailOffset);
+        if (writer.getPosition() != tailOffset) {
+            moveBytesBackward(channel, tailOffset, size - tailOffset, writer.getPosition());
+            channel.truncate(newSize);
+        }
+        return newSize;
+    }
+
+    /**
+     * Processes a file whose rules are partly counted from the end. The last lines that those rules can be on are found
+     * with {@link TrailingLines}. The lines before them are processed with the other rules first. If every one of those
+     * lines has been read, the last lines are numbered from the start of the file and get both kinds of rules;
+     * otherwise, the other rules have all been used, the lines in between are copied (or, in place, moved) without being
+     * read, and the last lines only get the rules counted from the end. Returns the offset right after the last line
+     * that has rules, like {@link #processLines}.
+     */
+    private long processLinesWithTrailingLines(
+            FileChannel input, FileChannel output, SortedDeletionRules sortedDeletionRules,
+            PositionalChannelWriter writer, boolean inPlace) throws IOException {
+        List<DeletionRule> rulesCountedFromEnd = sortedDeletionRules.getRulesCountedFromEnd();
+        long endOffset = input.size();
+        TrailingLines trailingLines =
+                TrailingLines.find(input, endOffset, TrailingLines.getLineCountToFind(rulesCountedFromEnd));
+        long trailingOffset = trailingLines.getOffset();
+        DeletionRuleCursor deletionRuleCursor = sortedDeletionRules.cursor(1);
+        LinesProcessed linesProcessed = processLines(createReader(input, 0, trailingOffset, inPlace), 0, 1,
+                deletionRuleCursor, sortedDeletionRules.getLastLine(), writer, inPlace, null, 0, null);
+        int firstLineNumber;
+        DeletionRuleCursor trailingLineCursor;
+        int lastLine;
+        if (linesProcessed.tailOffset == trailingOffset) {
+            firstLineNumber = linesProcessed.lastLineNumber + 1;
+            DeletionRuleIndex resolvedRules = TrailingLines.resolve(
+                    rulesCountedFromEnd, linesProcessed.lastLineNumber + trailingLines.getCount());
+            trailingLineCursor =
+                    new CombinedDeletionRuleCursor(deletionRuleCursor, resolvedRules.cursor(firstLineNumber));
+            lastLine = Integer.max(sortedDeletionRules.getLastLine(), resolvedRules.getLastLine());
+        } else {
+            long gapLength = trailingOffset - linesProcessed.tailOffset;
+            if (!inPlace) {
+                Utils.transfer(input, linesProcessed.tailOffset, gapLength, output, writer.getPosition());
+            } else if (writer.getPosition() != linesProcessed.tailOffset) {
+                moveBytesBackward(input, linesProcessed.tailOffset, gapLength, writer.getPosition());
+            }
+            writer.skip(gapLength);
+            firstLineNumber = 1;
+            DeletionRuleIndex resolvedRules = TrailingLines.resolve(rulesCountedFromEnd, trailingLines.getCount());
+            trailingLineCursor = resolvedRules.cursor(1);
+            lastLine = resolvedRules.getLastLine();
+        }
+        return processLines(createReader(input, trailingOffset, endOffset, inPlace), trailingOffset, firstLineNumber,
+                trailingLineCursor, lastLine, writer, inPlace, null, 0, null).tailOffset;
+    }
+
+    /**
+     * A memory-mapped window must not be the source of writes into the same file, so in-place mode reads into heap.
+     */
+    private ByteLineReader createReader(FileChannel channel, long startOffset, long endOffset, boolean inPlace)
+            throws IOException {
+        ByteLineReader reader = inPlace
+                ? new ByteLineReader(channel, startOffset, endOffset, ByteLineReader.DEFAULT_BUFFER_SIZE, false)
+                : new ByteLineReader(channel, startOffset, endOffset, ByteLineReader.DEFAULT_MAPPED_WINDOW_SIZE, true);
+        reader.setMaxLineLength(maxLineLength);
+        return reader;
+    }
+
+    /**
+     * Returns where it has stopped: right after the last line that has rules (or right after the last line the reader
+     * returns, if there are fewer lines than that), and the number of that line. Lines before the first line are
+     * assumed to be unchanged, so output line numbers start from the same number as input line numbers. If a
+     * checkpoint listener is given, it is called as {@link #processResumable} says.
+     */
+    private LinesProcessed processLines(
+            ByteLineReader reader, long startOffset, int firstLineNumber, DeletionRuleCursor deletionRuleCursor,
+            int lastLine, PositionalChannelWriter writer, boolean inPlace,
+            LineOffsetIndex.Builder lineOffsetIndexBuilder, long checkpointInterval,
+            CheckpointListener checkpointListener) throws IOException {
+        long tailOffset = startOffset;
+        long checkpointOffset = startOffset;
+        int lineNumber = firstLineNumber - 1;
+        int outputLineNumber = firstLineNumber - 1;
+        boolean endOfInputReached = false;
+        while (lineNumber < lastLine) {
+            if (!reader.next()) {
+                endOfInputReached = true;
+                break;
+            }
+            lineNumber++;
+            if (lineNumber < deletionRuleCursor.getNextLine()) {
+                if (!reader.isPinned()) {
+                    reader.pin(); // start a run of lines that are passed through as they are
+                }
+                outputLineNumber++;
+                if (lineOffsetIndexBuilder != null) {
+                    lineOffsetIndexBuilder.record(outputLineNumber,
+                            writer.getPosition() + reader.getLineStartOffset() - reader.getPinnedOffset());
+                }
+                if (!reader.isLineComplete()) {
+                    writeRun(reader, writer, inPlace, true);
+                    copyRestOfLongLine(reader, writer, inPlace);
+                } else if (reader.getLineEndOffset() - reader.getPinnedOffset() >= MAX_RUN_LENGTH) {
+                    writeRun(reader, writer, inPlace, true);
+                }
+            } else {
+                writeRun(reader, writer, inPlace, false);
+                long outputOffset = writer.getPosition();
+                List<DeletionRule> deletionRulesOfLine = deletionRuleCursor.getByLine(lineNumber);
+                boolean kept = reader.isLineComplete()
+                        ? processLine(reader, lineNumber, deletionRulesOfLine, writer, inPlace)
+                        : processLongLine(reader, deletionRulesOfLine, writer, inPlace);
+                if (kept) {
+                    outputLineNumber++;
+                    if (lineOffsetIndexBuilder != null) {
+                        lineOffsetIndexBuilder.record(outputLineNumber, outputOffset);
+                    }
+                }
+            }
+            tailOffset = reader.getLineEndOffset();
+            if (checkpointListener != null && tailOffset - checkpointOffset >= checkpointInterval) {
+                writeRun(reader, writer, inPlace, true);
+                writer.flush();
+                checkpointListener.checkpoint(tailOffset, lineNumber, writer.getPosition());
+                checkpointOffset = tailOffset;
+            }
+        }
+        writeRun(reader, writer, inPlace, true);
+        writer.flush();
+        if (lineOffsetIndexBuilder != null && (endOfInputReached || reader.getLineEndOffset() == reader.getEndOffset())) {
+            lineOffsetIndexBuilder.setLineCount(outputLineNumber);
+        }
+        return new LinesProcessed(tailOffset, lineNumber);
+    }
+
+    private void writeRun(
+            ByteLineReader reader, PositionalChannelWriter writer, boolean inPlace, boolean includeCurrentLine)
+            throws IOException {
+        if (!reader.isPinned()) {
+            return;
+        }
+        ByteBuffer run = reader.getPinnedRun(includeCurrentLine);
+        if (inPlace && writer.getPosition() == reader.getPinnedOffset()) {
+            writer.skip(run.remaining()); // nothing has changed so far, so the run is already where it should be
+        } else {
+            writer.write(run);
+        }
+        reader.unpin();
+    }
+
+    /**
+     * Returns false if the line is deleted.
+     */
+    private boolean processLine(
+            ByteLineReader reader, int lineNumber, List<DeletionRule> deletionRulesOfLine,
+            PositionalChannelWriter writer, boolean inPlace) throws IOException {
+        if (deletionRuleExecution.getColumnUnit() == ColumnUnit.BYTE) {
+            return processLineBytes(reader, deletionRulesOfLine, writer, inPlace);
+        }
+        String line;
+        if (inPlace) {
+            try {
+                line = charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT).decode(reader.getLine()).toString();
+            } catch (CharacterCodingException e) {
+                // Replacement chars could make the line longer than it was and overwrite bytes that have not been
+                // read yet, so the line is edited with its malformed bytes kept as they are.
+                return processLongLine(reader, deletionRulesOfLine, writer, true);
+            }
+        } else {
+            line = charset.decode(reader.getLine()).toString();
+        }
+        String restOfTheLine = deletionRuleExecution.deleteCharsFromLine(
+                line, deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
+        if (restOfTheLine == null) {
+            changed = true;
+            return false; // line is deleted together with its line break
+        }
+        if (restOfTheLine.equals(line)) {
+            // keep the original bytes
+            if (inPlace && writer.getPosition() == reader.getLineStartOffset()) {
+                writer.skip(reader.getLineLength() + reader.getTerminatorLength());
+            } else {
+                writer.write(reader.getLineWithTerminator());
+            }
+            return true;
+        }
+        changed = true;
+        byte[] restOfTheLineBytes = restOfTheLine.getBytes(charset);
+        if (inPlace
+                && writer.getPosition() + restOfTheLineBytes.length > reader.getLineStartOffset() + reader.getLineLength()) {
+            // Not expected, since a line that decodes without errors is never encoded into more bytes than it had.
+            throw new IllegalStateException("Line " + lineNumber + " cannot be rewritten in place because it would "
+                    + "become longer than it was. Check whether the charset of the file is correct.");
+        }
+        writer.write(restOfTheLineBytes);
+        writer.write(reader.getTerminator());
+        return true;
+    }
+
+    /**
+     * Same as {@link #processLine}, for byte columns. The line is not decoded, and since no byte is ever added, it can
+     * always be rewritten in place.
+     */
+    private boolean processLineBytes(
+            ByteLineReader reader, List<DeletionRule> deletionRulesOfLine, PositionalChannelWriter writer,
+            boolean inPlace) throws IOException {
+        ByteBuffer line = reader.getLine();
+        ByteBuffer restOfTheLine = deletionRuleExecution.deleteBytesFromLine(
+                line, deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
+        if (restOfTheLine == null) {
+            changed = true;
+            return false; // line is deleted together with its line break
+        }
+        if (restOfTheLine == line) {
+            if (inPlace && writer.getPosition() == reader.getLineStartOffset()) {
+                writer.skip(reader.getLineLength() + reader.getTerminatorLength());
+            } else {
+                writer.write(reader.getLineWithTerminator());
+            }
+            return true;
+        }
+        changed = true;
+        writer.write(restOfTheLine);
+        writer.write(reader.getTerminator());
+        return true;
+    }
+
+    private void copyRestOfLongLine(ByteLineReader reader, PositionalChannelWriter writer, boolean inPlace)
+            throws IOException {
+        while (!reader.isLineComplete()) {
+            reader.nextPart();
+            if (inPlace && writer.getPosition() == reader.getLineStartOffset()) {
+                writer.skip(reader.getLineLength() + reader.getTerminatorLength());
+            } else {
+                writer.write(reader.getLineWithTerminator());
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #processLine}, for a line that is longer than the max line length, whose first part is the
+     * current line of the reader (or for a whole line with malformed bytes, in place). In place, malformed bytes that
+     * are not deleted are written as they are, so that the result cannot become longer than the part of the line that
+     * has been read.
+     */
+    private boolean processLongLine(
+            ByteLineReader reader, List<DeletionRule> deletionRulesOfLine, PositionalChannelWriter writer,
+            boolean inPlace) throws IOException {
+        StreamingLineEditor streamingLineEditor = new StreamingLineEditor(charset,
+                deletionRuleExecution.getColumnUnit(), behaviorAfterDeletionRulesExecutedForEachLine, inPlace);
+        streamingLineEditor.begin(deletionRulesOfLine, writer);
+        streamingLineEditor.accept(reader.getLine());
+        while (!reader.isLineComplete()) {
+            reader.nextPart();
+            streamingLineEditor.accept(reader.getLine());
+        }
+        boolean kept = streamingLineEditor.end(reader.getTerminator());
+        if (streamingLineEditor.isChanged()) {
+            changed = true;
+        }
+        return kept;
+    }
+
+    private void moveBytesBackward(FileChannel channel, long sourceOffset, long count, long targetOffset)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Long.min(MOVE_BUFFER_SIZE, Long.max(1, count)));
+        long moved = 0;
+        while (moved < count) {
+            buffer.clear();
+            buffer.limit((int) Long.min(buffer.capacity(), count - moved));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, sourceOffset + moved + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file while moving bytes.");
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, targetOffset + moved + buffer.position());
+            }
+            moved += buffer.limit();
+        }
+    }
+}
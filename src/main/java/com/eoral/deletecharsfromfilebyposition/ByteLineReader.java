@@ -0,0 +1,305 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the lines of a file as raw bytes, without decoding them. Like {@link java.io.BufferedReader#readLine()}, a line
+ * ends with "\n", "\r" or "\r\n", and the last line may have no line break. Unlike it, the reader knows the exact byte
+ * offset of every line and the length of its line break. This only works for charsets that pass
+ * {@link Utils#isAsciiCompatible(java.nio.charset.Charset)}.
+ * <p>
+ * Bytes are read into a window that is either a heap buffer filled with positional reads, or a memory-mapped region
+ * of the file. The window always holds the current line. A line can be pinned, so that the window keeps holding every
+ * byte from the start of the pinned line to the current line; this lets callers pass runs of lines through as a
+ * single slice.
+ * <p>
+ * A reader can also read sequentially from a channel that is not a file, like a stream; then only the heap buffer can
+ * be used.
+ * <p>
+ * If a maximum line length is set, a longer line is returned in parts, so that the window never has to hold it as a
+ * whole: {@link #next()} returns its first part, and every call to {@link #nextPart()} returns the next one, until
+ * {@link #isLineComplete()} is true. Only the last part has the line break.
+ */
+public class ByteLineReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int NOT_PINNED = -1;
+
+    private final ReadableByteChannel channel;
+    private final boolean positional;
+    private final long endOffset;
+    private final int windowSize;
+    private final boolean memoryMapped;
+    private ByteBuffer window; // absolute gets only; its limit is the number of valid bytes
+    private long windowOffset; // file offset of window index 0
+    private int lineStart; // index of the current line in window
+    private int lineLength;
+    private int terminatorLength;
+    private int nextLineStart;
+    private int scanPosition;
+    private int pinnedIndex = NOT_PINNED;
+    private int maxLineLength = Integer.MAX_VALUE;
+    private boolean lineComplete = true;
+
+    public ByteLineReader(FileChannel channel) throws IOException {
+        this(channel, 0, channel.size(), DEFAULT_BUFFER_SIZE, false);
+    }
+
+    /**
+     * Reads lines from the channel until it reaches its end. Offsets are counted from the current position of the
+     * channel.
+     */
+    public ByteLineReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.positional = false;
+        this.endOffset = Long.MAX_VALUE;
+        this.windowSize = bufferSize;
+        this.memoryMapped = false;
+        this.window = ByteBuffer.allocate(bufferSize).limit(0);
+        this.windowOffset = 0;
+    }
+
+    /**
+     * Reads lines from start offset (inclusive) to end offset (exclusive). Start offset must be the beginning of a line.
+     */
+    public ByteLineReader(FileChannel channel, long startOffset, long endOffset, int windowSize, boolean memoryMapped) {
+        this.channel = channel;
+        this.positional = true;
+        this.endOffset = endOffset;
+        this.windowSize = windowSize;
+        this.memoryMapped = memoryMapped;
+        this.window = memoryMapped ? ByteBuffer.allocate(0) : ByteBuffer.allocate(windowSize).limit(0);
+        this.windowOffset = startOffset;
+    }
+
+    /**
+     * Lines longer than the given number of bytes are returned in parts of at most that many bytes.
+     */
+    public void setMaxLineLength(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Moves to the next line. Returns false if there are no more lines. If the current line is not complete, the rest
+     * of it must be read with {@link #nextPart()} first.
+     */
+    public boolean next() throws IOException {
+        if (!lineComplete) {
+            throw new IllegalStateException("Rest of the current line must be read with nextPart first.");
+        }
+        return scan(false);
+    }
+
+    /**
+     * Moves to the next part of the current line, which must not be complete. The part can be empty if the previous
+     * part has ended right before the line break or the end of input.
+     */
+    public void nextPart() throws IOException {
+        if (lineComplete) {
+            throw new IllegalStateException("Current line is complete.");
+        }
+        scan(true);
+    }
+
+    /**
+     * Returns false if the current line is longer than the maximum line length, and the current part is not its last
+     * part.
+     */
+    public boolean isLineComplete() {
+        return lineComplete;
+    }
+
+    private boolean scan(boolean continuation) throws IOException {
+        lineStart = nextLineStart;
+        scanPosition = lineStart;
+        while (true) {
+            if (scanPosition - lineStart >= maxLineLength) {
+                return setPartialLine(scanPosition - lineStart);
+            }
+            if (scanPosition >= window.limit() && !fill()) {
+                if (scanPosition == lineStart && !continuation) {
+                    lineLength = 0;
+                    terminatorLength = 0;
+                    return false;
+                }
+                return setLine(scanPosition - lineStart, 0);
+            }
+            byte b = window.get(scanPosition);
+            if (b == '\n') {
+                return setLine(scanPosition - lineStart, 1);
+            } else if (b == '\r') {
+                if (scanPosition + 1 >= window.limit() && !fill()) {
+                    return setLine(scanPosition - lineStart, 1);
+                }
+                return setLine(scanPosition - lineStart, window.get(scanPosition + 1) == '\n' ? 2 : 1);
+            }
+            scanPosition++;
+        }
+    }
+
+    private boolean setLine(int lineLength, int terminatorLength) {
+        this.lineLength = lineLength;
+        this.terminatorLength = terminatorLength;
+        this.nextLineStart = lineStart + lineLength + terminatorLength;
+        this.lineComplete = true;
+        return true;
+    }
+
+    private boolean setPartialLine(int lineLength) {
+        this.lineLength = lineLength;
+        this.terminatorLength = 0;
+        this.nextLineStart = lineStart + lineLength;
+        this.lineComplete = false;
+        return true;
+    }
+
+    /**
+     * Makes at least one more byte available after the window's limit, keeping the bytes from the pinned line (or the
+     * current line) on. Returns false if there are no more bytes.
+     */
+    private boolean fill() throws IOException {
+        long fileOffset = windowOffset + window.limit();
+        if (fileOffset >= endOffset) {
+            return false;
+        }
+        int keepFrom = pinnedIndex == NOT_PINNED ? lineStart : pinnedIndex;
+        int keptLength = window.limit() - keepFrom;
+        if (memoryMapped) {
+            long newWindowOffset = windowOffset + keepFrom;
+            long newWindowSize = Long.min(endOffset - newWindowOffset, Long.max(windowSize, 2L * keptLength));
+            if (newWindowSize > Integer.MAX_VALUE) {
+                newWindowSize = Integer.MAX_VALUE;
+                if (newWindowSize <= keptLength) {
+                    throw new IllegalStateException("Line at offset " + getLineStartOffset() + " is too long.");
+                }
+            }
+            window = ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, newWindowOffset, newWindowSize);
+            shiftIndexes(keepFrom);
+            return true;
+        }
+        if (keepFrom > 0) {
+            byte[] array = window.array();
+            System.arraycopy(array, keepFrom, array, 0, keptLength);
+            window.limit(keptLength);
+            shiftIndexes(keepFrom);
+        }
+        if (window.limit() == window.capacity()) {
+            if (window.capacity() == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Line at offset " + getLineStartOffset() + " is too long.");
+            }
+            ByteBuffer grownWindow = ByteBuffer.allocate((int) Long.min(Integer.MAX_VALUE, 2L * window.capacity()));
+            grownWindow.put(window.array(), 0, window.limit());
+            grownWindow.limit(window.limit());
+            window = grownWindow;
+        }
+        int length = (int) Long.min(window.capacity() - window.limit(), endOffset - fileOffset);
+        ByteBuffer target = ByteBuffer.wrap(window.array(), window.limit(), length);
+        int read = positional ? ((FileChannel) channel).read(target, fileOffset) : channel.read(target);
+        if (read <= 0) {
+            return false;
+        }
+        window.limit(window.limit() + read);
+        return true;
+    }
+
+    private void shiftIndexes(int shift) {
+        windowOffset += shift;
+        lineStart -= shift;
+        scanPosition -= shift;
+        nextLineStart -= shift;
+        if (pinnedIndex != NOT_PINNED) {
+            pinnedIndex -= shift;
+        }
+    }
+
+    /**
+     * Returns the bytes of the current line (or of its current part), excluding its line break. The returned buffer is
+     * only valid until the next call to {@link #next()} or {@link #nextPart()}.
+     */
+    public ByteBuffer getLine() {
+        return slice(lineStart, lineStart + lineLength);
+    }
+
+    public ByteBuffer getTerminator() {
+        return slice(lineStart + lineLength, nextLineStart);
+    }
+
+    public ByteBuffer getLineWithTerminator() {
+        return slice(lineStart, nextLineStart);
+    }
+
+    private ByteBuffer slice(int fromIndex, int toIndex) {
+        ByteBuffer slice = window.duplicate();
+        slice.limit(toIndex).position(fromIndex);
+        return slice;
+    }
+
+    /**
+     * Returns the bytes that have been read from the channel after the current line, but not returned as lines yet.
+     */
+    public ByteBuffer getBufferedBytesAfterLine() {
+        return slice(nextLineStart, window.limit());
+    }
+
+    /**
+     * Returns the length of the current line in bytes, excluding its line break.
+     */
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    /**
+     * Returns the length of the line break of the current line in bytes. It is 0 for a last line without line break.
+     */
+    public int getTerminatorLength() {
+        return terminatorLength;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getLineStartOffset() {
+        return windowOffset + lineStart;
+    }
+
+    /**
+     * Returns the file offset right after the line break of the current line.
+     */
+    public long getLineEndOffset() {
+        return windowOffset + nextLineStart;
+    }
+
+    /**
+     * Pins the current line. Until {@link #unpin()} is called, the window keeps every byte from the start of the pinned
+     * line on.
+     */
+    public void pin() {
+        pinnedIndex = lineStart;
+    }
+
+    public void unpin() {
+        pinnedIndex = NOT_PINNED;
+    }
+
+    public boolean isPinned() {
+        return pinnedIndex != NOT_PINNED;
+    }
+
+    public long getPinnedOffset() {
+        return windowOffset + pinnedIndex;
+    }
+
+    /**
+     * Returns the bytes from the start of the pinned line to the start of the current line, or to the end of the
+     * current line if includeCurrentLine is true.
+     */
+    public ByteBuffer getPinnedRun(boolean includeCurrentLine) {
+        return slice(pinnedIndex, includeCurrentLine ? nextLineStart : lineStart);
+    }
+}
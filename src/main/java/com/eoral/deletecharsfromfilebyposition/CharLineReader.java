@@ -0,0 +1,111 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a reader like {@link java.io.BufferedReader#readLine()} does, but keeps the line break of every
+ * line, so that lines can be written back exactly as they were read. Used for charsets in which line breaks cannot be
+ * found in the raw bytes.
+ */
+public class CharLineReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position; // index of the first char that has not been returned as a line
+    private int limit;
+    private String line;
+    private String terminator;
+
+    public CharLineReader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CharLineReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Moves to the next line. Returns false if there are no more lines.
+     */
+    public boolean next() throws IOException {
+        int lineLength = 0;
+        while (true) {
+            if (position + lineLength >= limit && !fill()) {
+                if (lineLength == 0) {
+                    return false;
+                }
+                return setLine(lineLength, 0);
+            }
+            char c = buffer[position + lineLength];
+            if (c == '\n') {
+                return setLine(lineLength, 1);
+            } else if (c == '\r') {
+                if (position + lineLength + 1 >= limit && !fill()) {
+                    return setLine(lineLength, 1);
+                }
+                return setLine(lineLength, buffer[position + lineLength + 1] == '\n' ? 2 : 1);
+            }
+            lineLength++;
+        }
+    }
+
+    private boolean setLine(int lineLength, int terminatorLength) {
+        line = new String(buffer, position, lineLength);
+        terminator = new String(buffer, position + lineLength, terminatorLength);
+        position += lineLength + terminatorLength;
+        return true;
+    }
+
+    /**
+     * Reads more chars after the limit, keeping the chars from the position on. Returns false if there are no more
+     * chars.
+     */
+    private boolean fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            if (buffer.length == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Line is too long.");
+            }
+            buffer = Arrays.copyOf(buffer, (int) Long.min(Integer.MAX_VALUE, 2L * buffer.length));
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read <= 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Returns the current line, excluding its line break.
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the line break of the current line. It is empty for a last line without line break.
+     */
+    public String getTerminator() {
+        return terminator;
+    }
+
+    /**
+     * Writes every char after the current line to the writer, without splitting them into lines.
+     */
+    public void transferRestTo(Writer writer) throws IOException {
+        writer.write(buffer, position, limit - position);
+        position = limit;
+        reader.transferTo(writer);
+    }
+}
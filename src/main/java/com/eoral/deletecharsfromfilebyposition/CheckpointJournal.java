@@ -0,0 +1,212 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Journal of a resumable rewrite of a file. While the file is processed, its result is written to
+ * ".name.resume.tmp" and the journal is kept in ".name.journal.tmp", both next to the file. The journal starts with
+ * the size and the last modified time of the file and a description of the job, followed by one fixed-size entry per
+ * checkpoint: how far the input has been processed, how many lines that is, how long the output is at that point, and
+ * whether anything has changed so far. The output is forced to the storage device before an entry is written, and
+ * every entry has a checksum, so a torn last entry is ignored.
+ * <p>
+ * When the journal is opened again and it matches the file and the job, processing continues from its last
+ * checkpoint; otherwise it starts over.
+ */
+public class CheckpointJournal implements Closeable {
+
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 256L * 1024 * 1024;
+    public static final String OUTPUT_FILE_SUFFIX = ".resume" + Constants.TEMP_FILE_SUFFIX;
+    public static final String JOURNAL_FILE_SUFFIX = ".journal" + Constants.TEMP_FILE_SUFFIX;
+
+    private static final int MAGIC = 0x44434a31; // "DCJ1"
+    private static final int ENTRY_LENGTH = 8 + 4 + 8 + 1 + 4;
+
+    private final FileChannel channel;
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_LENGTH);
+    private Checkpoint lastCheckpoint;
+
+    /**
+     * A point up to which the input has been processed and the output has been forced to the storage device.
+     */
+    public static class Checkpoint {
+
+        private final long inputOffset;
+        private final int lineNumber;
+        private final long outputLength;
+        private final boolean changed;
+
+        public Checkpoint(long inputOffset, int lineNumber, long outputLength, boolean changed) {
+            this.inputOffset = inputOffset;
+            this.lineNumber = lineNumber;
+            this.outputLength = outputLength;
+            this.changed = changed;
+        }
+
+        public long getInputOffset() {
+            return inputOffset;
+        }
+
+        /**
+         * Returns the number of input lines before the input offset.
+         */
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public long getOutputLength() {
+            return outputLength;
+        }
+
+        public boolean isChanged() {
+            return changed;
+        }
+    }
+
+    private CheckpointJournal(FileChannel channel, Checkpoint lastCheckpoint) {
+        this.channel = channel;
+        this.lastCheckpoint = lastCheckpoint;
+    }
+
+    public static Path getOutputPath(Path filePath) {
+        Path absoluteFilePath = filePath.toAbsolutePath();
+        return absoluteFilePath.resolveSibling("." + absoluteFilePath.getFileName() + OUTPUT_FILE_SUFFIX);
+    }
+
+    public static Path getJournalPath(Path filePath) {
+        Path absoluteFilePath = filePath.toAbsolutePath();
+        return absoluteFilePath.resolveSibling("." + absoluteFilePath.getFileName() + JOURNAL_FILE_SUFFIX);
+    }
+
+    /**
+     * Opens the journal of the file for the given job, whose description holds whatever must be the same for a
+     * partial output to be continued. The last checkpoint is kept if the journal has been started for the current size
+     * and last modified time of the file and for the same job, and the output is at least as long as the checkpoint
+     * says. Otherwise, the journal is started anew and there is no last checkpoint.
+     */
+    public static CheckpointJournal open(Path filePath, String jobDescription) {
+        Path journalPath = getJournalPath(filePath);
+        Path outputPath = getOutputPath(filePath);
+        FileChannel channel = null;
+        try {
+            byte[] header = createHeader(filePath, jobDescription);
+            channel = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Checkpoint lastCheckpoint = null;
+            long validLength = 0;
+            if (channel.size() >= header.length && Arrays.equals(header, readFully(channel, 0, header.length))) {
+                validLength = header.length;
+                CRC32 crc32 = new CRC32();
+                long entryCount = (channel.size() - header.length) / ENTRY_LENGTH;
+                for (long i = 0; i < entryCount; i++) {
+                    ByteBuffer entry = ByteBuffer.wrap(readFully(channel, validLength, ENTRY_LENGTH));
+                    crc32.reset();
+                    crc32.update(entry.array(), 0, ENTRY_LENGTH - 4);
+                    Checkpoint checkpoint = new Checkpoint(entry.getLong(), entry.getInt(), entry.getLong(),
+                            entry.get() != 0);
+                    if (entry.getInt() != (int) crc32.getValue()) {
+                        break; // torn entry
+                    }
+                    lastCheckpoint = checkpoint;
+                    validLength += ENTRY_LENGTH;
+                }
+            }
+            if (lastCheckpoint != null && (!Files.isRegularFile(outputPath)
+                    || Files.size(outputPath) < lastCheckpoint.getOutputLength())) {
+                lastCheckpoint = null;
+            }
+            if (lastCheckpoint == null) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(header), 0);
+                channel.force(true);
+            } else {
+                channel.truncate(validLength); // so that new entries follow the last valid one
+            }
+            return new CheckpointJournal(channel, lastCheckpoint);
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the journal of the file, if there is one.
+     */
+    public static void delete(Path filePath) {
+        Utils.deleteIfExists(getJournalPath(filePath));
+    }
+
+    /**
+     * Returns the last checkpoint that has been written, or null if there is none.
+     */
+    public Checkpoint getLastCheckpoint() {
+        return lastCheckpoint;
+    }
+
+    /**
+     * Forces the output to the storage device, and then writes the checkpoint and forces it as well.
+     */
+    public void append(Checkpoint checkpoint, FileChannel output) throws IOException {
+        output.force(false);
+        entry.clear();
+        entry.putLong(checkpoint.getInputOffset()).putInt(checkpoint.getLineNumber())
+                .putLong(checkpoint.getOutputLength()).put((byte) (checkpoint.isChanged() ? 1 : 0));
+        CRC32 crc32 = new CRC32();
+        crc32.update(entry.array(), 0, entry.position());
+        entry.putInt((int) crc32.getValue());
+        entry.flip();
+        long position = channel.size();
+        while (entry.hasRemaining()) {
+            position += channel.write(entry, position);
+        }
+        channel.force(false);
+        lastCheckpoint = checkpoint;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] createHeader(Path filePath, String jobDescription) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeLong(Files.size(filePath));
+            out.writeLong(Files.getLastModifiedTime(filePath).toMillis());
+            out.writeUTF(jobDescription);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,210 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes bytes from a thread that writes them to a thread that reads them. Unlike {@link java.io.PipedInputStream},
+ * bytes are handed over in big chunks through a bounded queue, so the threads rarely wait for each other. Either side
+ * can fail the pipe, and the other side then gets an {@link IOException} instead of waiting forever.
+ */
+public class ChunkPipe {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private static final byte[] END = new byte[0];
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<byte[]> chunks;
+    private final int chunkSize;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private volatile Throwable failure;
+    private volatile boolean readerClosed;
+
+    public ChunkPipe() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Capacity is the number of chunks that can be waiting to be read.
+     */
+    public ChunkPipe(int chunkSize, int capacity) {
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayBlockingQueue<>(capacity);
+        this.inputStream = new PipeInputStream();
+        this.outputStream = new PipeOutputStream();
+    }
+
+    /**
+     * Returns the stream the reading thread reads from. It ends after the output stream is closed.
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Returns the stream the writing thread writes to. It must be closed to end the input stream.
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Makes both sides of the pipe throw an exception with the given cause.
+     */
+    public void fail(Throwable cause) {
+        failure = cause;
+    }
+
+    private IOException failedException() {
+        return new IOException("Other side of the pipe has failed.", failure);
+    }
+
+    private class PipeOutputStream extends OutputStream {
+
+        private byte[] chunk = new byte[chunkSize];
+        private int length;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (length == chunk.length) {
+                flushChunk();
+            }
+            chunk[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) throws IOException {
+            while (count > 0) {
+                if (length == chunk.length) {
+                    flushChunk();
+                }
+                int copied = Integer.min(count, chunk.length - length);
+                System.arraycopy(bytes, offset, chunk, length, copied);
+                length += copied;
+                offset += copied;
+                count -= copied;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (length > 0) {
+                put(length == chunk.length ? chunk : Arrays.copyOf(chunk, length));
+                chunk = new byte[chunkSize];
+                length = 0;
+            }
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            try {
+                while (!chunks.offer(bytes, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) {
+                        throw failedException();
+                    }
+                    if (readerClosed) {
+                        throw new IOException("Pipe is closed.");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        /**
+         * Chunks are only handed over when they are full or the stream is closed, so flushing does nothing.
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                flushChunk();
+                put(END);
+            }
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            int copied = Integer.min(count, chunk.length - position);
+            System.arraycopy(chunk, position, bytes, offset, copied);
+            position += copied;
+            return copied;
+        }
+
+        @Override
+        public int available() {
+            return chunk.length - position;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (position == chunk.length) {
+                if (ended) {
+                    return false;
+                }
+                byte[] next = take();
+                if (next == END) {
+                    ended = true;
+                    return false;
+                }
+                chunk = next;
+                position = 0;
+            }
+            return true;
+        }
+
+        private byte[] take() throws IOException {
+            try {
+                byte[] next;
+                while ((next = chunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    if (failure != null) {
+                        throw failedException();
+                    }
+                }
+                return next;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        @Override
+        public void close() {
+            readerClosed = true;
+            chunks.clear();
+        }
+    }
+}
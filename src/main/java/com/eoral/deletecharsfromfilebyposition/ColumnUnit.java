@@ -0,0 +1,23 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+/**
+ * What the column numbers of deletion rules count.
+ */
+public enum ColumnUnit {
+
+    /**
+     * UTF-16 chars of the decoded line, so a char outside the Basic Multilingual Plane (like most emoji) takes two
+     * columns. This is the default.
+     */
+    CHAR,
+
+    /**
+     * Unicode code points of the decoded line, so a surrogate pair is never split.
+     */
+    CODE_POINT,
+
+    /**
+     * Bytes of the line as it is in the file. Lines are never decoded or encoded. Only for ASCII compatible charsets.
+     */
+    BYTE
+}
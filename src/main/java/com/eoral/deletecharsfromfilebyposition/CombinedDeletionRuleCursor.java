@@ -0,0 +1,39 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves two cursors at the same time, as if their rules were sorted together. Rules of a line that both cursors have
+ * are returned in one list, those of the first cursor first.
+ */
+public class CombinedDeletionRuleCursor implements DeletionRuleCursor {
+
+    private final DeletionRuleCursor first;
+    private final DeletionRuleCursor second;
+
+    public CombinedDeletionRuleCursor(DeletionRuleCursor first, DeletionRuleCursor second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public int getNextLine() {
+        return Integer.min(first.getNextLine(), second.getNextLine());
+    }
+
+    @Override
+    public List<DeletionRule> getByLine(int line) {
+        List<DeletionRule> firstRules = first.getByLine(line);
+        List<DeletionRule> secondRules = second.getByLine(line);
+        if (secondRules.isEmpty()) {
+            return firstRules;
+        } else if (firstRules.isEmpty()) {
+            return secondRules;
+        }
+        List<DeletionRule> deletionRules = new ArrayList<>(firstRules.size() + secondRules.size());
+        deletionRules.addAll(firstRules);
+        deletionRules.addAll(secondRules);
+        return deletionRules;
+    }
+}
@@ -0,0 +1,222 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects deletion rules that many threads submit for the same files, and applies everything that is pending for a
+ * file in a single pass, instead of rewriting the file once per submission. A file's pending rules are applied when
+ * {@link #flush()} is called, when the first of them has waited for the max delay, or when there are max pending rules
+ * of them, whichever comes first. Every submission gets the report of the pass that has applied its rules.
+ * <p>
+ * Rules of one pass are applied together, so their lines and columns are all positions in the file as it is when the
+ * pass starts, whichever thread has submitted them. A rule submitted after a pass has started goes to the next pass.
+ * <p>
+ * While a pass runs, an exclusive {@link FileLock} is held on ".name.lock" next to the file, so that batchers in other
+ * processes wait for it rather than read the file before it is replaced and write back a result without these
+ * deletions. The file itself is not locked, because the result replaces it with a new file that another process would
+ * lock independently. The lock file is left in place.
+ */
+public class DeletionBatcher implements Closeable {
+
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+    public static final int DEFAULT_MAX_PENDING_RULES = 100_000;
+    public static final String LOCK_FILE_SUFFIX = ".lock";
+
+    // A file lock is held by the whole JVM, so passes of different batchers over the same file are also kept apart here.
+    private static final Map<Path, Object> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+    private final DeletionRuleExecution deletionRuleExecution;
+    private final Charset charset;
+    private final BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine;
+    private final ExecutionOptions executionOptions;
+    private final long maxDelayMillis;
+    private final int maxPendingRules;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<Path, Batch> pendingBatches = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * Rules that are pending for a file, and the report that every submission of them waits for.
+     */
+    private static class Batch {
+
+        private final Path filePath;
+        private final List<DeletionRule> deletionRules = new ArrayList<>();
+        private final CompletableFuture<OutputCommitReport> result = new CompletableFuture<>();
+        private ScheduledFuture<?> scheduledPass;
+
+        private Batch(Path filePath) {
+            this.filePath = filePath;
+        }
+    }
+
+    public DeletionBatcher(
+            DeletionRuleExecution deletionRuleExecution, Charset charset,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions, int workerCount) {
+        this(deletionRuleExecution, charset, behaviorAfterDeletionRulesExecutedForEachLine, executionOptions,
+                workerCount, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_PENDING_RULES);
+    }
+
+    public DeletionBatcher(
+            DeletionRuleExecution deletionRuleExecution, Charset charset,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions, int workerCount, long maxDelayMillis, int maxPendingRules) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be greater than or equal to 1.");
+        }
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Max delay must be greater than or equal to 0.");
+        }
+        if (maxPendingRules < 1) {
+            throw new IllegalArgumentException("Max pending rules must be greater than or equal to 1.");
+        }
+        this.deletionRuleExecution = deletionRuleExecution;
+        this.charset = charset;
+        this.behaviorAfterDeletionRulesExecutedForEachLine = behaviorAfterDeletionRulesExecutedForEachLine;
+        this.executionOptions = executionOptions;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxPendingRules = maxPendingRules;
+        this.executor = new ScheduledThreadPoolExecutor(workerCount);
+        this.executor.setRemoveOnCancelPolicy(true); // passes started early do not stay in the queue until their delay
+    }
+
+    public static Path getLockPath(Path filePath) {
+        Path absoluteFilePath = filePath.toAbsolutePath();
+        return absoluteFilePath.resolveSibling("." + absoluteFilePath.getFileName() + LOCK_FILE_SUFFIX);
+    }
+
+    /**
+     * Adds the rules to those pending for the file, and returns the report of the pass that will apply them. The
+     * report completes exceptionally if the pass fails.
+     */
+    public CompletableFuture<OutputCommitReport> submit(Path filePath, Collection<DeletionRule> deletionRules) {
+        Path key = filePath.toAbsolutePath().normalize();
+        synchronized (pendingBatches) {
+            if (closed) {
+                throw new IllegalStateException("Batcher has been closed.");
+            }
+            Batch batch = pendingBatches.get(key);
+            if (batch == null) {
+                batch = new Batch(key);
+                pendingBatches.put(key, batch);
+                Batch scheduledBatch = batch;
+                batch.scheduledPass = executor.schedule(
+                        () -> applyIfPending(scheduledBatch), maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.deletionRules.addAll(deletionRules);
+            if (batch.deletionRules.size() >= maxPendingRules) {
+                pendingBatches.remove(key);
+                startPass(batch);
+            }
+            return batch.result;
+        }
+    }
+
+    /**
+     * Applies the rules that are pending for every file, and returns after those passes have finished. Failures are
+     * reported through the results of the submissions.
+     */
+    public void flush() {
+        List<Batch> batches;
+        synchronized (pendingBatches) {
+            batches = new ArrayList<>(pendingBatches.values());
+            pendingBatches.clear();
+            for (Batch batch : batches) {
+                startPass(batch);
+            }
+        }
+        for (Batch batch : batches) {
+            batch.result.handle((report, throwable) -> null).join();
+        }
+    }
+
+    /**
+     * Applies the pending rules, and waits for every pass to finish. Nothing can be submitted after that.
+     */
+    @Override
+    public void close() {
+        synchronized (pendingBatches) {
+            closed = true;
+        }
+        flush();
+        executor.shutdown();
+        boolean interrupted = false;
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands a batch that has been taken from the pending ones to the executor. Called with the pending batches locked,
+     * so that {@link #close()} cannot shut the executor down between taking the batch and handing it over.
+     */
+    private void startPass(Batch batch) {
+        batch.scheduledPass.cancel(false);
+        executor.execute(() -> apply(batch));
+    }
+
+    /**
+     * Called when the batch has waited for the max delay. It may have been taken by a flush or by the size threshold in
+     * the meantime.
+     */
+    private void applyIfPending(Batch batch) {
+        synchronized (pendingBatches) {
+            if (pendingBatches.get(batch.filePath) != batch) {
+                return;
+            }
+            pendingBatches.remove(batch.filePath);
+        }
+        apply(batch);
+    }
+
+    private void apply(Batch batch) {
+        try {
+            batch.result.complete(applyLocked(batch.filePath, batch.deletionRules));
+        } catch (RuntimeException e) {
+            batch.result.completeExceptionally(e);
+        }
+    }
+
+    private OutputCommitReport applyLocked(Path filePath, List<DeletionRule> deletionRules) {
+        Path lockPath = getLockPath(filePath);
+        synchronized (LOCAL_LOCKS.computeIfAbsent(lockPath, path -> new Object())) {
+            try (FileChannel lockChannel = FileChannel.open(lockPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock fileLock = lockChannel.lock();
+                try {
+                    return deletionRuleExecution.deleteCharsFromFile(filePath, charset, deletionRules,
+                            behaviorAfterDeletionRulesExecutedForEachLine, executionOptions);
+                } finally {
+                    fileLock.release();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
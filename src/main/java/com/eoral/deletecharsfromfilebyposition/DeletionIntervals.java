@@ -0,0 +1,170 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column ranges of a line's deletion rules, sorted by start column and merged so that no two ranges overlap or
+ * touch. Columns are 1-based and inclusive. An open-ended range (a rule without an end column) ends at
+ * {@link Integer#MAX_VALUE}.
+ */
+public class DeletionIntervals {
+
+    private static final DeletionIntervals EMPTY = new DeletionIntervals(new int[0], new int[0]);
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private DeletionIntervals(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static DeletionIntervals empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Rules that delete the entire line have no column range, so they are ignored here.
+     */
+    public static DeletionIntervals of(List<DeletionRule> deletionRules) {
+        int count = 0;
+        long[] packed = new long[deletionRules.size()];
+        for (DeletionRule deletionRule : deletionRules) {
+            if (!deletionRule.deletesLine()) {
+                int start = deletionRule.getStartColumn();
+                int end = deletionRule.getEndColumn() == null ? Integer.MAX_VALUE : deletionRule.getEndColumn();
+                packed[count++] = ((long) start << 32) | (end & 0xFFFFFFFFL);
+            }
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(packed, 0, count); // start and end are positive, so this sorts by start, then by end
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int start = (int) (packed[i] >>> 32);
+            int end = (int) packed[i];
+            if (size > 0 && (long) start <= (long) ends[size - 1] + 1) {
+                ends[size - 1] = Integer.max(ends[size - 1], end);
+            } else {
+                starts[size] = start;
+                ends[size] = end;
+                size++;
+            }
+        }
+        return new DeletionIntervals(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Returns true if at least one column between 1 and the given line length is covered by a range.
+     */
+    public boolean affects(int lineLength) {
+        return !isEmpty() && starts[0] <= lineLength;
+    }
+
+    public String applyTo(String line) {
+        if (!affects(line.length())) {
+            return line;
+        }
+        StringBuilder stringBuilder = new StringBuilder(line.length());
+        appendRemainingChars(line, stringBuilder);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Same as {@link #applyTo(String)}, but columns are code points, so that surrogate pairs are never split.
+     */
+    public String applyToCodePoints(String line) {
+        if (!affects(line.length())) {
+            return line; // a line has no more code points than chars
+        }
+        int lineLength = line.length();
+        StringBuilder stringBuilder = new StringBuilder(lineLength);
+        int charIndex = 0; // index of the first char of the next code point
+        int codePointCount = 0; // number of code points before charIndex
+        int keepFrom = 0; // index of the first char that is not deleted yet
+        for (int i = 0; i < starts.length && charIndex < lineLength; i++) {
+            while (codePointCount < starts[i] - 1 && charIndex < lineLength) {
+                charIndex += Character.charCount(line.codePointAt(charIndex));
+                codePointCount++;
+            }
+            if (charIndex == lineLength) {
+                break;
+            }
+            stringBuilder.append(line, keepFrom, charIndex);
+            while (codePointCount < ends[i] && charIndex < lineLength) {
+                charIndex += Character.charCount(line.codePointAt(charIndex));
+                codePointCount++;
+            }
+            keepFrom = charIndex;
+        }
+        stringBuilder.append(line, keepFrom, lineLength);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Same as {@link #applyTo(String)}, but columns are bytes. The given buffer is returned as it is if no byte is
+     * deleted; otherwise, the remaining bytes are returned in a new buffer.
+     */
+    public ByteBuffer applyTo(ByteBuffer line) {
+        int lineLength = line.remaining();
+        if (!affects(lineLength)) {
+            return line;
+        }
+        ByteBuffer source = line.duplicate();
+        int lineStart = source.position();
+        byte[] remainingBytes = new byte[lineLength];
+        int length = 0;
+        int keepFrom = 0; // 0-based index of the first byte that is not deleted yet
+        for (int i = 0; i < starts.length && starts[i] <= lineLength; i++) {
+            int beginIndex = starts[i] - 1;
+            if (beginIndex > keepFrom) {
+                source.position(lineStart + keepFrom);
+                source.get(remainingBytes, length, beginIndex - keepFrom);
+                length += beginIndex - keepFrom;
+            }
+            keepFrom = Integer.min(lineLength, ends[i]);
+        }
+        if (keepFrom < lineLength) {
+            source.position(lineStart + keepFrom);
+            source.get(remainingBytes, length, lineLength - keepFrom);
+            length += lineLength - keepFrom;
+        }
+        return ByteBuffer.wrap(remainingBytes, 0, length);
+    }
+
+    public void appendRemainingChars(CharSequence line, StringBuilder stringBuilder) {
+        int lineLength = line.length();
+        int keepFrom = 0; // 0-based index of the first char that is not deleted yet
+        for (int i = 0; i < starts.length && starts[i] <= lineLength; i++) {
+            int beginIndex = starts[i] - 1;
+            if (beginIndex > keepFrom) {
+                stringBuilder.append(line, keepFrom, beginIndex);
+            }
+            keepFrom = Integer.min(lineLength, ends[i]);
+        }
+        if (keepFrom < lineLength) {
+            stringBuilder.append(line, keepFrom, lineLength);
+        }
+    }
+}
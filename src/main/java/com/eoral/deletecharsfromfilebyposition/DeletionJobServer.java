@@ -0,0 +1,206 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Keeps running and executes deletion jobs that arrive as JSON lines, so that the JVM is started only once for many
+ * files. Every input line is a job like:
+ * <pre>
+ * {"id": "42", "file": "/path/to/file", "charset": "UTF-8", "rules": "4:2-5,12", "deleteLineIfBlank": true}
+ * </pre>
+ * Only "id", "deleteLineIfBlank" and "columnUnit" ("CHAR", "CODE_POINT" or "BYTE", see {@link ColumnUnit}) are
+ * optional. For every job, one JSON line is written with its id, its status
+ * ("ok" or "error"), the milliseconds it waited and ran, and the error message if it failed. Results are written in
+ * the order jobs finish.
+ * <p>
+ * Jobs run on a fixed number of worker threads. At most a bounded number of jobs are accepted but not yet finished;
+ * when that limit is reached, input is not read until a job finishes. Jobs that target the same file run one after
+ * the other, in the order they were read.
+ * <p>
+ * Rules are compiled into a {@link DeletionPlan} once and reused by later jobs that have the same rules.
+ */
+public class DeletionJobServer {
+
+    public static final int DEFAULT_PENDING_JOBS_PER_WORKER = 4;
+
+    private static final int MAX_CACHED_DELETION_PLANS = 64;
+
+    private final int workerCount;
+    private final int maxPendingJobs;
+    private final Map<Path, CompletableFuture<Void>> lastJobByFile = new ConcurrentHashMap<>();
+    private final Map<String, DeletionPlan> deletionPlansByRules = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeletionPlan> eldest) {
+            return size() > MAX_CACHED_DELETION_PLANS;
+        }
+    };
+
+    public DeletionJobServer(int workerCount) {
+        this(workerCount, workerCount * DEFAULT_PENDING_JOBS_PER_WORKER);
+    }
+
+    public DeletionJobServer(int workerCount, int maxPendingJobs) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be greater than or equal to 1.");
+        }
+        if (maxPendingJobs < 1) {
+            throw new IllegalArgumentException("Max pending jobs must be greater than or equal to 1.");
+        }
+        this.workerCount = workerCount;
+        this.maxPendingJobs = maxPendingJobs;
+    }
+
+    /**
+     * Reads jobs until the end of input, and returns after every job has finished and its result has been written.
+     */
+    public void run(InputStream in, OutputStream out) {
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        Semaphore pendingJobs = new Semaphore(maxPendingJobs);
+        JsonLineWriter writer = new JsonLineWriter(out);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> object = null;
+                Job job;
+                try {
+                    object = SimpleJson.parseObject(line);
+                    job = Job.of(object);
+                } catch (RuntimeException e) {
+                    Object id = object == null ? null : object.get("id");
+                    writer.write(createErrorResult(id == null ? null : id.toString(), e));
+                    continue;
+                }
+                pendingJobs.acquireUninterruptibly();
+                submit(job, executor, () -> {
+                    try {
+                        writer.write(job.execute(this::getDeletionPlan));
+                    } finally {
+                        pendingJobs.release();
+                    }
+                });
+            }
+            pendingJobs.acquireUninterruptibly(maxPendingJobs); // waits for every job
+            pendingJobs.release(maxPendingJobs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs the task after the last job of the same file, whether that job has completed normally or not, so that a job
+     * that fails (for example, because its result cannot be written) does not keep the later ones from running.
+     */
+    private void submit(Job job, ExecutorService executor, Runnable task) {
+        Path key = job.getFilePath().toAbsolutePath().normalize();
+        CompletableFuture<Void> future = lastJobByFile.compute(key, (path, lastJob) -> lastJob == null
+                ? CompletableFuture.runAsync(task, executor)
+                : lastJob.handleAsync((result, throwable) -> {
+                    task.run();
+                    return null;
+                }, executor));
+        future.whenComplete((result, throwable) -> lastJobByFile.remove(key, future));
+    }
+
+    private DeletionPlan getDeletionPlan(String deletionRulesStr) {
+        synchronized (deletionPlansByRules) {
+            DeletionPlan deletionPlan = deletionPlansByRules.get(deletionRulesStr);
+            if (deletionPlan == null) {
+                deletionPlan = DeletionPlan.compile(deletionRulesStr);
+                deletionPlansByRules.put(deletionRulesStr, deletionPlan);
+            }
+            return deletionPlan;
+        }
+    }
+
+    private static Map<String, Object> createErrorResult(String id, Throwable throwable) {
+        return JsonLineWriter.createErrorResult("id", id, throwable);
+    }
+
+    private static class Job {
+
+        private final String id;
+        private final Path filePath;
+        private final String charset;
+        private final String deletionRulesStr;
+        private final boolean deleteLineIfBlank;
+        private final ColumnUnit columnUnit;
+        private final long acceptedAtNanos = System.nanoTime();
+
+        private Job(String id, Path filePath, String charset, String deletionRulesStr, boolean deleteLineIfBlank,
+                    ColumnUnit columnUnit) {
+            this.id = id;
+            this.filePath = filePath;
+            this.charset = charset;
+            this.deletionRulesStr = deletionRulesStr;
+            this.deleteLineIfBlank = deleteLineIfBlank;
+            this.columnUnit = columnUnit;
+        }
+
+        private static Job of(Map<String, Object> object) {
+            Object id = object.get("id");
+            Object deleteLineIfBlank = object.getOrDefault("deleteLineIfBlank", Boolean.FALSE);
+            if (!(deleteLineIfBlank instanceof Boolean)) {
+                throw new IllegalArgumentException("Field deleteLineIfBlank must be a boolean.");
+            }
+            Object columnUnit = object.getOrDefault("columnUnit", ColumnUnit.CHAR.name());
+            if (!(columnUnit instanceof String)) {
+                throw new IllegalArgumentException("Field columnUnit must be a string.");
+            }
+            return new Job(
+                    id == null ? null : id.toString(),
+                    Path.of(getRequiredString(object, "file")),
+                    getRequiredString(object, "charset"),
+                    getRequiredString(object, "rules"),
+                    (Boolean) deleteLineIfBlank,
+                    ColumnUnit.valueOf((String) columnUnit));
+        }
+
+        private static String getRequiredString(Map<String, Object> object, String field) {
+            Object value = object.get(field);
+            if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+                throw new IllegalArgumentException("Field " + field + " is missing or not a string.");
+            }
+            return (String) value;
+        }
+
+        private Path getFilePath() {
+            return filePath;
+        }
+
+        private Map<String, Object> execute(Function<String, DeletionPlan> deletionPlanProvider) {
+            long startedAtNanos = System.nanoTime();
+            Map<String, Object> result;
+            try {
+                BehaviorAfterDeletionRulesExecutedForEachLine behavior = new BehaviorAfterDeletionRulesExecutedForEachLine();
+                behavior.setDeleteLineIfBlank(deleteLineIfBlank);
+                OutputCommitReport outputCommitReport = new DeletionRuleExecution(columnUnit).deleteCharsFromFile(
+                        filePath, Charset.forName(charset), deletionPlanProvider.apply(deletionRulesStr), behavior,
+                        new ExecutionOptions());
+                result = new LinkedHashMap<>();
+                result.put("id", id);
+                result.put("status", "ok");
+                result.put("bytesCopied", outputCommitReport.getBytesCopied());
+                result.put("changed", outputCommitReport.isChanged());
+            } catch (RuntimeException e) {
+                result = createErrorResult(id, e);
+            }
+            long finishedAtNanos = System.nanoTime();
+            result.put("file", filePath.toString());
+            result.put("waitMillis", TimeUnit.NANOSECONDS.toMillis(startedAtNanos - acceptedAtNanos));
+            result.put("runMillis", TimeUnit.NANOSECONDS.toMillis(finishedAtNanos - startedAtNanos));
+            return result;
+        }
+    }
+}
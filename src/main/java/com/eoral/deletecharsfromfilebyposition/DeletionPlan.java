@@ -0,0 +1,184 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Deletion rules compiled once, to be applied to any number of files. Rules of every line are resolved ahead of time:
+ * if a rule deletes the line, it is the only rule of the line; otherwise, if a rule empties the line, it is the only
+ * rule of the line; otherwise, the column ranges of the line are merged, so that no two rules of a line overlap.
+ * Rules that cover more than one line are kept as they are. A plan is immutable, so it can be used by many threads at
+ * the same time; every file gets its own cursor.
+ * <p>
+ * A plan can be written to a compact binary file and read back, so that it is compiled once per job instead of once
+ * per file.
+ */
+public final class DeletionPlan extends DeletionRuleIndex {
+
+    private static final int MAGIC = 0x44435031; // "DCP1"
+    private static final int NONE = 0; // an absent column or last line, which are 1 or more otherwise
+
+    private final List<DeletionRule> rules;
+
+    private DeletionPlan(List<DeletionRule> resolvedRules) {
+        super(resolvedRules);
+        this.rules = Collections.unmodifiableList(resolvedRules);
+    }
+
+    public static DeletionPlan compile(String deletionRulesStr) {
+        return compile(DeletionRuleParser.parseMultiple(deletionRulesStr));
+    }
+
+    public static DeletionPlan compile(List<DeletionRule> deletionRules) {
+        List<DeletionRule> singleLineRules = new ArrayList<>(deletionRules.size());
+        List<DeletionRule> rangeRules = new ArrayList<>();
+        for (DeletionRule deletionRule : deletionRules) {
+            (deletionRule.coversSingleLine() ? singleLineRules : rangeRules).add(deletionRule);
+        }
+        singleLineRules.sort(Comparator.comparingInt(DeletionRule::getLine));
+        List<DeletionRule> resolvedRules = new ArrayList<>(singleLineRules.size() + rangeRules.size());
+        int groupStart = 0;
+        for (int i = 1; i <= singleLineRules.size(); i++) {
+            if (i == singleLineRules.size()
+                    || singleLineRules.get(i).getLine().intValue() != singleLineRules.get(groupStart).getLine().intValue()) {
+                resolve(singleLineRules.subList(groupStart, i), resolvedRules);
+                groupStart = i;
+            }
+        }
+        resolvedRules.addAll(rangeRules);
+        return new DeletionPlan(resolvedRules);
+    }
+
+    /**
+     * Adds the fewest rules that have the same effect as the given rules of a single line.
+     */
+    private static void resolve(List<DeletionRule> rulesOfLine, List<DeletionRule> resolvedRules) {
+        int line = rulesOfLine.get(0).getLine();
+        boolean emptiesLine = false;
+        for (DeletionRule deletionRule : rulesOfLine) {
+            if (deletionRule.deletesLine()) {
+                resolvedRules.add(new DeletionRule(line, null, null));
+                return;
+            }
+            emptiesLine |= deletionRule.emptiesLine();
+        }
+        if (emptiesLine) {
+            resolvedRules.add(new DeletionRule(line, 1, null));
+            return;
+        }
+        DeletionIntervals deletionIntervals = DeletionIntervals.of(rulesOfLine);
+        for (int i = 0; i < deletionIntervals.size(); i++) {
+            int end = deletionIntervals.getEnd(i);
+            resolvedRules.add(new DeletionRule(line, deletionIntervals.getStart(i), end == Integer.MAX_VALUE ? null : end));
+        }
+    }
+
+    /**
+     * Returns the resolved rules: rules of single lines sorted by line, then rules that cover more than one line.
+     */
+    public List<DeletionRule> getRules() {
+        return rules;
+    }
+
+    public void writeTo(Path path) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lines of single line rules are written as the difference from the previous line, and every number as a
+     * variable-length integer, so a plan usually takes a few bytes per rule.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        int singleLineRuleCount = 0;
+        while (singleLineRuleCount < rules.size() && rules.get(singleLineRuleCount).coversSingleLine()) {
+            singleLineRuleCount++;
+        }
+        writeVarInt(dataOut, singleLineRuleCount);
+        int previousLine = 0;
+        for (DeletionRule deletionRule : rules.subList(0, singleLineRuleCount)) {
+            writeVarInt(dataOut, deletionRule.getLine() - previousLine);
+            writeColumns(dataOut, deletionRule);
+            previousLine = deletionRule.getLine();
+        }
+        writeVarInt(dataOut, rules.size() - singleLineRuleCount);
+        for (DeletionRule deletionRule : rules.subList(singleLineRuleCount, rules.size())) {
+            writeVarInt(dataOut, deletionRule.getLine());
+            writeVarInt(dataOut, deletionRule.getLastLine() == null ? NONE : deletionRule.getLastLine());
+            writeVarInt(dataOut, deletionRule.getLineStep());
+            writeColumns(dataOut, deletionRule);
+        }
+        dataOut.flush();
+    }
+
+    private static void writeColumns(DataOutputStream dataOut, DeletionRule deletionRule) throws IOException {
+        writeVarInt(dataOut, deletionRule.getStartColumn() == null ? NONE : deletionRule.getStartColumn());
+        writeVarInt(dataOut, deletionRule.getEndColumn() == null ? NONE : deletionRule.getEndColumn());
+    }
+
+    public static DeletionPlan readFrom(Path path) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return readFrom(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static DeletionPlan readFrom(InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        if (dataIn.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Input is not a deletion plan.");
+        }
+        int singleLineRuleCount = readVarInt(dataIn);
+        List<DeletionRule> resolvedRules = new ArrayList<>(singleLineRuleCount);
+        int line = 0;
+        for (int i = 0; i < singleLineRuleCount; i++) {
+            line += readVarInt(dataIn);
+            resolvedRules.add(new DeletionRule(line, readOptionalVarInt(dataIn), readOptionalVarInt(dataIn)));
+        }
+        int rangeRuleCount = readVarInt(dataIn);
+        for (int i = 0; i < rangeRuleCount; i++) {
+            int firstLine = readVarInt(dataIn);
+            Integer lastLine = readOptionalVarInt(dataIn);
+            int lineStep = readVarInt(dataIn);
+            resolvedRules.add(new DeletionRule(
+                    firstLine, lastLine, lineStep, readOptionalVarInt(dataIn), readOptionalVarInt(dataIn)));
+        }
+        return new DeletionPlan(resolvedRules);
+    }
+
+    private static void writeVarInt(DataOutputStream dataOut, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            dataOut.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        dataOut.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream dataIn) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = dataIn.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Input is not a deletion plan.");
+    }
+
+    private static Integer readOptionalVarInt(DataInputStream dataIn) throws IOException {
+        int value = readVarInt(dataIn);
+        return value == NONE ? null : value;
+    }
+}
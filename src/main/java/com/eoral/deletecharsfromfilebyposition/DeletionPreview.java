@@ -0,0 +1,192 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shows what deletion rules would do to a file without changing it. For every line that has rules, one JSON line is
+ * written, like:
+ * <pre>
+ * {"line":7,"original":"abcdef","removed":[{"startColumn":2,"endColumn":3,"text":"bc"}],"result":"adef","lineDeleted":false}
+ * </pre>
+ * The result is computed with {@link DeletionRuleExecution#deleteCharsFromLine}, so it is exactly what a real run
+ * would write. Columns are shown in the column unit of the execution. Reading stops right after the last line that has
+ * rules, unless some rules are counted from the end; then the whole input is read, and lines are shown with their
+ * numbers counted from the start.
+ */
+public class DeletionPreview {
+
+    private final DeletionRuleExecution deletionRuleExecution;
+    private final BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine;
+
+    public DeletionPreview(
+            DeletionRuleExecution deletionRuleExecution,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        this.deletionRuleExecution = deletionRuleExecution;
+        this.behaviorAfterDeletionRulesExecutedForEachLine = behaviorAfterDeletionRulesExecutedForEachLine;
+    }
+
+    /**
+     * Previews the rules on the file, which is only read. Gzip files are decompressed while they are read.
+     */
+    public void preview(Path inputFilePath, Charset inputFileCharset, SortedDeletionRules sortedDeletionRules,
+                        Writer output) {
+        boolean compressed = GzipPipeline.isGzipFile(inputFilePath);
+        try (InputStream input = compressed
+                ? new GZIPInputStream(Files.newInputStream(inputFilePath)) : Files.newInputStream(inputFilePath)) {
+            preview(input, inputFileCharset, sortedDeletionRules, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Neither stream is closed, and the input is not read after the last line that has rules. The output is flushed
+     * at the end.
+     */
+    public void preview(InputStream input, Charset charset, SortedDeletionRules sortedDeletionRules, Writer output) {
+        ColumnUnit columnUnit = deletionRuleExecution.getColumnUnit();
+        if (columnUnit == ColumnUnit.BYTE && !Utils.isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("Byte columns are not supported for charset " + charset.name() + ".");
+        }
+        DeletionRuleCursor deletionRuleCursor = sortedDeletionRules.cursor(1);
+        int lastLine = sortedDeletionRules.getLastLine();
+        List<DeletionRule> rulesCountedFromEnd = sortedDeletionRules.getRulesCountedFromEnd();
+        if (!rulesCountedFromEnd.isEmpty()) {
+            if (!Utils.isAsciiCompatible(charset)) {
+                throw new IllegalArgumentException(
+                        "Rules counted from the end are only supported for ASCII compatible charsets.");
+            }
+            TrailingLinesInputStream trailingLinesInput =
+                    new TrailingLinesInputStream(input, TrailingLines.getLineCountToFind(rulesCountedFromEnd));
+            input = trailingLinesInput;
+            deletionRuleCursor = new CombinedDeletionRuleCursor(
+                    deletionRuleCursor, trailingLinesInput.cursor(rulesCountedFromEnd));
+            lastLine = SortedDeletionRules.NO_MORE_LINES;
+        }
+        int lineNumber = 0;
+        try {
+            if (Utils.isAsciiCompatible(charset)) {
+                // Only the lines that have rules are decoded.
+                ByteLineReader reader =
+                        new ByteLineReader(Channels.newChannel(input), ByteLineReader.DEFAULT_BUFFER_SIZE);
+                while (lineNumber < lastLine && reader.next()) {
+                    lineNumber++;
+                    if (lineNumber != deletionRuleCursor.getNextLine()) {
+                        continue;
+                    }
+                    List<DeletionRule> deletionRulesOfLine = deletionRuleCursor.getByLine(lineNumber);
+                    if (columnUnit == ColumnUnit.BYTE) {
+                        writeLine(lineNumber, reader.getLine(), charset, deletionRulesOfLine, output);
+                    } else {
+                        String line = charset.decode(reader.getLine()).toString();
+                        writeLine(lineNumber, line, deletionRulesOfLine, output);
+                    }
+                }
+            } else {
+                CharLineReader reader = new CharLineReader(new InputStreamReader(input, charset));
+                while (lineNumber < lastLine && reader.next()) {
+                    lineNumber++;
+                    if (lineNumber == deletionRuleCursor.getNextLine()) {
+                        writeLine(lineNumber, reader.getLine(), deletionRuleCursor.getByLine(lineNumber), output);
+                    }
+                }
+            }
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(int lineNumber, String line, List<DeletionRule> deletionRulesOfLine, Writer output)
+            throws IOException {
+        String restOfTheLine = deletionRuleExecution.deleteCharsFromLine(
+                line, deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
+        boolean codePoints = deletionRuleExecution.getColumnUnit() == ColumnUnit.CODE_POINT;
+        int lineLength = codePoints ? line.codePointCount(0, line.length()) : line.length();
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (int[] columns : getRemovedColumnRanges(lineLength, deletionRulesOfLine)) {
+            String text = codePoints
+                    ? line.substring(line.offsetByCodePoints(0, columns[0] - 1), line.offsetByCodePoints(0, columns[1]))
+                    : line.substring(columns[0] - 1, columns[1]);
+            spans.add(createSpan(columns, text));
+        }
+        writeObject(lineNumber, line, spans, restOfTheLine, output);
+    }
+
+    /**
+     * Columns are bytes. Texts are decoded only to be shown, so a span that splits a multibyte char shows replacement
+     * chars.
+     */
+    private void writeLine(int lineNumber, ByteBuffer line, Charset charset, List<DeletionRule> deletionRulesOfLine,
+                           Writer output) throws IOException {
+        ByteBuffer restOfTheLine = deletionRuleExecution.deleteBytesFromLine(
+                line.duplicate(), deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (int[] columns : getRemovedColumnRanges(line.remaining(), deletionRulesOfLine)) {
+            ByteBuffer removedBytes = line.duplicate();
+            removedBytes.position(line.position() + columns[0] - 1);
+            removedBytes.limit(line.position() + columns[1]);
+            spans.add(createSpan(columns, charset.decode(removedBytes).toString()));
+        }
+        writeObject(lineNumber, charset.decode(line.duplicate()).toString(), spans,
+                restOfTheLine == null ? null : charset.decode(restOfTheLine).toString(), output);
+    }
+
+    private void writeObject(int lineNumber, String line, List<Map<String, Object>> spans, String restOfTheLine,
+                             Writer output) throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("line", lineNumber);
+        object.put("original", line);
+        object.put("removed", spans);
+        object.put("result", restOfTheLine);
+        object.put("lineDeleted", restOfTheLine == null);
+        output.write(SimpleJson.toJson(object));
+        output.write('\n');
+    }
+
+    /**
+     * Returns the column ranges the rules remove from the line, clipped to the length of the line. A line that is
+     * deleted or emptied by a rule has all of its columns removed. Removing a blank line afterwards because of the
+     * behavior is shown by "lineDeleted" only.
+     */
+    private List<int[]> getRemovedColumnRanges(int lineLength, List<DeletionRule> deletionRulesOfLine) {
+        List<int[]> columnRanges = new ArrayList<>();
+        boolean removesAll = false;
+        for (DeletionRule deletionRule : deletionRulesOfLine) {
+            removesAll |= deletionRule.deletesLine() || deletionRule.emptiesLine();
+        }
+        if (removesAll) {
+            if (lineLength > 0) {
+                columnRanges.add(new int[] {1, lineLength});
+            }
+            return columnRanges;
+        }
+        DeletionIntervals deletionIntervals = DeletionIntervals.of(deletionRulesOfLine);
+        for (int i = 0; i < deletionIntervals.size() && deletionIntervals.getStart(i) <= lineLength; i++) {
+            columnRanges.add(new int[] {deletionIntervals.getStart(i), Integer.min(lineLength, deletionIntervals.getEnd(i))});
+        }
+        return columnRanges;
+    }
+
+    private Map<String, Object> createSpan(int[] columns, String text) {
+        Map<String, Object> span = new LinkedHashMap<>();
+        span.put("startColumn", columns[0]);
+        span.put("endColumn", columns[1]);
+        span.put("text", text);
+        return span;
+    }
+}
@@ -3,23 +3,56 @@ package com.eoral.deletecharsfromfilebyposition;
 import java.util.Collections;
 import java.util.Set;
 
+/**
+ * Deletes columns of a single line, or of every lineStep-th line of a range of lines. A rule of a single line has the
+ * same line as its first and last line. A range whose last line is null has no end. A negative line is counted from the
+ * end of the file (-1 is the last line); such a rule is always a rule of a single line.
+ */
 public class DeletionRule {
 
+    public static final int NO_MORE_LINES = SortedDeletionRules.NO_MORE_LINES;
+
     private Integer line;
+    private Integer lastLine;
+    private int lineStep;
     private Integer startColumn;
     private Integer endColumn;
 
     public DeletionRule(Integer line, Integer startColumn, Integer endColumn) {
+        this(line, line, 1, startColumn, endColumn);
+    }
+
+    /**
+     * Creates a rule for lines line, line + lineStep, line + 2 * lineStep and so on, up to lastLine (inclusive), or
+     * up to the end of the file if lastLine is null.
+     */
+    public DeletionRule(Integer line, Integer lastLine, int lineStep, Integer startColumn, Integer endColumn) {
         ensureLineIsValid(line);
+        ensureLastLineAndLineStepAreValid(line, lastLine, lineStep);
         ensureColumnsAreValid(startColumn, endColumn);
         this.line = line;
+        this.lastLine = lastLine;
+        this.lineStep = lineStep;
         this.startColumn = startColumn;
         this.endColumn = endColumn;
     }
 
     private void ensureLineIsValid(Integer line) {
-        if (line == null || line < 1) {
-            throw new IllegalArgumentException("Line must be greater than or equal to 1.");
+        if (line == null || line == 0) {
+            throw new IllegalArgumentException(
+                    "Line must be greater than or equal to 1, or less than or equal to -1 to count from the end.");
+        }
+    }
+
+    private void ensureLastLineAndLineStepAreValid(Integer line, Integer lastLine, int lineStep) {
+        if (line < 0 && (lastLine == null || lastLine.intValue() != line.intValue())) {
+            throw new IllegalArgumentException("A line counted from the end cannot be a range.");
+        }
+        if (lastLine != null && lastLine < line) {
+            throw new IllegalArgumentException("Last line must be greater than or equal to line.");
+        }
+        if (lineStep < 1) {
+            throw new IllegalArgumentException("Line step must be greater than or equal to 1.");
         }
     }
 
@@ -44,6 +77,65 @@ public class DeletionRule {
         return line;
     }
 
+    /**
+     * Returns a hash of a rule given as in {@link DeletionRuleParser.RuleSink}, which is the same in every run. The
+     * hashes of rules are added up into {@link SortedDeletionRules#getDigest()}.
+     */
+    static long hash(int line, int lastLine, int lineStep, int startColumn, int endColumn) {
+        long hash = 17;
+        for (int value : new int[] {line, lastLine, lineStep, startColumn, endColumn}) {
+            hash = hash * 31 + value;
+            hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L; // mixes the bits, so that sums rarely collide
+            hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+            hash ^= hash >>> 31;
+        }
+        return hash;
+    }
+
+    long hash() {
+        return hash(line, lastLine == null ? DeletionRuleParser.RuleSink.NO_LAST_LINE : lastLine, lineStep,
+                startColumn == null ? DeletionRuleParser.RuleSink.NO_COLUMN : startColumn,
+                endColumn == null ? DeletionRuleParser.RuleSink.NO_COLUMN : endColumn);
+    }
+
+    /**
+     * Returns the last line of the range (inclusive), or null if the range has no end.
+     */
+    public Integer getLastLine() {
+        return lastLine;
+    }
+
+    public int getLineStep() {
+        return lineStep;
+    }
+
+    /**
+     * Returns true if the line is negative, that is, counted from the end of the file.
+     */
+    public boolean isCountedFromEnd() {
+        return line < 0;
+    }
+
+    public boolean coversSingleLine() {
+        return lastLine != null && lastLine.intValue() == line.intValue();
+    }
+
+    /**
+     * Returns the smallest line that is greater than or equal to the given line and that the rule applies to, or
+     * {@link #NO_MORE_LINES} if there is no such line.
+     */
+    public int getNextLineAtOrAfter(int fromLine) {
+        long nextLine = line;
+        if (fromLine > line) {
+            long steps = ((long) fromLine - line + lineStep - 1) / lineStep;
+            nextLine = line + steps * lineStep;
+        }
+        if ((lastLine != null && nextLine > lastLine) || nextLine >= NO_MORE_LINES) {
+            return NO_MORE_LINES;
+        }
+        return (int) nextLine;
+    }
+
     public Integer getStartColumn() {
         return startColumn;
     }
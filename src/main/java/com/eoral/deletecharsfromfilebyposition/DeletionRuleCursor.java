@@ -0,0 +1,20 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.util.List;
+
+/**
+ * A forward-only position in deletion rules that are sorted by line. It is not thread-safe; every pass over a file
+ * needs its own cursor.
+ */
+public interface DeletionRuleCursor {
+
+    /**
+     * Returns the next line that has rules, or {@link SortedDeletionRules#NO_MORE_LINES} if the cursor is exhausted.
+     */
+    int getNextLine();
+
+    /**
+     * Returns the rules of the given line and moves the cursor past it. Lines must be given in increasing order.
+     */
+    List<DeletionRule> getByLine(int line);
+}
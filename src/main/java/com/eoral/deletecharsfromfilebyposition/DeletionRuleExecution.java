@@ -3,26 +3,128 @@ package com.eoral.deletecharsfromfilebyposition;
 import org.apache.commons.cli.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 public class DeletionRuleExecution {
 
+    private final ColumnUnit columnUnit;
+
+    public DeletionRuleExecution() {
+        this(ColumnUnit.CHAR);
+    }
+
+    /**
+     * Column numbers of deletion rules count the given unit. {@link ColumnUnit#BYTE} is only supported for ASCII
+     * compatible charsets; for such files, lines are never decoded.
+     */
+    public DeletionRuleExecution(ColumnUnit columnUnit) {
+        this.columnUnit = columnUnit;
+    }
+
     public static void main(String[] args) throws ParseException {
 
         String optionFile = "o1";
         String optionCharset = "o2";
         String optionDeletionRules = "o3";
         String optionDeleteLineIfBlank = "o4";
+        String optionInPlace = "o5";
+        String optionParallelism = "o6";
+        String optionLineOffsetIndex = "o7";
+        String optionServer = "o8";
+        String optionWorkers = "o9";
+        String optionDeletionRulesFile = "o10";
+        String optionDeletionRulesMemory = "o11";
+        String optionOutput = "o12";
+        String optionFsync = "o13";
+        String optionDryRun = "o14";
+        String optionDeletionPlan = "o15";
+        String optionSaveDeletionPlan = "o16";
+        String optionRecordLength = "o17";
+        String optionRecordTerminatorLength = "o18";
+        String optionColumnUnit = "o19";
+        String optionInputDir = "o20";
+        String optionInclude = "o21";
+        String optionExclude = "o22";
+        String optionPipelined = "o24";
+        String optionCheckpoint = "o25";
 
         Options options = new Options();
-        options.addOption(optionFile, "file", true, "Absolute path of the file");
+        options.addOption(optionFile, "file", true, "Absolute path of the file, or - to read it from standard input");
         options.addOption(optionCharset, "charset", true, "Charset of the file");
         options.addOption(optionDeletionRules, "deletion-rules", true,
-                "Single rule: lineNumber[:startColumnNumber-[endColumnNumber]] \nIf you need multiple rules, use comma to join the rules.");
+                "Single rule: lineNumber[:startColumnNumber-[endColumnNumber]] \nIf you need multiple rules, use comma to join the rules."
+                        + " \nInstead of lineNumber, a range (100-200), an open range (500-) or * for every line can be"
+                        + " used, optionally with a step (1-~2 for every second line).");
         options.addOption(optionDeleteLineIfBlank, "delete-line-if-blank", false,
                 "After deletion rules are executed on a line, delete line if it is blank (contains only whitespace).");
+        options.addOption(optionInPlace, "in-place", false,
+                "Rewrite the file in place instead of through a temp file. Needs no extra disk space, but the file is "
+                        + "left half-rewritten if the process is killed. Only for ASCII compatible charsets.");
+        options.addOption(optionParallelism, "parallelism", true,
+                "Number of threads that process parts of the file at the same time. Default is 1.");
+        options.addOption(optionPipelined, "pipelined", false,
+                "Read, process and write the file on three threads at the same time, so that disk and CPU work "
+                        + "overlap. Only for ASCII compatible charsets, and not with in-place or parallelism.");
+        options.addOption(optionCheckpoint, "checkpoint-mb", true,
+                "Write the result to a file next to the file and record a checkpoint every this many megabytes of "
+                        + "input, so that a run that is killed continues from its last checkpoint when it is started "
+                        + "again with the same options. Only for ASCII compatible charsets, and not with in-place, "
+                        + "output, parallelism, pipelined or record-length.");
+        options.addOption(optionLineOffsetIndex, "line-offset-index", false,
+                "Use and update a sidecar index (file name + \"" + LineOffsetIndex.SIDECAR_FILE_SUFFIX
+                        + "\") that maps every " + LineOffsetIndex.DEFAULT_INTERVAL
+                        + "th line to its byte offset, so later runs can skip to the first line that has rules.");
+        options.addOption(optionServer, "server", false,
+                "Keep running and read jobs as JSON lines from standard input, one result line per job is written to "
+                        + "standard output. Other options are not used.");
+        options.addOption(optionWorkers, "workers", true,
+                "Number of jobs that run at the same time in server mode. Default is the number of processors.");
+        options.addOption(optionDeletionRulesFile, "deletion-rules-file", true,
+                "Path of a UTF-8 file to read deletion rules from, or - to read them from standard input. Rules are "
+                        + "separated by commas or line breaks. Use it instead of deletion-rules for many rules.");
+        options.addOption(optionDeletionRulesMemory, "deletion-rules-memory-mb", true,
+                "Megabytes of memory that rules read from deletion-rules-file may use before they are sorted on disk. "
+                        + "Default is " + DeletionRuleSorter.DEFAULT_MEMORY_BUDGET / (1024 * 1024) + ".");
+        options.addOption(optionOutput, "output", true,
+                "Path of the file to write the result to, or - to write it to standard output, instead of rewriting "
+                        + "the file. Default is - when the file is read from standard input. Cannot be combined with "
+                        + "in-place.");
+        options.addOption(optionFsync, "fsync", true,
+                "What is forced to disk before the result replaces the file: none, file or file-and-directory. "
+                        + "Default is none.");
+        options.addOption(optionDryRun, "dry-run", false,
+                "Do not change the file. Instead, write a JSON line for every line that has rules, with its original "
+                        + "text, the removed spans and the result, to standard output (or to output).");
+        options.addOption(optionDeletionPlan, "deletion-plan", true,
+                "Path of a deletion plan file written by save-deletion-plan. Use it instead of deletion-rules.");
+        options.addOption(optionSaveDeletionPlan, "save-deletion-plan", true,
+                "Compile the rules into a deletion plan and write it to the given path, so later runs can use it with "
+                        + "deletion-plan. The file option is not needed then.");
+        options.addOption(optionRecordLength, "record-length", true,
+                "Process the file as fixed-width records of this many bytes, terminator included, instead of lines. "
+                        + "Records are located by arithmetic, so the file is not scanned for line breaks. Only for "
+                        + "single-byte charsets, and not with in-place, standard input/output or dry-run.");
+        options.addOption(optionRecordTerminatorLength, "record-terminator-length", true,
+                "Number of bytes at the end of every record (like a line break) that are not part of its columns. "
+                        + "Default is 0.");
+        options.addOption(optionColumnUnit, "column-unit", true,
+                "What column numbers count: char (UTF-16 chars, default), codepoint (so surrogate pairs are never split) "
+                        + "or byte (lines are not decoded at all, only for ASCII compatible charsets).");
+        options.addOption(optionInputDir, "input-dir", true,
+                "Process every file under this directory (that matches include and exclude) instead of file, and "
+                        + "write a JSON line for every file and a summary to standard output.");
+        options.addOption(optionInclude, "include", true,
+                "Glob of the files to process under input-dir, like *.dat or data/**. A glob without a slash is "
+                        + "matched against the file name. Can be given more than once. Default is every file.");
+        options.addOption(optionExclude, "exclude", true,
+                "Glob of the files or directories to skip under input-dir. Can be given more than once.");
 
         boolean hasMissingOrInvalidOptions = false;
         CommandLineParser parser = new DefaultParser();
@@ -35,31 +137,296 @@ public class DeletionRuleExecution {
 
         if (hasMissingOrInvalidOptions) {
             printHelp(options);
+        } else if (cmd.hasOption(optionServer)) {
+            int workers = Runtime.getRuntime().availableProcessors();
+            if (cmd.hasOption(optionWorkers)) {
+                workers = parsePositiveInt(cmd.getOptionValue(optionWorkers));
+            }
+            if (workers < 1) {
+                printHelp(options);
+            } else {
+                new DeletionJobServer(workers).run(System.in, System.out);
+            }
         } else {
+            String savedDeletionPlanFilePathStr = cmd.getOptionValue(optionSaveDeletionPlan);
+            boolean savesDeletionPlan =
+                    savedDeletionPlanFilePathStr != null && savedDeletionPlanFilePathStr.trim().length() > 0;
             String inputFilePathStr = cmd.getOptionValue(optionFile);
-            if (inputFilePathStr == null || inputFilePathStr.trim().length() == 0) {
-                hasMissingOrInvalidOptions = true;
+            boolean hasFile = inputFilePathStr != null && inputFilePathStr.trim().length() > 0;
+            String inputDirectoryPathStr = cmd.getOptionValue(optionInputDir);
+            boolean hasInputDirectory = inputDirectoryPathStr != null && inputDirectoryPathStr.trim().length() > 0;
+            if (hasFile == hasInputDirectory && !(!hasFile && savesDeletionPlan)) {
+                hasMissingOrInvalidOptions = true; // exactly one of them is needed, unless only a plan is saved
             }
             String inputFileCharset = cmd.getOptionValue(optionCharset);
-            if (inputFileCharset == null || inputFileCharset.trim().length() == 0) {
+            if ((hasFile || hasInputDirectory) && (inputFileCharset == null || inputFileCharset.trim().length() == 0)) {
                 hasMissingOrInvalidOptions = true;
             }
             String deletionRulesStr = cmd.getOptionValue(optionDeletionRules);
-            if (deletionRulesStr == null || deletionRulesStr.trim().length() == 0) {
-                hasMissingOrInvalidOptions = true;
+            String deletionRulesFilePathStr = cmd.getOptionValue(optionDeletionRulesFile);
+            String deletionPlanFilePathStr = cmd.getOptionValue(optionDeletionPlan);
+            boolean hasDeletionRules = deletionRulesStr != null && deletionRulesStr.trim().length() > 0;
+            boolean hasDeletionRulesFile = deletionRulesFilePathStr != null && deletionRulesFilePathStr.trim().length() > 0;
+            boolean hasDeletionPlan = deletionPlanFilePathStr != null && deletionPlanFilePathStr.trim().length() > 0;
+            if ((hasDeletionRules ? 1 : 0) + (hasDeletionRulesFile ? 1 : 0) + (hasDeletionPlan ? 1 : 0) != 1) {
+                hasMissingOrInvalidOptions = true; // exactly one of them is needed
+            }
+            long deletionRulesMemoryBudget = DeletionRuleSorter.DEFAULT_MEMORY_BUDGET;
+            if (cmd.hasOption(optionDeletionRulesMemory)) {
+                deletionRulesMemoryBudget = parsePositiveInt(cmd.getOptionValue(optionDeletionRulesMemory)) * 1024L * 1024L;
+                if (deletionRulesMemoryBudget < 1) {
+                    hasMissingOrInvalidOptions = true;
+                }
             }
             boolean deleteLineIfBlank = false;
             if (cmd.hasOption(optionDeleteLineIfBlank)) {
                 deleteLineIfBlank = true;
             }
+            int parallelism = 1;
+            if (cmd.hasOption(optionParallelism)) {
+                parallelism = parsePositiveInt(cmd.getOptionValue(optionParallelism));
+                if (parallelism < 1) {
+                    hasMissingOrInvalidOptions = true;
+                }
+            }
+            String outputFilePathStr = cmd.getOptionValue(optionOutput);
+            boolean readsStandardInput = "-".equals(inputFilePathStr);
+            boolean hasOutput = outputFilePathStr != null && outputFilePathStr.trim().length() > 0;
+            boolean dryRun = cmd.hasOption(optionDryRun);
+            boolean streaming = readsStandardInput || "-".equals(outputFilePathStr);
+            FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+            if (cmd.hasOption(optionFsync)) {
+                fsyncPolicy = parseFsyncPolicy(cmd.getOptionValue(optionFsync));
+                if (fsyncPolicy == null) {
+                    hasMissingOrInvalidOptions = true;
+                }
+            }
+            ColumnUnit columnUnit = ColumnUnit.CHAR;
+            if (cmd.hasOption(optionColumnUnit)) {
+                columnUnit = parseColumnUnit(cmd.getOptionValue(optionColumnUnit));
+                if (columnUnit == null) {
+                    hasMissingOrInvalidOptions = true;
+                }
+            }
+            int workers = Runtime.getRuntime().availableProcessors();
+            if (cmd.hasOption(optionWorkers)) {
+                workers = parsePositiveInt(cmd.getOptionValue(optionWorkers));
+            }
+            if (hasInputDirectory && (workers < 1 || hasOutput || dryRun)) {
+                hasMissingOrInvalidOptions = true;
+            }
+            int recordLength = 0;
+            if (cmd.hasOption(optionRecordLength)) {
+                recordLength = parsePositiveInt(cmd.getOptionValue(optionRecordLength));
+                if (recordLength < 1 || streaming || dryRun || cmd.hasOption(optionInPlace)) {
+                    hasMissingOrInvalidOptions = true;
+                }
+            }
+            int recordTerminatorLength = 0;
+            if (cmd.hasOption(optionRecordTerminatorLength)) {
+                String recordTerminatorLengthStr = cmd.getOptionValue(optionRecordTerminatorLength);
+                recordTerminatorLength =
+                        "0".equals(recordTerminatorLengthStr) ? 0 : parsePositiveInt(recordTerminatorLengthStr);
+                if (recordTerminatorLength < 0 || recordTerminatorLength >= recordLength) {
+                    hasMissingOrInvalidOptions = true; // also when there is no record length
+                }
+            }
+            if (cmd.hasOption(optionPipelined) && (cmd.hasOption(optionInPlace) || parallelism > 1)) {
+                hasMissingOrInvalidOptions = true;
+            }
+            long checkpointInterval = 0;
+            if (cmd.hasOption(optionCheckpoint)) {
+                checkpointInterval = parsePositiveInt(cmd.getOptionValue(optionCheckpoint)) * 1024L * 1024L;
+                if (checkpointInterval < 1 || streaming || hasOutput || dryRun || cmd.hasOption(optionInPlace)
+                        || parallelism > 1 || cmd.hasOption(optionPipelined) || recordLength > 0) {
+                    hasMissingOrInvalidOptions = true;
+                }
+            }
+            if (readsStandardInput || hasOutput || dryRun) {
+                if (cmd.hasOption(optionInPlace)) {
+                    hasMissingOrInvalidOptions = true;
+                }
+                if (readsStandardInput && "-".equals(deletionRulesFilePathStr)) {
+                    hasMissingOrInvalidOptions = true; // standard input cannot be read twice
+                }
+                if (hasOutput && hasFile && !readsStandardInput && isSameFile(inputFilePathStr, outputFilePathStr)) {
+                    hasMissingOrInvalidOptions = true; // the file would be truncated before it is read
+                }
+            }
             if (hasMissingOrInvalidOptions) {
                 printHelp(options);
             } else {
                 BehaviorAfterDeletionRulesExecutedForEachLine behavior = new BehaviorAfterDeletionRulesExecutedForEachLine();
                 behavior.setDeleteLineIfBlank(deleteLineIfBlank);
-                new DeletionRuleExecution().deleteCharsFromFile(inputFilePathStr, inputFileCharset, deletionRulesStr, behavior);
+                ExecutionOptions executionOptions = new ExecutionOptions();
+                executionOptions.setInPlace(cmd.hasOption(optionInPlace));
+                executionOptions.setParallelism(parallelism);
+                executionOptions.setPipelined(cmd.hasOption(optionPipelined));
+                executionOptions.setCheckpointInterval(checkpointInterval);
+                executionOptions.setLineOffsetIndexEnabled(cmd.hasOption(optionLineOffsetIndex));
+                executionOptions.setDeletionRulesMemoryBudget(deletionRulesMemoryBudget);
+                executionOptions.setFsyncPolicy(fsyncPolicy);
+                executionOptions.setRecordLength(recordLength);
+                executionOptions.setRecordTerminatorLength(recordTerminatorLength);
+                if (hasOutput && !streaming) {
+                    executionOptions.setOutputCommitStrategy(
+                            OutputCommitStrategy.separateDestination(Path.of(outputFilePathStr)));
+                }
+                try (DeletionRuleSorter deletionRuleSorter = new DeletionRuleSorter(deletionRulesMemoryBudget)) {
+                    SortedDeletionRules sortedDeletionRules;
+                    // Rules of a batch are kept in memory, since every file needs its own cursor.
+                    if (hasDeletionRulesFile && !savesDeletionPlan && !hasInputDirectory) {
+                        try (Reader deletionRulesReader = openDeletionRulesReader(deletionRulesFilePathStr)) {
+                            DeletionRuleParser.parseMultiple(deletionRulesReader, deletionRuleSorter::add);
+                        }
+                        sortedDeletionRules = deletionRuleSorter.sort();
+                    } else {
+                        DeletionPlan deletionPlan;
+                        if (hasDeletionPlan) {
+                            deletionPlan = DeletionPlan.readFrom(Path.of(deletionPlanFilePathStr));
+                        } else if (hasDeletionRules) {
+                            deletionPlan = DeletionPlan.compile(deletionRulesStr);
+                        } else {
+                            List<DeletionRule> deletionRules = new ArrayList<>();
+                            try (Reader deletionRulesReader = openDeletionRulesReader(deletionRulesFilePathStr)) {
+                                DeletionRuleParser.parseMultiple(deletionRulesReader,
+                                        (line, lastLine, lineStep, startColumn, endColumn) -> deletionRules.add(
+                                                DeletionRuleParser.toDeletionRule(
+                                                        line, lastLine, lineStep, startColumn, endColumn)));
+                            }
+                            deletionPlan = DeletionPlan.compile(deletionRules);
+                        }
+                        if (savesDeletionPlan) {
+                            deletionPlan.writeTo(Path.of(savedDeletionPlanFilePathStr));
+                        }
+                        sortedDeletionRules = deletionPlan;
+                    }
+                    if (hasInputDirectory) {
+                        DeletionRuleExecution deletionRuleExecution = new DeletionRuleExecution(columnUnit);
+                        Charset charset = Charset.forName(inputFileCharset);
+                        new DirectoryBatch(workers, getOptionValues(cmd, optionInclude),
+                                getOptionValues(cmd, optionExclude)).run(Path.of(inputDirectoryPathStr),
+                                filePath -> deletionRuleExecution.deleteCharsFromFile(
+                                        filePath, charset, sortedDeletionRules, behavior, executionOptions),
+                                System.out);
+                        return;
+                    }
+                    if (!hasFile) {
+                        return; // only the plan is saved
+                    }
+                    if (dryRun) {
+                        try (OutputStream output = openOutputStream(hasOutput ? outputFilePathStr : "-");
+                             Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                            DeletionPreview deletionPreview = new DeletionPreview(new DeletionRuleExecution(columnUnit), behavior);
+                            if (readsStandardInput) {
+                                deletionPreview.preview(new FileInputStream(FileDescriptor.in),
+                                        Charset.forName(inputFileCharset), sortedDeletionRules, writer);
+                            } else {
+                                deletionPreview.preview(Path.of(inputFilePathStr),
+                                        Charset.forName(inputFileCharset), sortedDeletionRules, writer);
+                            }
+                        }
+                    } else if (streaming) {
+                        try (InputStream input = openInputStream(inputFilePathStr);
+                             OutputStream output = openOutputStream(hasOutput ? outputFilePathStr : "-")) {
+                            new DeletionRuleExecution(columnUnit).deleteCharsFromStream(
+                                    input, output, Charset.forName(inputFileCharset), sortedDeletionRules, behavior);
+                        }
+                    } else {
+                        new DeletionRuleExecution(columnUnit).deleteCharsFromFile(Path.of(inputFilePathStr),
+                                Charset.forName(inputFileCharset), sortedDeletionRules, behavior, executionOptions);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private static List<String> getOptionValues(CommandLine cmd, String option) {
+        String[] values = cmd.getOptionValues(option);
+        return values == null ? Collections.emptyList() : Arrays.asList(values);
+    }
+
+    /**
+     * Returns null if the string is not the name of a policy.
+     */
+    private static FsyncPolicy parseFsyncPolicy(String str) {
+        for (FsyncPolicy fsyncPolicy : FsyncPolicy.values()) {
+            if (fsyncPolicy.name().replace('_', '-').equalsIgnoreCase(str)) {
+                return fsyncPolicy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns null if the string is not the name of a column unit.
+     */
+    private static ColumnUnit parseColumnUnit(String str) {
+        for (ColumnUnit columnUnit : ColumnUnit.values()) {
+            if (columnUnit.name().replace("_", "").equalsIgnoreCase(str)) {
+                return columnUnit;
             }
         }
+        return null;
+    }
+
+    private static boolean isSameFile(String filePathStr, String otherFilePathStr) {
+        if (otherFilePathStr.equals("-")) {
+            return false;
+        }
+        Path filePath = Path.of(filePathStr).toAbsolutePath().normalize();
+        Path otherFilePath = Path.of(otherFilePathStr).toAbsolutePath().normalize();
+        if (filePath.equals(otherFilePath)) {
+            return true;
+        }
+        try {
+            return Files.exists(filePath) && Files.exists(otherFilePath) && Files.isSameFile(filePath, otherFilePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns standard input if the path is "-". Standard input is read through its file descriptor, so that it is
+     * not buffered twice.
+     */
+    private static InputStream openInputStream(String filePathStr) throws IOException {
+        if (filePathStr.equals("-")) {
+            return new FileInputStream(FileDescriptor.in);
+        }
+        return Files.newInputStream(Path.of(filePathStr));
+    }
+
+    /**
+     * Returns standard output if the path is "-".
+     */
+    private static OutputStream openOutputStream(String filePathStr) throws IOException {
+        if (filePathStr.equals("-")) {
+            return new FileOutputStream(FileDescriptor.out);
+        }
+        return Files.newOutputStream(Path.of(filePathStr));
+    }
+
+    /**
+     * Returns a reader of standard input if the path is "-".
+     */
+    private static Reader openDeletionRulesReader(String deletionRulesFilePathStr) throws IOException {
+        if (deletionRulesFilePathStr.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Path.of(deletionRulesFilePathStr), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns -1 if the string is not a positive integer.
+     */
+    private static int parsePositiveInt(String str) {
+        if (str == null || !str.matches("^[1-9][0-9]{0,8}$")) {
+            return -1;
+        }
+        return Integer.parseInt(str);
     }
 
     public static void printHelp(Options options) {
@@ -68,31 +435,526 @@ public class DeletionRuleExecution {
         formatter.printHelp("delete-chars-from-file-by-position", options);
     }
 
-    public void deleteCharsFromFile(
+    public OutputCommitReport deleteCharsFromFile(
             String inputFilePathStr,
             String inputFileCharset,
             String deletionRulesStr,
             BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
-        deleteCharsFromFile(
+        return deleteCharsFromFile(inputFilePathStr, inputFileCharset, deletionRulesStr,
+                behaviorAfterDeletionRulesExecutedForEachLine, new ExecutionOptions());
+    }
+
+    public OutputCommitReport deleteCharsFromFile(
+            String inputFilePathStr,
+            String inputFileCharset,
+            String deletionRulesStr,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+        return deleteCharsFromFile(
                 Path.of(inputFilePathStr),
                 Charset.forName(inputFileCharset),
                 DeletionRuleParser.parseMultiple(deletionRulesStr),
-                behaviorAfterDeletionRulesExecutedForEachLine);
+                behaviorAfterDeletionRulesExecutedForEachLine,
+                executionOptions);
+    }
+
+    public OutputCommitReport deleteCharsFromFile(
+            Path inputFilePath,
+            Charset inputFileCharset,
+            List<DeletionRule> deletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        return deleteCharsFromFile(inputFilePath, inputFileCharset, deletionRules,
+                behaviorAfterDeletionRulesExecutedForEachLine, new ExecutionOptions());
     }
 
-    public void deleteCharsFromFile(
+    public OutputCommitReport deleteCharsFromFile(
             Path inputFilePath,
             Charset inputFileCharset,
             List<DeletionRule> deletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+        return deleteCharsFromFile(inputFilePath, inputFileCharset, new DeletionRuleIndex(deletionRules),
+                behaviorAfterDeletionRulesExecutedForEachLine, executionOptions);
+    }
+
+    /**
+     * Parses the rules from the reader as they are read, and sorts them within the memory budget of the execution
+     * options. Sorted runs are spilled to temp files if the rules do not fit in the budget.
+     */
+    public OutputCommitReport deleteCharsFromFile(
+            Path inputFilePath,
+            Charset inputFileCharset,
+            Reader deletionRulesReader,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+        try (DeletionRuleSorter deletionRuleSorter =
+                     new DeletionRuleSorter(executionOptions.getDeletionRulesMemoryBudget())) {
+            DeletionRuleParser.parseMultiple(deletionRulesReader, deletionRuleSorter::add);
+            return deleteCharsFromFile(inputFilePath, inputFileCharset, deletionRuleSorter.sort(),
+                    behaviorAfterDeletionRulesExecutedForEachLine, executionOptions);
+        }
+    }
+
+    /**
+     * Writes the result as the output commit strategy of the execution options says, and returns what the strategy has
+     * done.
+     */
+    public OutputCommitReport deleteCharsFromFile(
+            Path inputFilePath,
+            Charset inputFileCharset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+
+        OutputCommitStrategy outputCommitStrategy = executionOptions.getOutputCommitStrategy();
+        boolean compressed = GzipPipeline.isGzipFile(inputFilePath);
+        boolean fixedWidth = executionOptions.getRecordLength() > 0; // columns are bytes whatever the column unit is
+        if (!fixedWidth) {
+            ensureColumnUnitIsSupported(inputFileCharset);
+        }
+        if (fixedWidth) {
+            if (compressed) {
+                throw new IllegalArgumentException("Fixed-width record mode is not supported for compressed files.");
+            }
+            if (outputCommitStrategy.isInPlace()) {
+                throw new IllegalArgumentException("Fixed-width record mode cannot be combined with in-place mode.");
+            }
+        }
+        if (outputCommitStrategy.isInPlace()) {
+            if (compressed) {
+                throw new IllegalArgumentException("In-place mode is not supported for compressed files.");
+            }
+            if (executionOptions.getParallelism() > 1) {
+                throw new IllegalArgumentException("In-place mode cannot be combined with parallel processing.");
+            }
+        }
+        boolean replacesInputFile = outputCommitStrategy.getResultFilePath(inputFilePath).equals(inputFilePath);
+        boolean resumable = executionOptions.getCheckpointInterval() > 0;
+        if (!sortedDeletionRules.getRulesCountedFromEnd().isEmpty()) {
+            if (!Utils.isAsciiCompatible(inputFileCharset)) {
+                throw new IllegalArgumentException(
+                        "Rules counted from the end are not supported for charset " + inputFileCharset.name() + ".");
+            }
+            if (fixedWidth) {
+                throw new IllegalArgumentException(
+                        "Rules counted from the end cannot be combined with fixed-width record mode.");
+            }
+            if (resumable) {
+                throw new IllegalArgumentException("Rules counted from the end cannot be combined with resumable mode.");
+            }
+        }
+        if (resumable) {
+            if (compressed || fixedWidth || !Utils.isAsciiCompatible(inputFileCharset)) {
+                throw new IllegalArgumentException("Resumable mode is only supported for uncompressed files in ASCII "
+                        + "compatible charsets, and not in fixed-width record mode.");
+            }
+            if (outputCommitStrategy.isInPlace() || !replacesInputFile) {
+                throw new IllegalArgumentException(
+                        "Resumable mode is only supported when the result replaces the file through a temp file.");
+            }
+        }
+
+        // When the result would replace the file, a pass that changes nothing is skipped or thrown away, so that the
+        // file (and its modification time) is left untouched.
+        if (replacesInputFile && isKnownToChangeNothing(inputFilePath, sortedDeletionRules, executionOptions)) {
+            return createUnchangedReport(outputCommitStrategy, inputFilePath);
+        }
+
+        // A resumable pass always writes to the same file next to the input, so that the next run can find it.
+        Path outputFilePath = resumable
+                ? CheckpointJournal.getOutputPath(inputFilePath) : outputCommitStrategy.createOutputFile(inputFilePath);
+        FilePass filePass;
+
+        try {
+            if (fixedWidth) {
+                filePass = deleteCharsFromFileByRecords(inputFilePath, outputFilePath, inputFileCharset,
+                        sortedDeletionRules, behaviorAfterDeletionRulesExecutedForEachLine, executionOptions);
+            } else if (compressed) {
+                // Decompressed, processed and compressed again on three threads. Parallel processing and the line
+                // offset index are not used.
+                boolean changed = GzipPipeline.transform(inputFilePath, outputFilePath, (input, output) ->
+                        deleteCharsFromDecompressedStream(input, output, inputFileCharset, sortedDeletionRules,
+                                behaviorAfterDeletionRulesExecutedForEachLine));
+                filePass = new FilePass(changed, null);
+            } else if (resumable) {
+                filePass = deleteCharsFromFileResumably(inputFilePath, outputFilePath, inputFileCharset,
+                        sortedDeletionRules, behaviorAfterDeletionRulesExecutedForEachLine, executionOptions);
+            } else if (outputCommitStrategy.isInPlace()) {
+                filePass = deleteCharsFromFileInPlace(inputFilePath, inputFileCharset,
+                        sortedDeletionRules, behaviorAfterDeletionRulesExecutedForEachLine, executionOptions);
+            } else if (Utils.isAsciiCompatible(inputFileCharset)) {
+                filePass = deleteCharsFromFileByBytes(inputFilePath, outputFilePath, inputFileCharset,
+                        sortedDeletionRules, behaviorAfterDeletionRulesExecutedForEachLine, executionOptions);
+            } else {
+                deleteCharsFromFileByReader(inputFilePath, outputFilePath, inputFileCharset, sortedDeletionRules,
+                        behaviorAfterDeletionRulesExecutedForEachLine);
+                filePass = new FilePass(true, null); // line breaks are written anew
+            }
+        } catch (RuntimeException e) {
+            if (!resumable) { // otherwise the partial output and its journal are kept for the next run
+                outputCommitStrategy.abort(inputFilePath, outputFilePath);
+            }
+            throw e;
+        }
+
+        if (replacesInputFile && !filePass.changed) {
+            outputCommitStrategy.abort(inputFilePath, outputFilePath);
+            if (resumable) {
+                CheckpointJournal.delete(inputFilePath);
+            }
+            if (filePass.lineOffsetIndexBuilder != null) {
+                filePass.lineOffsetIndexBuilder.writeFor(inputFilePath);
+            }
+            return createUnchangedReport(outputCommitStrategy, inputFilePath);
+        }
+        long bytesCopied = outputCommitStrategy.commit(inputFilePath, outputFilePath, executionOptions.getFsyncPolicy());
+        if (resumable) {
+            CheckpointJournal.delete(inputFilePath);
+        }
+        Path resultFilePath = outputCommitStrategy.getResultFilePath(inputFilePath);
+        if (filePass.lineOffsetIndexBuilder != null) {
+            filePass.lineOffsetIndexBuilder.writeFor(resultFilePath);
+        }
+        try {
+            return new OutputCommitReport(
+                    outputCommitStrategy.getName(), resultFilePath, Files.size(resultFilePath), bytesCopied);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns true if there are no rules, or if every rule is beyond the end of the file, as far as it can be told
+     * without reading the file: by the line count of its line offset index, or by its size in fixed-width record mode.
+     * Rules counted from the end are always taken to change something.
+     */
+    private boolean isKnownToChangeNothing(
+            Path inputFilePath, SortedDeletionRules sortedDeletionRules, ExecutionOptions executionOptions) {
+        if (!sortedDeletionRules.getRulesCountedFromEnd().isEmpty()) {
+            return false;
+        }
+        if (sortedDeletionRules.isEmpty()) {
+            return true;
+        }
+        long lineCount = LineOffsetIndex.UNKNOWN_LINE_COUNT;
+        if (executionOptions.getRecordLength() > 0) {
+            try {
+                // even a last record without its terminator is counted
+                lineCount = (Files.size(inputFilePath) + executionOptions.getRecordLength() - 1)
+                        / executionOptions.getRecordLength();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (executionOptions.isLineOffsetIndexEnabled()) {
+            LineOffsetIndex lineOffsetIndex = LineOffsetIndex.load(inputFilePath);
+            if (lineOffsetIndex != null) {
+                lineCount = lineOffsetIndex.getLineCount();
+            }
+        }
+        return lineCount != LineOffsetIndex.UNKNOWN_LINE_COUNT && sortedDeletionRules.getFirstLine() > lineCount;
+    }
+
+    private OutputCommitReport createUnchangedReport(OutputCommitStrategy outputCommitStrategy, Path inputFilePath) {
+        try {
+            return new OutputCommitReport(
+                    outputCommitStrategy.getName(), inputFilePath, Files.size(inputFilePath), 0, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * What a pass over a file has found out besides its output.
+     */
+    private static class FilePass {
+
+        private final boolean changed;
+        private final LineOffsetIndex.Builder lineOffsetIndexBuilder;
+
+        private FilePass(boolean changed, LineOffsetIndex.Builder lineOffsetIndexBuilder) {
+            this.changed = changed;
+            this.lineOffsetIndexBuilder = lineOffsetIndexBuilder;
+        }
+    }
+
+    /**
+     * Reads the input stream to its end and writes the result to the output stream, without any temp file. Line breaks
+     * are kept as they are, and the input after the last line that has rules is copied without being split into lines.
+     * Neither stream is closed; the output stream is flushed at the end.
+     */
+    public void deleteCharsFromStream(
+            InputStream input,
+            OutputStream output,
+            Charset charset,
+            List<DeletionRule> deletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        deleteCharsFromStream(input, output, charset, new DeletionRuleIndex(deletionRules),
+                behaviorAfterDeletionRulesExecutedForEachLine);
+    }
+
+    public void deleteCharsFromStream(
+            InputStream input,
+            OutputStream output,
+            Charset charset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        ensureColumnUnitIsSupported(charset);
+        try {
+            if (Utils.isAsciiCompatible(charset)) {
+                new ByteLineEngine(this, charset, behaviorAfterDeletionRulesExecutedForEachLine)
+                        .process(input, output, sortedDeletionRules);
+            } else {
+                deleteCharsFromStream(new InputStreamReader(input, charset), new OutputStreamWriter(output, charset),
+                        sortedDeletionRules, behaviorAfterDeletionRulesExecutedForEachLine);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Same as {@link #deleteCharsFromStream(InputStream, OutputStream, Charset, SortedDeletionRules,
+     * BehaviorAfterDeletionRulesExecutedForEachLine)}, but returns true if the result may differ from the input. Chars
+     * of charsets that are not ASCII compatible are decoded and encoded again, so they are always taken as changed.
+     */
+    private boolean deleteCharsFromDecompressedStream(
+            InputStream input,
+            OutputStream output,
+            Charset charset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine)
+            throws IOException {
+        if (!Utils.isAsciiCompatible(charset)) {
+            deleteCharsFromStream(
+                    input, output, charset, sortedDeletionRules, behaviorAfterDeletionRulesExecutedForEachLine);
+            return true;
+        }
+        ByteLineEngine byteLineEngine =
+                new ByteLineEngine(this, charset, behaviorAfterDeletionRulesExecutedForEachLine);
+        byteLineEngine.process(input, output, sortedDeletionRules);
+        return byteLineEngine.isChanged();
+    }
+
+    /**
+     * Same as {@link #deleteCharsFromStream(InputStream, OutputStream, Charset, List,
+     * BehaviorAfterDeletionRulesExecutedForEachLine)}, for chars that are already decoded.
+     */
+    public void deleteCharsFromStream(
+            Reader input,
+            Writer output,
+            List<DeletionRule> deletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        deleteCharsFromStream(input, output, new DeletionRuleIndex(deletionRules),
+                behaviorAfterDeletionRulesExecutedForEachLine);
+    }
+
+    public void deleteCharsFromStream(
+            Reader input,
+            Writer output,
+            SortedDeletionRules sortedDeletionRules,
             BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
 
-        DeletionRulesGroupedByLine deletionRulesGroupedByLine = new DeletionRulesGroupedByLine(deletionRules);
-        Path tempFilePath = Utils.createTempFile();
+        if (columnUnit == ColumnUnit.BYTE) {
+            throw new IllegalArgumentException("Byte columns cannot be applied to chars that are already decoded.");
+        }
+        if (!sortedDeletionRules.getRulesCountedFromEnd().isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Rules counted from the end cannot be applied to chars that are already decoded.");
+        }
+        DeletionRuleCursor deletionRuleCursor = sortedDeletionRules.cursor(1);
+        int lastLine = sortedDeletionRules.getLastLine();
+        CharLineReader reader = new CharLineReader(input);
+
+        try {
+            int lineNumber = 0;
+            while (lineNumber < lastLine && reader.next()) {
+                lineNumber++;
+                List<DeletionRule> deletionRulesOfLine = deletionRuleCursor.getByLine(lineNumber);
+                String restOfTheLine = deleteCharsFromLine(
+                        reader.getLine(), deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
+                if (restOfTheLine != null) {
+                    output.write(restOfTheLine);
+                    output.write(reader.getTerminator());
+                }
+            }
+            reader.transferRestTo(output);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a builder for the line offset index of the rewritten file, starting with the samples of the current
+     * index of the file that are before the first line that has rules. Returns null if the option is not enabled, or
+     * if some rules are counted from the end, since the index is not used then.
+     */
+    private LineOffsetIndex.Builder createLineOffsetIndexBuilder(
+            LineOffsetIndex lineOffsetIndex, SortedDeletionRules sortedDeletionRules, ExecutionOptions executionOptions) {
+        if (!executionOptions.isLineOffsetIndexEnabled() || !sortedDeletionRules.getRulesCountedFromEnd().isEmpty()) {
+            return null;
+        } else if (lineOffsetIndex == null || sortedDeletionRules.isEmpty()) {
+            return new LineOffsetIndex.Builder(LineOffsetIndex.DEFAULT_INTERVAL);
+        } else {
+            return new LineOffsetIndex.Builder(lineOffsetIndex, sortedDeletionRules.getFirstLine());
+        }
+    }
+
+    private FilePass deleteCharsFromFileByBytes(
+            Path inputFilePath,
+            Path outputFilePath,
+            Charset inputFileCharset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+
+        try (FileChannel input = FileChannel.open(inputFilePath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputFilePath,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteLineEngine byteLineEngine = new ByteLineEngine(this, inputFileCharset, behaviorAfterDeletionRulesExecutedForEachLine);
+            // Rules merged from temp files can only be read forward, so they are always processed on one thread, and
+            // so are rules counted from the end, which need the last lines of the file to be found first.
+            boolean countedFromEnd = !sortedDeletionRules.getRulesCountedFromEnd().isEmpty();
+            if (executionOptions.getParallelism() > 1 && sortedDeletionRules instanceof DeletionRuleIndex
+                    && !countedFromEnd) {
+                new ParallelByteLineEngine(byteLineEngine, executionOptions.getParallelism())
+                        .process(input, output, outputFilePath, (DeletionRuleIndex) sortedDeletionRules);
+                return new FilePass(byteLineEngine.isChanged(), null);
+            } else if (executionOptions.isPipelined() && !countedFromEnd) {
+                PipelinedLineEngine pipelinedLineEngine =
+                        new PipelinedLineEngine(this, inputFileCharset, behaviorAfterDeletionRulesExecutedForEachLine);
+                pipelinedLineEngine.process(input, output, sortedDeletionRules);
+                return new FilePass(pipelinedLineEngine.isChanged(), null);
+            } else {
+                LineOffsetIndex lineOffsetIndex =
+                        executionOptions.isLineOffsetIndexEnabled() ? LineOffsetIndex.load(inputFilePath) : null;
+                LineOffsetIndex.Builder lineOffsetIndexBuilder =
+                        createLineOffsetIndexBuilder(lineOffsetIndex, sortedDeletionRules, executionOptions);
+                byteLineEngine.process(input, output, sortedDeletionRules, lineOffsetIndex, lineOffsetIndexBuilder);
+                return new FilePass(byteLineEngine.isChanged(), lineOffsetIndexBuilder);
+            }
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Continues from the last checkpoint of the journal of the file if there is one that matches the file and the job,
+     * and writes a checkpoint every checkpoint interval bytes of input. Parallel processing, pipelining and the line
+     * offset index are not used.
+     */
+    private FilePass deleteCharsFromFileResumably(
+            Path inputFilePath,
+            Path outputFilePath,
+            Charset inputFileCharset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+
+        // The rules themselves are not in the journal, only their digest, so a run with other rules starts over.
+        String jobDescription = inputFileCharset.name() + "," + columnUnit + ","
+                + (behaviorAfterDeletionRulesExecutedForEachLine != null
+                && behaviorAfterDeletionRulesExecutedForEachLine.isDeleteLineIfBlank()) + ","
+                + sortedDeletionRules.getFirstLine() + "," + sortedDeletionRules.getLastLine() + ","
+                + Long.toHexString(sortedDeletionRules.getDigest());
+        ByteLineEngine byteLineEngine =
+                new ByteLineEngine(this, inputFileCharset, behaviorAfterDeletionRulesExecutedForEachLine);
+
+        try (CheckpointJournal checkpointJournal = CheckpointJournal.open(inputFilePath, jobDescription);
+             FileChannel input = FileChannel.open(inputFilePath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputFilePath,
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            CheckpointJournal.Checkpoint lastCheckpoint = checkpointJournal.getLastCheckpoint();
+            boolean changedBefore = lastCheckpoint != null && lastCheckpoint.isChanged();
+            long outputStartPosition = lastCheckpoint == null ? 0 : lastCheckpoint.getOutputLength();
+            output.truncate(outputStartPosition); // drops what has been written after the last checkpoint
+            byteLineEngine.processResumable(input, output, sortedDeletionRules,
+                    lastCheckpoint == null ? 0 : lastCheckpoint.getInputOffset(),
+                    lastCheckpoint == null ? 0 : lastCheckpoint.getLineNumber(),
+                    outputStartPosition, executionOptions.getCheckpointInterval(),
+                    (inputOffset, lineNumber, outputLength) -> checkpointJournal.append(
+                            new CheckpointJournal.Checkpoint(inputOffset, lineNumber, outputLength,
+                                    changedBefore || byteLineEngine.isChanged()), output));
+            return new FilePass(changedBefore || byteLineEngine.isChanged(), null);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FilePass deleteCharsFromFileInPlace(
+            Path inputFilePath,
+            Charset inputFileCharset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+
+        if (!Utils.isAsciiCompatible(inputFileCharset)) {
+            throw new IllegalArgumentException("In-place mode is not supported for charset " + inputFileCharset.name() + ".");
+        }
+
+        LineOffsetIndex lineOffsetIndex =
+                executionOptions.isLineOffsetIndexEnabled() ? LineOffsetIndex.load(inputFilePath) : null;
+        LineOffsetIndex.Builder lineOffsetIndexBuilder =
+                createLineOffsetIndexBuilder(lineOffsetIndex, sortedDeletionRules, executionOptions);
+
+        ByteLineEngine byteLineEngine =
+                new ByteLineEngine(this, inputFileCharset, behaviorAfterDeletionRulesExecutedForEachLine);
+        try (FileChannel channel = FileChannel.open(inputFilePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            byteLineEngine.processInPlace(channel, sortedDeletionRules, lineOffsetIndex, lineOffsetIndexBuilder);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new FilePass(byteLineEngine.isChanged(), lineOffsetIndexBuilder);
+    }
+
+    private FilePass deleteCharsFromFileByRecords(
+            Path inputFilePath,
+            Path outputFilePath,
+            Charset inputFileCharset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            ExecutionOptions executionOptions) {
+
+        FixedWidthRecordEngine fixedWidthRecordEngine = new FixedWidthRecordEngine(inputFileCharset,
+                behaviorAfterDeletionRulesExecutedForEachLine, executionOptions.getRecordLength(),
+                executionOptions.getRecordTerminatorLength());
+
+        try (FileChannel input = FileChannel.open(inputFilePath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputFilePath,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            fixedWidthRecordEngine.process(input, output, sortedDeletionRules);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new FilePass(fixedWidthRecordEngine.isChanged(), null);
+    }
+
+    /**
+     * Used for charsets in which line breaks cannot be found in the raw bytes (for example, UTF-16).
+     */
+    private void deleteCharsFromFileByReader(
+            Path inputFilePath,
+            Path outputFilePath,
+            Charset inputFileCharset,
+            SortedDeletionRules sortedDeletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+
+        DeletionRuleCursor deletionRuleCursor = sortedDeletionRules.cursor(1);
 
         try (FileInputStream fis = new FileInputStream(inputFilePath.toFile());
              InputStreamReader isr = new InputStreamReader(fis, inputFileCharset);
              BufferedReader reader = new BufferedReader(isr);
-             FileOutputStream fos = new FileOutputStream(tempFilePath.toFile());
+             FileOutputStream fos = new FileOutputStream(outputFilePath.toFile());
              OutputStreamWriter osw = new OutputStreamWriter(fos, inputFileCharset);
              BufferedWriter writer = new BufferedWriter(osw)) {
 
@@ -101,7 +963,7 @@ public class DeletionRuleExecution {
 
             while ((line = reader.readLine()) != null) {
                 lineNumber++;
-                List<DeletionRule> deletionRulesOfLine = deletionRulesGroupedByLine.getByLine(lineNumber);
+                List<DeletionRule> deletionRulesOfLine = deletionRuleCursor.getByLine(lineNumber);
                 String restOfTheLine = deleteCharsFromLine(line, deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
                 if (restOfTheLine != null) {
                     writer.write(restOfTheLine);
@@ -112,8 +974,6 @@ public class DeletionRuleExecution {
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
-
-        Utils.moveFileReplaceExisting(tempFilePath, inputFilePath);
     }
 
     public String deleteCharsFromLine(
@@ -129,23 +989,79 @@ public class DeletionRuleExecution {
             } else if (containsOneRuleThatEmptiesLine(deletionRules)) {
                 lineAfterRulesApplied = ""; // line will be emptied
             } else {
-                Set<Integer> columns = Utils.getColumns(1, line.length());
-                if (!columns.isEmpty()) {
-                    for (DeletionRule deletionRule : deletionRules) {
-                        Set<Integer> columnsToBeRemoved = deletionRule.getEffectedColumns(line.length());
-                        columns.removeAll(columnsToBeRemoved);
-                        if (columns.isEmpty()) {
-                            break;
-                        }
-                    }
-                }
-                lineAfterRulesApplied = getRemainingChars(line, columns); // return rest of the line
+                lineAfterRulesApplied = applyDeletionIntervals(DeletionIntervals.of(deletionRules), line); // return rest of the line
             }
             return applyBehaviorAfterDeletionRulesExecutedForEachLine(
                     lineAfterRulesApplied, behaviorAfterDeletionRulesExecutedForEachLine);
         }
     }
 
+    /**
+     * Same as {@link #deleteCharsFromLine}, but for a line that is not decoded, whose columns are bytes. Only used
+     * with {@link ColumnUnit#BYTE}. The given buffer is returned as it is if nothing is deleted, and null if the line
+     * is deleted.
+     */
+    public ByteBuffer deleteBytesFromLine(
+            ByteBuffer line,
+            List<DeletionRule> deletionRules,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        if (deletionRules.isEmpty()) {
+            return line; // return line as is
+        }
+        ByteBuffer lineAfterRulesApplied;
+        if (containsOneRuleThatDeletesLine(deletionRules)) {
+            return null; // line will be deleted
+        } else if (containsOneRuleThatEmptiesLine(deletionRules)) {
+            lineAfterRulesApplied = ByteBuffer.allocate(0); // line will be emptied
+        } else {
+            lineAfterRulesApplied = DeletionIntervals.of(deletionRules).applyTo(line); // return rest of the line
+        }
+        if (behaviorAfterDeletionRulesExecutedForEachLine != null
+                && behaviorAfterDeletionRulesExecutedForEachLine.isDeleteLineIfBlank()
+                && isBlank(lineAfterRulesApplied)) {
+            return null;
+        }
+        return lineAfterRulesApplied;
+    }
+
+    public ColumnUnit getColumnUnit() {
+        return columnUnit;
+    }
+
+    private String applyDeletionIntervals(DeletionIntervals deletionIntervals, String line) {
+        switch (columnUnit) {
+            case CHAR:
+                return deletionIntervals.applyTo(line);
+            case CODE_POINT:
+                return deletionIntervals.applyToCodePoints(line);
+            default:
+                throw new IllegalStateException("Byte columns cannot be applied to a decoded line.");
+        }
+    }
+
+    /**
+     * Same as {@link String#trim()} being empty. In an ASCII compatible charset, bytes of multibyte chars are never
+     * in the range of ASCII control chars and space, so a byte can be checked on its own.
+     */
+    private boolean isBlank(ByteBuffer line) {
+        for (int i = line.position(); i < line.limit(); i++) {
+            byte b = line.get(i);
+            if (b < 0 || b > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Byte columns can only be applied to lines that are found in the raw bytes.
+     */
+    private void ensureColumnUnitIsSupported(Charset charset) {
+        if (columnUnit == ColumnUnit.BYTE && !Utils.isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("Byte columns are not supported for charset " + charset.name() + ".");
+        }
+    }
+
     private boolean containsOneRuleThatDeletesLine(List<DeletionRule> deletionRules) {
         for (DeletionRule deletionRule : deletionRules) {
             if (deletionRule.deletesLine()) {
@@ -164,21 +1080,6 @@ public class DeletionRuleExecution {
         return false;
     }
 
-    private String getRemainingChars(String line, Set<Integer> remainingColumns) {
-        if (remainingColumns.isEmpty()) {
-            return "";
-        } else {
-            StringBuilder stringBuilder = new StringBuilder();
-            SortedSet<Integer> remainingColumnsSorted = new TreeSet<>(remainingColumns);
-            for (Integer column : remainingColumnsSorted) {
-                int beginIndex = column - 1;
-                int endIndex = beginIndex + 1;
-                stringBuilder.append(line, beginIndex, endIndex);
-            }
-            return stringBuilder.toString();
-        }
-    }
-
     private String applyBehaviorAfterDeletionRulesExecutedForEachLine(
             String lineAfterRulesApplied, BehaviorAfterDeletionRulesExecutedForEachLine behavior) {
         String result = lineAfterRulesApplied;
@@ -0,0 +1,150 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Deletion rules sorted by line. Lines that have rules are kept in a primitive array, so looking up a line that has
+ * no rules neither boxes the line number nor allocates a list. Rules that cover more than one line are kept apart as
+ * {@link LineRangeRules}. Lines are meant to be visited in increasing order through a {@link Cursor}.
+ */
+public class DeletionRuleIndex implements SortedDeletionRules {
+
+    private final DeletionRule[] rules; // rules of single lines
+    private final int[] lines; // distinct lines that have rules, sorted
+    private final int[] groupStarts; // rules of lines[i] are rules[groupStarts[i]] .. rules[groupStarts[i + 1] - 1]
+    private final LineRangeRules lineRangeRules;
+    private final List<DeletionRule> rulesCountedFromEnd;
+    private final long digest;
+
+    public DeletionRuleIndex(List<DeletionRule> deletionRules) {
+        List<DeletionRule> singleLineRules = new ArrayList<>(deletionRules.size());
+        List<DeletionRule> rangeRules = new ArrayList<>();
+        List<DeletionRule> rulesCountedFromEnd = new ArrayList<>();
+        long digest = 0;
+        for (DeletionRule deletionRule : deletionRules) {
+            digest += deletionRule.hash();
+            if (deletionRule.isCountedFromEnd()) {
+                rulesCountedFromEnd.add(deletionRule);
+            } else {
+                (deletionRule.coversSingleLine() ? singleLineRules : rangeRules).add(deletionRule);
+            }
+        }
+        this.digest = digest;
+        lineRangeRules = rangeRules.isEmpty() ? null : new LineRangeRules(rangeRules);
+        this.rulesCountedFromEnd = Collections.unmodifiableList(rulesCountedFromEnd);
+        rules = singleLineRules.toArray(new DeletionRule[0]);
+        Arrays.sort(rules, Comparator.comparingInt(DeletionRule::getLine)); // stable, keeps rule order within a line
+        int distinctLineCount = 0;
+        for (int i = 0; i < rules.length; i++) {
+            if (i == 0 || rules[i].getLine().intValue() != rules[i - 1].getLine().intValue()) {
+                distinctLineCount++;
+            }
+        }
+        lines = new int[distinctLineCount];
+        groupStarts = new int[distinctLineCount + 1];
+        int groupIndex = 0;
+        for (int i = 0; i < rules.length; i++) {
+            if (i == 0 || rules[i].getLine().intValue() != rules[i - 1].getLine().intValue()) {
+                lines[groupIndex] = rules[i].getLine();
+                groupStarts[groupIndex] = i;
+                groupIndex++;
+            }
+        }
+        groupStarts[distinctLineCount] = rules.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return lines.length == 0 && lineRangeRules == null;
+    }
+
+    @Override
+    public int getFirstLine() {
+        int firstLine = lines.length == 0 ? NO_MORE_LINES : lines[0];
+        return lineRangeRules == null ? firstLine : Integer.min(firstLine, lineRangeRules.getFirstLine());
+    }
+
+    @Override
+    public int getLastLine() {
+        int lastLine = lines.length == 0 ? 0 : lines[lines.length - 1];
+        return lineRangeRules == null ? lastLine : Integer.max(lastLine, lineRangeRules.getLastLine());
+    }
+
+    @Override
+    public long getDigest() {
+        return digest;
+    }
+
+    public int getRuleCount() {
+        return rules.length + (lineRangeRules == null ? 0 : lineRangeRules.size()) + rulesCountedFromEnd.size();
+    }
+
+    @Override
+    public List<DeletionRule> getRulesCountedFromEnd() {
+        return rulesCountedFromEnd;
+    }
+
+    public Cursor cursor() {
+        return cursor(1);
+    }
+
+    @Override
+    public Cursor cursor(int fromLine) {
+        int groupIndex = Arrays.binarySearch(lines, fromLine);
+        return new Cursor(groupIndex >= 0 ? groupIndex : -groupIndex - 1,
+                lineRangeRules == null ? null : lineRangeRules.cursor(fromLine));
+    }
+
+    /**
+     * Returns true if at least one line between the given lines (both inclusive) has rules.
+     */
+    public boolean hasRulesBetween(int fromLine, int toLine) {
+        return cursor(fromLine).getNextLine() <= toLine;
+    }
+
+    private List<DeletionRule> getGroup(int groupIndex) {
+        return Collections.unmodifiableList(
+                Arrays.asList(rules).subList(groupStarts[groupIndex], groupStarts[groupIndex + 1]));
+    }
+
+    public class Cursor implements DeletionRuleCursor {
+
+        private int groupIndex;
+        private final LineRangeRules.Cursor lineRangeRuleCursor;
+
+        private Cursor(int groupIndex, LineRangeRules.Cursor lineRangeRuleCursor) {
+            this.groupIndex = groupIndex;
+            this.lineRangeRuleCursor = lineRangeRuleCursor;
+        }
+
+        @Override
+        public int getNextLine() {
+            int nextLine = groupIndex < lines.length ? lines[groupIndex] : NO_MORE_LINES;
+            return lineRangeRuleCursor == null ? nextLine : Integer.min(nextLine, lineRangeRuleCursor.getNextLine());
+        }
+
+        @Override
+        public List<DeletionRule> getByLine(int line) {
+            if (line < getNextLine()) {
+                return Collections.emptyList();
+            }
+            List<DeletionRule> singleLineRules = getSingleLineRules(line);
+            return lineRangeRuleCursor == null
+                    ? singleLineRules : lineRangeRuleCursor.addRulesOfLine(line, singleLineRules);
+        }
+
+        private List<DeletionRule> getSingleLineRules(int line) {
+            while (groupIndex < lines.length && lines[groupIndex] < line) {
+                groupIndex++;
+            }
+            if (groupIndex < lines.length && lines[groupIndex] == line) {
+                return getGroup(groupIndex++);
+            }
+            return Collections.emptyList();
+        }
+    }
+}
@@ -1,39 +1,255 @@
 package com.eoral.deletecharsfromfilebyposition;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Parses deletion rules in a single pass over the chars, without regular expressions and without creating a String
+ * per rule. A rule is lines[:startColumn-[endColumn]], where lines is one of:
+ * <ul>
+ *     <li>line, for example 7</li>
+ *     <li>firstLine-lastLine, for example 100-200</li>
+ *     <li>firstLine-, for lines from firstLine to the end of the file, for example 500-</li>
+ *     <li>*, for every line</li>
+ *     <li>-line, for a line counted from the end of the file, for example -1 for the last line</li>
+ * </ul>
+ * A range or * can be followed by ~step to take every step-th line of it, for example 1-~2 for odd lines.
+ */
 public class DeletionRuleParser {
 
+    private static final int READ_BUFFER_SIZE = 8192;
+
     private DeletionRuleParser() {
     }
 
+    /**
+     * Receives parsed rules as primitives, so that they can be stored without creating a {@link DeletionRule}.
+     */
+    public interface RuleSink {
+
+        /**
+         * Used as start column and end column of a rule that deletes the line, and as end column of a rule that has no
+         * end column.
+         */
+        int NO_COLUMN = 0;
+
+        /**
+         * Used as last line of a range that has no end.
+         */
+        int NO_LAST_LINE = 0;
+
+        /**
+         * Receives a rule. For a rule of a single line, last line is the same as line and line step is 1.
+         */
+        void accept(int line, int lastLine, int lineStep, int startColumn, int endColumn);
+    }
+
     public static List<DeletionRule> parseMultiple(String str) {
         List<DeletionRule> deletionRules = new ArrayList<>();
-        String[] parts = str.split(",");
-        for (String part : parts) {
-            deletionRules.add(parseSingle(part));
+        RuleSink sink = (line, lastLine, lineStep, startColumn, endColumn) ->
+                deletionRules.add(toDeletionRule(line, lastLine, lineStep, startColumn, endColumn));
+        int to = str.length();
+        if (to > 0) {
+            while (to > 0 && str.charAt(to - 1) == ',') {
+                to--; // trailing empty rules are ignored, like String.split does
+            }
+            if (to == 0) {
+                return deletionRules;
+            }
+        }
+        int from = 0;
+        for (int i = 0; i < to; i++) {
+            if (str.charAt(i) == ',') {
+                parseSingle(str, from, i, sink);
+                from = i + 1;
+            }
         }
+        parseSingle(str, from, to, sink);
         return deletionRules;
     }
 
+    /**
+     * Parses rules as they are read and passes each of them to the sink, without keeping them. Rules are separated by
+     * commas or line breaks. Blank lines and spaces around rules are ignored.
+     */
+    public static void parseMultiple(Reader reader, RuleSink sink) {
+        StringBuilder rule = new StringBuilder();
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == ',') {
+                        parseTrimmed(rule, true, sink);
+                        rule.setLength(0);
+                    } else if (c == '\n' || c == '\r') {
+                        parseTrimmed(rule, false, sink);
+                        rule.setLength(0);
+                    } else {
+                        rule.append(c);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        parseTrimmed(rule, false, sink);
+    }
+
+    private static void parseTrimmed(CharSequence chars, boolean required, RuleSink sink) {
+        int from = 0;
+        int to = chars.length();
+        while (from < to && chars.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && chars.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (required || from < to) {
+            parseSingle(chars, from, to, sink);
+        }
+    }
+
     public static DeletionRule parseSingle(String str) {
-        if (str.matches("^[1-9][0-9]*$")) { // line
-            int line = Integer.parseInt(str);
-            return new DeletionRule(line, null, null);
-        } else if (str.matches("^[1-9][0-9]*:[1-9][0-9]*-$")) { // line:startColumn-
-            String[] parts = str.split(":|-");
-            int line = Integer.parseInt(parts[0]);
-            int startColumn = Integer.parseInt(parts[1]);
-            return new DeletionRule(line, startColumn, null);
-        } else if (str.matches("^[1-9][0-9]*:[1-9][0-9]*-[1-9][0-9]*$")) { // line:startColumn-endColumn
-            String[] parts = str.split(":|-");
-            int line = Integer.parseInt(parts[0]);
-            int startColumn = Integer.parseInt(parts[1]);
-            int endColumn = Integer.parseInt(parts[2]);
-            return new DeletionRule(line, startColumn, endColumn);
+        DeletionRule[] deletionRule = new DeletionRule[1];
+        parseSingle(str, 0, str.length(), (line, lastLine, lineStep, startColumn, endColumn) ->
+                deletionRule[0] = toDeletionRule(line, lastLine, lineStep, startColumn, endColumn));
+        return deletionRule[0];
+    }
+
+    /**
+     * Parses the chars between the given indexes (from inclusive, to exclusive) as a single rule.
+     */
+    public static void parseSingle(CharSequence chars, int from, int to, RuleSink sink) {
+        // The whole rule is validated before any number is converted, so errors are reported in the same order as the
+        // regular expressions of earlier versions did.
+        int position;
+        int lineEnd = -1;
+        boolean range;
+        int lastLineEnd = -1;
+        int lineStepEnd = -1;
+        boolean countedFromEnd = from < to && chars.charAt(from) == '-';
+        if (from < to && chars.charAt(from) == '*') {
+            range = true;
+            position = from + 1;
+        } else if (countedFromEnd) {
+            lineEnd = skipNumber(chars, from + 1, to);
+            if (lineEnd < 0) {
+                throw invalidRule(chars, from, to);
+            }
+            position = lineEnd;
+            range = false;
         } else {
-            throw new IllegalArgumentException("Invalid deletion rule: " + str);
+            lineEnd = skipNumber(chars, from, to);
+            if (lineEnd < 0) {
+                throw invalidRule(chars, from, to);
+            }
+            position = lineEnd;
+            range = position < to && chars.charAt(position) == '-';
+            if (range) {
+                lastLineEnd = skipNumber(chars, position + 1, to);
+                position = lastLineEnd < 0 ? position + 1 : lastLineEnd;
+            }
+        }
+        if (range && position < to && chars.charAt(position) == '~') {
+            lineStepEnd = skipNumber(chars, position + 1, to);
+            if (lineStepEnd < 0) {
+                throw invalidRule(chars, from, to);
+            }
+            position = lineStepEnd;
+        }
+        int startColumnEnd = -1;
+        int endColumnEnd = -1;
+        if (position < to) {
+            if (chars.charAt(position) != ':') {
+                throw invalidRule(chars, from, to);
+            }
+            startColumnEnd = skipNumber(chars, position + 1, to);
+            if (startColumnEnd < 0 || startColumnEnd == to || chars.charAt(startColumnEnd) != '-') {
+                throw invalidRule(chars, from, to);
+            }
+            if (startColumnEnd + 1 < to) {
+                endColumnEnd = skipNumber(chars, startColumnEnd + 1, to);
+                if (endColumnEnd != to) {
+                    throw invalidRule(chars, from, to);
+                }
+            }
         }
+        int line = lineEnd < 0 ? 1 : parseInt(chars, countedFromEnd ? from + 1 : from, lineEnd);
+        if (countedFromEnd) {
+            line = -line;
+        }
+        int lastLine = range ? RuleSink.NO_LAST_LINE : line;
+        if (lastLineEnd >= 0) {
+            lastLine = parseInt(chars, lineEnd + 1, lastLineEnd);
+            if (lastLine < line) {
+                throw new IllegalArgumentException("Last line must be greater than or equal to line.");
+            }
+        }
+        int lineStep = lineStepEnd < 0 ? 1 : parseInt(chars, indexOf(chars, '~', from, to) + 1, lineStepEnd);
+        int startColumn = RuleSink.NO_COLUMN;
+        int endColumn = RuleSink.NO_COLUMN;
+        if (startColumnEnd >= 0) {
+            startColumn = parseInt(chars, indexOf(chars, ':', from, to) + 1, startColumnEnd);
+        }
+        if (endColumnEnd >= 0) {
+            endColumn = parseInt(chars, startColumnEnd + 1, endColumnEnd);
+            if (endColumn < startColumn) {
+                throw new IllegalArgumentException("End column must be greater than or equal to start column.");
+            }
+        }
+        sink.accept(line, lastLine, lineStep, startColumn, endColumn);
+    }
+
+    private static int indexOf(CharSequence chars, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (chars.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index right after a number that matches [1-9][0-9]* and starts at the given index, or -1 if there is
+     * no such number.
+     */
+    private static int skipNumber(CharSequence chars, int from, int to) {
+        if (from >= to || chars.charAt(from) < '1' || chars.charAt(from) > '9') {
+            return -1;
+        }
+        int i = from + 1;
+        while (i < to && chars.charAt(i) >= '0' && chars.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseInt(CharSequence chars, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (chars.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                // same exception as Integer.parseInt
+                throw new NumberFormatException("For input string: \"" + chars.subSequence(from, to) + "\"");
+            }
+        }
+        return (int) value;
+    }
+
+    private static IllegalArgumentException invalidRule(CharSequence chars, int from, int to) {
+        return new IllegalArgumentException("Invalid deletion rule: " + chars.subSequence(from, to));
+    }
+
+    public static DeletionRule toDeletionRule(int line, int lastLine, int lineStep, int startColumn, int endColumn) {
+        return new DeletionRule(line,
+                lastLine == RuleSink.NO_LAST_LINE ? null : lastLine,
+                lineStep,
+                startColumn == RuleSink.NO_COLUMN ? null : startColumn,
+                endColumn == RuleSink.NO_COLUMN ? null : endColumn);
     }
 }
@@ -0,0 +1,336 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sorts deletion rules by line within a memory budget. Rules that cover more than one line are few and small, so they
+ * are always kept in memory as {@link LineRangeRules}; the budget applies to the rules of single lines. Those are
+ * collected in primitive arrays; when the budget is reached, they are sorted and written to a temp file as a sorted
+ * run. If nothing was written to disk, {@link #sort()} returns an ordinary {@link DeletionRuleIndex}. Otherwise it
+ * returns rules whose cursors merge the runs back in line order while the file is processed. Temp files are deleted by
+ * {@link #close()}, so the sorter must be kept open until the rules are no longer used.
+ */
+public class DeletionRuleSorter implements Closeable {
+
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    /**
+     * Rough heap cost of one rule: the primitive buffers and the sort key while collecting, and the
+     * {@link DeletionRule} object if the rules end up in a {@link DeletionRuleIndex}.
+     */
+    static final int ESTIMATED_BYTES_PER_RULE = 64;
+
+    private static final int NO_COLUMN = DeletionRuleParser.RuleSink.NO_COLUMN;
+    private static final int RUN_READ_BUFFER_SIZE = 64 * 1024;
+
+    private final int maxRulesInMemory;
+    private int[] lines = new int[16];
+    private int[] startColumns = new int[16];
+    private int[] endColumns = new int[16];
+    private int size;
+    private final List<Path> runFilePaths = new ArrayList<>();
+    private final List<Integer> runSizes = new ArrayList<>();
+    private final List<Closeable> openRuns = new ArrayList<>();
+    private final List<DeletionRule> rangeRules = new ArrayList<>();
+    private final List<DeletionRule> rulesCountedFromEnd = new ArrayList<>(); // few, so never spilled
+    private int firstLine = SortedDeletionRules.NO_MORE_LINES;
+    private int lastLine = 0;
+    private long digest;
+    private boolean sorted;
+
+    public DeletionRuleSorter() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    public DeletionRuleSorter(long memoryBudget) {
+        if (memoryBudget < 1) {
+            throw new IllegalArgumentException("Memory budget must be greater than or equal to 1.");
+        }
+        long maxRules = Long.min(Integer.MAX_VALUE - 8, memoryBudget / ESTIMATED_BYTES_PER_RULE);
+        this.maxRulesInMemory = (int) Long.max(1, maxRules);
+    }
+
+    public void add(DeletionRule deletionRule) {
+        if (!deletionRule.coversSingleLine()) {
+            ensureNotSorted();
+            digest += deletionRule.hash();
+            rangeRules.add(deletionRule);
+            return;
+        }
+        add(deletionRule.getLine(), deletionRule.getLine(), 1,
+                deletionRule.getStartColumn() == null ? NO_COLUMN : deletionRule.getStartColumn(),
+                deletionRule.getEndColumn() == null ? NO_COLUMN : deletionRule.getEndColumn());
+    }
+
+    /**
+     * Adds a rule given as in {@link DeletionRuleParser.RuleSink}, so it can be used as a sink of the parser.
+     */
+    public void add(int line, int lastLine, int lineStep, int startColumn, int endColumn) {
+        ensureNotSorted();
+        digest += DeletionRule.hash(line, lastLine, lineStep, startColumn, endColumn);
+        if (lastLine != line) {
+            rangeRules.add(DeletionRuleParser.toDeletionRule(line, lastLine, lineStep, startColumn, endColumn));
+            return;
+        }
+        if (line < 0) {
+            rulesCountedFromEnd.add(toDeletionRule(line, startColumn, endColumn));
+            return;
+        }
+        if (size == maxRulesInMemory) {
+            spill();
+        }
+        if (size == lines.length) {
+            int newLength = (int) Long.min(maxRulesInMemory, 2L * lines.length);
+            lines = Arrays.copyOf(lines, newLength);
+            startColumns = Arrays.copyOf(startColumns, newLength);
+            endColumns = Arrays.copyOf(endColumns, newLength);
+        }
+        lines[size] = line;
+        startColumns[size] = startColumn;
+        endColumns[size] = endColumn;
+        size++;
+        firstLine = Integer.min(firstLine, line);
+        this.lastLine = Integer.max(this.lastLine, line);
+    }
+
+    private void ensureNotSorted() {
+        if (sorted) {
+            throw new IllegalStateException("Rules cannot be added after they are sorted.");
+        }
+    }
+
+    /**
+     * Returns true if some rules have been written to temp files.
+     */
+    public boolean hasSpilled() {
+        return !runFilePaths.isEmpty();
+    }
+
+    /**
+     * Returns the added rules sorted by line. No more rules can be added after this.
+     */
+    public SortedDeletionRules sort() {
+        if (sorted) {
+            throw new IllegalStateException("Rules are already sorted.");
+        }
+        sorted = true;
+        if (!hasSpilled()) {
+            List<DeletionRule> deletionRules = new ArrayList<>(size + rangeRules.size());
+            for (int i = 0; i < size; i++) {
+                deletionRules.add(toDeletionRule(lines[i], startColumns[i], endColumns[i]));
+            }
+            deletionRules.addAll(rangeRules);
+            deletionRules.addAll(rulesCountedFromEnd);
+            releaseBuffers();
+            return new DeletionRuleIndex(deletionRules);
+        }
+        if (size > 0) {
+            spill();
+        }
+        releaseBuffers();
+        return new MergedRuns(new LineRangeRules(rangeRules));
+    }
+
+    private void releaseBuffers() {
+        lines = new int[0];
+        startColumns = new int[0];
+        endColumns = new int[0];
+        size = 0;
+    }
+
+    private void spill() {
+        long[] sortKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortKeys[i] = ((long) lines[i] << 32) | i; // lines are positive, so keys sort by line, then by order added
+        }
+        Arrays.sort(sortKeys);
+        Path runFilePath = Utils.createTempFile();
+        runFilePaths.add(runFilePath);
+        try (DataOutputStream out =
+                     new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFilePath)))) {
+            for (long sortKey : sortKeys) {
+                int i = (int) sortKey;
+                out.writeInt(lines[i]);
+                out.writeInt(startColumns[i]);
+                out.writeInt(endColumns[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        runSizes.add(size);
+        size = 0;
+    }
+
+    private static DeletionRule toDeletionRule(int line, int startColumn, int endColumn) {
+        return DeletionRuleParser.toDeletionRule(line, line, 1, startColumn, endColumn);
+    }
+
+    /**
+     * Closes the runs that are still being read and deletes the temp files.
+     */
+    @Override
+    public void close() {
+        synchronized (openRuns) {
+            for (Closeable run : new ArrayList<>(openRuns)) {
+                try {
+                    run.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            openRuns.clear();
+        }
+        for (Path runFilePath : runFilePaths) {
+            try {
+                Files.deleteIfExists(runFilePath);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        runFilePaths.clear();
+    }
+
+    private class MergedRuns implements SortedDeletionRules {
+
+        private final LineRangeRules lineRangeRules;
+
+        private MergedRuns(LineRangeRules lineRangeRules) {
+            this.lineRangeRules = lineRangeRules;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return false;
+        }
+
+        @Override
+        public int getFirstLine() {
+            return Integer.min(firstLine, lineRangeRules.getFirstLine());
+        }
+
+        @Override
+        public int getLastLine() {
+            return Integer.max(lastLine, lineRangeRules.getLastLine());
+        }
+
+        @Override
+        public DeletionRuleCursor cursor(int fromLine) {
+            MergeCursor cursor = new MergeCursor(lineRangeRules.cursor(fromLine));
+            cursor.skipLinesBefore(fromLine);
+            return cursor;
+        }
+
+        @Override
+        public List<DeletionRule> getRulesCountedFromEnd() {
+            return Collections.unmodifiableList(rulesCountedFromEnd);
+        }
+
+        @Override
+        public long getDigest() {
+            return digest;
+        }
+    }
+
+    /**
+     * Reads the runs at the same time, always taking the run whose current rule has the smallest line.
+     */
+    private class MergeCursor implements DeletionRuleCursor {
+
+        private final PriorityQueue<Run> runs = new PriorityQueue<>(Comparator.comparingInt(run -> run.line));
+        private final LineRangeRules.Cursor lineRangeRuleCursor;
+
+        private MergeCursor(LineRangeRules.Cursor lineRangeRuleCursor) {
+            this.lineRangeRuleCursor = lineRangeRuleCursor;
+            for (int i = 0; i < runFilePaths.size(); i++) {
+                Run run = new Run(runFilePaths.get(i), runSizes.get(i));
+                if (run.advance()) {
+                    runs.add(run);
+                }
+            }
+        }
+
+        @Override
+        public int getNextLine() {
+            int nextLine = runs.isEmpty() ? SortedDeletionRules.NO_MORE_LINES : runs.peek().line;
+            return Integer.min(nextLine, lineRangeRuleCursor.getNextLine());
+        }
+
+        @Override
+        public List<DeletionRule> getByLine(int line) {
+            if (line < getNextLine()) {
+                return Collections.emptyList();
+            }
+            skipLinesBefore(line);
+            List<DeletionRule> deletionRules = new ArrayList<>();
+            while (!runs.isEmpty() && runs.peek().line == line) {
+                Run run = runs.poll();
+                deletionRules.add(toDeletionRule(run.line, run.startColumn, run.endColumn));
+                if (run.advance()) {
+                    runs.add(run);
+                }
+            }
+            return lineRangeRuleCursor.addRulesOfLine(line, deletionRules);
+        }
+
+        private void skipLinesBefore(int line) {
+            while (!runs.isEmpty() && runs.peek().line < line) {
+                Run run = runs.poll();
+                if (run.advance()) {
+                    runs.add(run);
+                }
+            }
+        }
+    }
+
+    private class Run implements Closeable {
+
+        private final DataInputStream in;
+        private int remaining;
+        private int line;
+        private int startColumn;
+        private int endColumn;
+
+        private Run(Path runFilePath, int size) {
+            try {
+                in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(runFilePath), RUN_READ_BUFFER_SIZE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            remaining = size;
+            synchronized (openRuns) {
+                openRuns.add(this);
+            }
+        }
+
+        /**
+         * Reads the next rule of the run. Returns false and closes the run if there are no more rules.
+         */
+        private boolean advance() {
+            try {
+                if (remaining == 0) {
+                    close();
+                    return false;
+                }
+                line = in.readInt();
+                startColumn = in.readInt();
+                endColumn = in.readInt();
+                remaining--;
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+            synchronized (openRuns) {
+                openRuns.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes every file under a directory whose path matches one of the include globs (every file if there is none)
+ * and none of the exclude globs. A glob without a slash is matched against the file name, like {@code *.dat};
+ * otherwise it is matched against the path relative to the directory, like {@code archive/**}. A directory that
+ * matches an exclude glob is not entered at all.
+ * <p>
+ * The tree is walked lazily: at most a bounded number of files are found but not yet processed, so a tree of any size
+ * takes the same memory. Files are processed on a fixed number of worker threads, which is also the number of files
+ * that are read and written at the same time. A file that fails does not stop the others. For every file, one JSON line is
+ * written with its path, its status ("ok" or "error"), its size after processing, whether it has changed, the
+ * milliseconds it took, and the error message if it failed, in the order files finish. A last line sums them up, like:
+ * <pre>
+ * {"status":"done","files":3,"failed":1,"millis":42}
+ * </pre>
+ * Temp files, lock files and line offset indexes that are written next to the files while they are processed are never
+ * picked up.
+ */
+public class DirectoryBatch {
+
+    public static final int DEFAULT_PENDING_FILES_PER_WORKER = 4;
+
+    private final int workerCount;
+    private final List<String> includeGlobs;
+    private final List<String> excludeGlobs;
+
+    /**
+     * Processes a single file, and returns what has been done to store its result.
+     */
+    public interface FileTask {
+        OutputCommitReport process(Path filePath);
+    }
+
+    /**
+     * Numbers of a finished batch.
+     */
+    public static class Summary {
+
+        private final int fileCount;
+        private final int failedFileCount;
+        private final long elapsedMillis;
+
+        public Summary(int fileCount, int failedFileCount, long elapsedMillis) {
+            this.fileCount = fileCount;
+            this.failedFileCount = failedFileCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        public int getFailedFileCount() {
+            return failedFileCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    public DirectoryBatch(int workerCount, List<String> includeGlobs, List<String> excludeGlobs) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be greater than or equal to 1.");
+        }
+        this.workerCount = workerCount;
+        this.includeGlobs = new ArrayList<>(includeGlobs);
+        this.excludeGlobs = new ArrayList<>(excludeGlobs);
+    }
+
+    /**
+     * Returns after every file has been processed and its result has been written. The output stream is flushed, but
+     * not closed.
+     */
+    public Summary run(Path directoryPath, FileTask fileTask, OutputStream out) {
+        if (!Files.isDirectory(directoryPath)) {
+            throw new IllegalArgumentException(directoryPath + " is not a directory.");
+        }
+        long startedAtNanos = System.nanoTime();
+        FileSystem fileSystem = directoryPath.getFileSystem();
+        List<PathMatcher> includeMatchers = createMatchers(fileSystem, includeGlobs);
+        List<PathMatcher> excludeMatchers = createMatchers(fileSystem, excludeGlobs);
+        int maxPendingFiles = workerCount * DEFAULT_PENDING_FILES_PER_WORKER;
+        Semaphore pendingFiles = new Semaphore(maxPendingFiles);
+        AtomicInteger fileCount = new AtomicInteger();
+        AtomicInteger failedFileCount = new AtomicInteger();
+        JsonLineWriter writer = new JsonLineWriter(out);
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        try {
+            Files.walkFileTree(directoryPath, new SimpleFileVisitor<>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(directoryPath) && matchesAny(excludeMatchers, directoryPath.relativize(dir))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    Path relativePath = directoryPath.relativize(file);
+                    if (attrs.isRegularFile() && !isWrittenWhileProcessing(file)
+                            && (includeMatchers.isEmpty() || matchesAny(includeMatchers, relativePath))
+                            && !matchesAny(excludeMatchers, relativePath)) {
+                        fileCount.incrementAndGet();
+                        pendingFiles.acquireUninterruptibly();
+                        executor.execute(() -> {
+                            try {
+                                Map<String, Object> result = processFile(file, fileTask);
+                                if (!"ok".equals(result.get("status"))) {
+                                    failedFileCount.incrementAndGet();
+                                }
+                                writer.write(result);
+                            } finally {
+                                pendingFiles.release();
+                            }
+                        });
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    fileCount.incrementAndGet();
+                    failedFileCount.incrementAndGet();
+                    writer.write(createErrorResult(file, exc));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            pendingFiles.acquireUninterruptibly(maxPendingFiles); // waits for every file
+            pendingFiles.release(maxPendingFiles);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdown();
+        }
+        Summary summary = new Summary(fileCount.get(), failedFileCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "done");
+        result.put("files", summary.getFileCount());
+        result.put("failed", summary.getFailedFileCount());
+        result.put("millis", summary.getElapsedMillis());
+        writer.write(result);
+        return summary;
+    }
+
+    private Map<String, Object> processFile(Path filePath, FileTask fileTask) {
+        long startedAtNanos = System.nanoTime();
+        Map<String, Object> result;
+        try {
+            OutputCommitReport outputCommitReport = fileTask.process(filePath);
+            result = new LinkedHashMap<>();
+            result.put("file", filePath.toString());
+            result.put("status", "ok");
+            result.put("resultSize", outputCommitReport.getResultSize());
+            result.put("changed", outputCommitReport.isChanged());
+        } catch (RuntimeException e) {
+            result = createErrorResult(filePath, e);
+        }
+        result.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos));
+        return result;
+    }
+
+    private static List<PathMatcher> createMatchers(FileSystem fileSystem, List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String glob : globs) {
+            PathMatcher pathMatcher = fileSystem.getPathMatcher("glob:" + glob);
+            if (glob.contains("/")) {
+                matchers.add(pathMatcher);
+            } else {
+                matchers.add(path -> path.getFileName() != null && pathMatcher.matches(path.getFileName()));
+            }
+        }
+        return matchers;
+    }
+
+    private static boolean matchesAny(List<PathMatcher> matchers, Path relativePath) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true for sibling temp files (".name.random.tmp", and the output and journal of resumable runs), lock
+     * files of {@link DeletionBatcher} and line offset indexes.
+     */
+    private static boolean isWrittenWhileProcessing(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        return (fileName.startsWith(".") && (fileName.endsWith(Constants.TEMP_FILE_SUFFIX)
+                || fileName.endsWith(DeletionBatcher.LOCK_FILE_SUFFIX)))
+                || fileName.endsWith(LineOffsetIndex.SIDECAR_FILE_SUFFIX);
+    }
+
+    private static Map<String, Object> createErrorResult(Path filePath, Throwable throwable) {
+        return JsonLineWriter.createErrorResult("file", filePath.toString(), throwable);
+    }
+}
@@ -0,0 +1,141 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+public class ExecutionOptions {
+
+    private OutputCommitStrategy outputCommitStrategy = OutputCommitStrategy.siblingTempFile();
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+    private int parallelism = 1;
+    private boolean pipelined;
+    private long checkpointInterval;
+    private boolean lineOffsetIndexEnabled;
+    private long deletionRulesMemoryBudget = DeletionRuleSorter.DEFAULT_MEMORY_BUDGET;
+    private int recordLength;
+    private int recordTerminatorLength;
+
+    public boolean isInPlace() {
+        return outputCommitStrategy.isInPlace();
+    }
+
+    /**
+     * When true, the file is rewritten in place instead of through a temp file. Bytes before the first changed line
+     * are not written at all. The file is left half-rewritten if the process dies in the middle, so this is meant for
+     * volumes that cannot hold a second copy of the file. Same as setting {@link OutputCommitStrategy#inPlace()}, or
+     * {@link OutputCommitStrategy#siblingTempFile()} when false.
+     */
+    public void setInPlace(boolean inPlace) {
+        this.outputCommitStrategy = inPlace ? OutputCommitStrategy.inPlace() : OutputCommitStrategy.siblingTempFile();
+    }
+
+    public OutputCommitStrategy getOutputCommitStrategy() {
+        return outputCommitStrategy;
+    }
+
+    /**
+     * Where the result is written and how it replaces the file. Default is {@link OutputCommitStrategy#siblingTempFile()}.
+     */
+    public void setOutputCommitStrategy(OutputCommitStrategy outputCommitStrategy) {
+        this.outputCommitStrategy = outputCommitStrategy;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * What is forced to the storage device before the result is committed. Default is {@link FsyncPolicy#NONE}.
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of threads that process parts of the file at the same time. Only used for ASCII compatible charsets, and
+     * not together with in-place mode.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * When true, the file is read, processed and written on three threads at the same time, see
+     * {@link PipelinedLineEngine}. Only used for ASCII compatible charsets, and not together with in-place mode or
+     * parallel processing. The line offset index is not used.
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * When greater than 0, the file is processed resumably: the result is written next to the file and a checkpoint is
+     * recorded in a {@link CheckpointJournal} every this many bytes of input, and a run that has been interrupted
+     * continues from its last checkpoint if the file has not changed since. Only for uncompressed files in ASCII
+     * compatible charsets, and only when the result replaces the file through a temp file; not in fixed-width record
+     * mode. Parallel processing, pipelining and the line offset index are not used. Default is 0.
+     */
+    public void setCheckpointInterval(long checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public boolean isLineOffsetIndexEnabled() {
+        return lineOffsetIndexEnabled;
+    }
+
+    /**
+     * When true, a {@link LineOffsetIndex} next to the file is used to skip the lines before the first line that has
+     * rules, and it is rewritten for the new content of the file at the end. Not used with parallel processing or for
+     * charsets that are not ASCII compatible.
+     */
+    public void setLineOffsetIndexEnabled(boolean lineOffsetIndexEnabled) {
+        this.lineOffsetIndexEnabled = lineOffsetIndexEnabled;
+    }
+
+    public long getDeletionRulesMemoryBudget() {
+        return deletionRulesMemoryBudget;
+    }
+
+    /**
+     * Approximate number of bytes of heap that rules read from a stream may use. Beyond it, rules are sorted in runs
+     * that are written to temp files and merged while the file is processed. Parallel processing is not used for such
+     * rules.
+     */
+    public void setDeletionRulesMemoryBudget(long deletionRulesMemoryBudget) {
+        this.deletionRulesMemoryBudget = deletionRulesMemoryBudget;
+    }
+
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * When greater than 0, the file is processed as fixed-width records of this many bytes (terminator included)
+     * instead of lines, see {@link FixedWidthRecordEngine}. Only for single-byte charsets, and not together with
+     * in-place mode or compressed files. Parallel processing and the line offset index are not used.
+     */
+    public void setRecordLength(int recordLength) {
+        this.recordLength = recordLength;
+    }
+
+    public int getRecordTerminatorLength() {
+        return recordTerminatorLength;
+    }
+
+    /**
+     * Number of bytes at the end of every fixed-width record (like a line break) that are not part of its columns.
+     * Default is 0.
+     */
+    public void setRecordTerminatorLength(int recordTerminatorLength) {
+        this.recordTerminatorLength = recordTerminatorLength;
+    }
+}
@@ -0,0 +1,219 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Executes deletion rules on a file of fixed-width records. The byte offset of a line is computed as
+ * {@code (line - 1) * recordLength}, so the file is never scanned for line breaks and nothing is decoded: a column is a
+ * byte, which is why only single-byte charsets are supported. Every record may end with a terminator of a fixed
+ * length (like a line break), which is not part of its columns and is deleted only together with the record.
+ * <p>
+ * Records without rules are copied in bulk. Records with rules are read in windows of many records, and the bytes they
+ * keep are written as slices of the window with a single gathering write.
+ */
+public class FixedWidthRecordEngine {
+
+    private static final int WINDOW_SIZE = 1024 * 1024;
+    private static final int MAX_SLICES = 1024;
+
+    private final BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine;
+    private final int recordLength;
+    private final int terminatorLength;
+    private final boolean[] blankBytes = new boolean[256];
+
+    private ByteBuffer window;
+    private long windowOffset;
+    private final ByteBuffer[] slices = new ByteBuffer[MAX_SLICES];
+    private int sliceCount;
+    private boolean changed;
+
+    public FixedWidthRecordEngine(
+            Charset charset,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            int recordLength,
+            int terminatorLength) {
+        if (!Utils.isSingleByte(charset)) {
+            throw new IllegalArgumentException(
+                    "Fixed-width record mode is not supported for charset " + charset.name() + ".");
+        }
+        if (terminatorLength < 0 || recordLength <= terminatorLength) {
+            throw new IllegalArgumentException("Record length must be greater than the terminator length.");
+        }
+        this.behaviorAfterDeletionRulesExecutedForEachLine = behaviorAfterDeletionRulesExecutedForEachLine;
+        this.recordLength = recordLength;
+        this.terminatorLength = terminatorLength;
+        for (int i = 0; i < blankBytes.length; i++) {
+            // same as the chars String.trim removes, which is how a blank line is detected
+            blankBytes[i] = new String(new byte[] {(byte) i}, charset).charAt(0) <= ' ';
+        }
+    }
+
+    /**
+     * Returns true if the last call to {@link #process} has deleted any record or any byte of a record.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Writes the result to the output channel from its current position and returns the number of bytes written. The
+     * size of the input must be a multiple of the record length; only the terminator of the last record may be missing.
+     */
+    public long process(FileChannel input, FileChannel output, SortedDeletionRules sortedDeletionRules)
+            throws IOException {
+        long size = input.size();
+        long recordCount = getRecordCount(size);
+        window = ByteBuffer.allocate(Integer.max(recordLength, WINDOW_SIZE / recordLength * recordLength));
+        window.limit(0);
+        windowOffset = 0;
+        sliceCount = 0;
+        changed = false;
+        long startPosition = output.position();
+        long copiedOffset = 0; // offset of the first byte that is neither written nor dropped yet
+        DeletionRuleCursor deletionRuleCursor = sortedDeletionRules.cursor(1);
+        int line;
+        while ((line = deletionRuleCursor.getNextLine()) != SortedDeletionRules.NO_MORE_LINES && line <= recordCount) {
+            long recordOffset = (line - 1L) * recordLength;
+            long recordEndOffset = Long.min(recordOffset + recordLength, size);
+            if (!isInWindow(recordOffset, recordEndOffset)) {
+                copy(input, copiedOffset, recordOffset, output);
+                fill(input, recordOffset, size);
+            } else if (copiedOffset < recordOffset) {
+                addSlice(copiedOffset, recordOffset, output); // a run of unchanged records within the window
+            }
+            processRecord(recordOffset, recordEndOffset, deletionRuleCursor.getByLine(line), output);
+            copiedOffset = recordEndOffset;
+        }
+        copy(input, copiedOffset, size, output);
+        return output.position() - startPosition;
+    }
+
+    private long getRecordCount(long size) {
+        long recordCount = size / recordLength;
+        long remainder = size % recordLength;
+        if (remainder == 0) {
+            return recordCount;
+        } else if (terminatorLength > 0 && remainder == recordLength - terminatorLength) {
+            return recordCount + 1; // the last record has no terminator
+        }
+        throw new IllegalArgumentException("Size of the file (" + size + " bytes) is not a multiple of the record "
+                + "length (" + recordLength + " bytes).");
+    }
+
+    private boolean isInWindow(long startOffset, long endOffset) {
+        return startOffset >= windowOffset && endOffset <= windowOffset + window.limit();
+    }
+
+    /**
+     * Reads as many whole records as fit into the window, starting from the given offset.
+     */
+    private void fill(FileChannel input, long offset, long size) throws IOException {
+        window.clear();
+        window.limit((int) Long.min(window.capacity(), size - offset));
+        while (window.hasRemaining()) {
+            if (input.read(window, offset + window.position()) < 0) {
+                throw new IOException("Unexpected end of file while reading records.");
+            }
+        }
+        windowOffset = offset;
+    }
+
+    /**
+     * Copies the bytes between the given offsets of the input after the slices that are waiting to be written.
+     */
+    private void copy(FileChannel input, long startOffset, long endOffset, FileChannel output) throws IOException {
+        flushSlices(output);
+        if (startOffset < endOffset) {
+            Utils.transfer(input, startOffset, endOffset - startOffset, output, output.position());
+        }
+    }
+
+    private void processRecord(
+            long recordOffset, long recordEndOffset, List<DeletionRule> deletionRulesOfRecord, FileChannel output)
+            throws IOException {
+        long dataEndOffset = Long.min(recordEndOffset, recordOffset + recordLength - terminatorLength);
+        int dataLength = (int) (dataEndOffset - recordOffset);
+        boolean deletesRecord = false;
+        boolean emptiesRecord = false;
+        for (DeletionRule deletionRule : deletionRulesOfRecord) {
+            deletesRecord |= deletionRule.deletesLine();
+            emptiesRecord |= deletionRule.emptiesLine();
+        }
+        if (deletesRecord) {
+            changed = true;
+            return; // record is deleted together with its terminator
+        }
+        DeletionIntervals deletionIntervals =
+                emptiesRecord ? DeletionIntervals.empty() : DeletionIntervals.of(deletionRulesOfRecord);
+        if (isDeleteLineIfBlank()
+                && (emptiesRecord || isBlankAfterDeletion(recordOffset, dataLength, deletionIntervals))) {
+            changed = true;
+            return;
+        }
+        if ((emptiesRecord && dataLength > 0)
+                || (deletionIntervals.size() > 0 && deletionIntervals.getStart(0) <= dataLength)) {
+            changed = true;
+        }
+        if (!emptiesRecord) {
+            int keepFrom = 0; // 0-based column of the first byte that is not deleted yet
+            for (int i = 0; i < deletionIntervals.size() && deletionIntervals.getStart(i) <= dataLength; i++) {
+                addSlice(recordOffset + keepFrom, recordOffset + deletionIntervals.getStart(i) - 1, output);
+                keepFrom = Integer.min(dataLength, deletionIntervals.getEnd(i));
+            }
+            addSlice(recordOffset + keepFrom, dataEndOffset, output);
+        }
+        addSlice(dataEndOffset, recordEndOffset, output);
+    }
+
+    private boolean isDeleteLineIfBlank() {
+        return behaviorAfterDeletionRulesExecutedForEachLine != null
+                && behaviorAfterDeletionRulesExecutedForEachLine.isDeleteLineIfBlank();
+    }
+
+    private boolean isBlankAfterDeletion(long recordOffset, int dataLength, DeletionIntervals deletionIntervals) {
+        int windowIndex = (int) (recordOffset - windowOffset);
+        int interval = 0;
+        for (int column = 1; column <= dataLength; column++) {
+            while (interval < deletionIntervals.size() && deletionIntervals.getEnd(interval) < column) {
+                interval++;
+            }
+            boolean deleted = interval < deletionIntervals.size() && deletionIntervals.getStart(interval) <= column;
+            if (!deleted && !blankBytes[window.get(windowIndex + column - 1) & 0xff]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addSlice(long startOffset, long endOffset, FileChannel output) throws IOException {
+        if (startOffset == endOffset) {
+            return;
+        }
+        if (sliceCount > 0 && slices[sliceCount - 1].limit() == startOffset - windowOffset) {
+            slices[sliceCount - 1].limit((int) (endOffset - windowOffset)); // adjacent bytes are written as one slice
+            return;
+        }
+        if (sliceCount == MAX_SLICES) {
+            flushSlices(output);
+        }
+        ByteBuffer slice = window.duplicate();
+        slice.limit((int) (endOffset - windowOffset));
+        slice.position((int) (startOffset - windowOffset));
+        slices[sliceCount++] = slice;
+    }
+
+    private void flushSlices(FileChannel output) throws IOException {
+        int first = 0;
+        while (first < sliceCount) {
+            output.write(slices, first, sliceCount - first);
+            while (first < sliceCount && !slices[first].hasRemaining()) {
+                first++;
+            }
+        }
+        sliceCount = 0;
+    }
+}
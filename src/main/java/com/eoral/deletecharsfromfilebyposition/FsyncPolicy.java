@@ -0,0 +1,22 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+/**
+ * What is forced to the storage device before a result is considered committed.
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Nothing is forced; the operating system writes the result whenever it wants.
+     */
+    NONE,
+
+    /**
+     * The content of the result file is forced.
+     */
+    FILE,
+
+    /**
+     * The content of the result file and its directory entry are forced, so that a rename survives a crash too.
+     */
+    FILE_AND_DIRECTORY
+}
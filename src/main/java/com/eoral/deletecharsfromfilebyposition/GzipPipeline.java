@@ -0,0 +1,116 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rewrites a gzip file without writing its decompressed content to disk. The file is decompressed on one thread and
+ * the result is compressed on another one, while the calling thread transforms the plain bytes in between. Threads are
+ * connected with {@link ChunkPipe}s.
+ */
+public class GzipPipeline {
+
+    private static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+    private static final int GZIP_MAGIC_SECOND_BYTE = 0x8b;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private GzipPipeline() {
+    }
+
+    /**
+     * Transforms plain bytes read from the input stream into the output stream, and returns true if the result may
+     * differ from the input.
+     */
+    public interface StreamTransformer {
+        boolean transform(InputStream input, OutputStream output) throws IOException;
+    }
+
+    /**
+     * Returns true if the file starts with the magic bytes of gzip.
+     */
+    public static boolean isGzipFile(Path path) {
+        try (InputStream input = Files.newInputStream(path)) {
+            return input.read() == GZIP_MAGIC_FIRST_BYTE && input.read() == GZIP_MAGIC_SECOND_BYTE;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decompresses the input file, passes its content through the transformer, and writes the result compressed to
+     * the output file. Files that consist of several gzip members are read as a whole; the output has a single member.
+     * Returns what the transformer returned. The compressed bytes are never compared, since they may differ even if
+     * the plain bytes are the same.
+     */
+    public static boolean transform(Path inputFilePath, Path outputFilePath, StreamTransformer transformer) {
+        ChunkPipe decompressed = new ChunkPipe();
+        ChunkPipe compressed = new ChunkPipe();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> decompression = executor.submit(() -> {
+                try (InputStream input = new GZIPInputStream(Files.newInputStream(inputFilePath), GZIP_BUFFER_SIZE);
+                     OutputStream output = decompressed.getOutputStream()) {
+                    input.transferTo(output);
+                } catch (IOException | RuntimeException e) {
+                    decompressed.fail(e);
+                    throw e;
+                }
+                return null;
+            });
+            Future<?> compression = executor.submit(() -> {
+                try (InputStream input = compressed.getInputStream();
+                     OutputStream output = new GZIPOutputStream(Files.newOutputStream(outputFilePath), GZIP_BUFFER_SIZE)) {
+                    input.transferTo(output);
+                } catch (IOException | RuntimeException e) {
+                    compressed.fail(e);
+                    throw e;
+                }
+                return null;
+            });
+            boolean changed;
+            try (InputStream input = decompressed.getInputStream()) {
+                OutputStream output = compressed.getOutputStream();
+                changed = transformer.transform(input, output);
+                output.close();
+            } catch (IOException | RuntimeException | Error e) {
+                compressed.fail(e); // stops the compression thread
+                throw e;
+            }
+            await(decompression);
+            await(compression);
+            return changed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.nio.file.Path;
+
+public class InPlaceCommitStrategy implements OutputCommitStrategy {
+
+    @Override
+    public String getName() {
+        return "in-place";
+    }
+
+    @Override
+    public boolean isInPlace() {
+        return true;
+    }
+
+    @Override
+    public Path getResultFilePath(Path inputFilePath) {
+        return inputFilePath;
+    }
+
+    @Override
+    public Path createOutputFile(Path inputFilePath) {
+        return inputFilePath;
+    }
+
+    /**
+     * The file has already been truncated while it was rewritten, so there is nothing to copy.
+     */
+    @Override
+    public long commit(Path inputFilePath, Path outputFilePath, FsyncPolicy fsyncPolicy) {
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            Utils.forceFile(inputFilePath);
+        }
+        if (fsyncPolicy == FsyncPolicy.FILE_AND_DIRECTORY) {
+            Utils.forceDirectory(inputFilePath.toAbsolutePath().getParent());
+        }
+        return 0;
+    }
+
+    /**
+     * A half-rewritten file cannot be restored.
+     */
+    @Override
+    public void abort(Path inputFilePath, Path outputFilePath) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes results as JSON lines in UTF-8, as {@link DeletionJobServer} and {@link DirectoryBatch} report them. Results
+ * can be written from any number of threads; every line is written whole and flushed right away. The output stream is
+ * never closed.
+ */
+public class JsonLineWriter {
+
+    private final Writer writer;
+
+    public JsonLineWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    public void write(Map<String, ?> result) {
+        synchronized (writer) {
+            try {
+                writer.write(SimpleJson.toJson(result));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns a result with the given key field first, then the status "error" and the class and message of the
+     * throwable. More fields can be added to it.
+     */
+    public static Map<String, Object> createErrorResult(String keyField, String key, Throwable throwable) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(keyField, key);
+        result.put("status", "error");
+        result.put("error", throwable.getClass().getSimpleName() + ": " + throwable.getMessage());
+        return result;
+    }
+}
@@ -0,0 +1,185 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Sidecar index that maps sampled line numbers of a file to the byte offsets where those lines start. Line 1, line
+ * 1 + interval, line 1 + 2 * interval and so on are sampled, up to the last line that was seen when the index was
+ * built. The index remembers the size and the last modified time of the file, and it is ignored when either of them
+ * has changed.
+ */
+public class LineOffsetIndex {
+
+    public static final int DEFAULT_INTERVAL = 4096;
+    public static final String SIDECAR_FILE_SUFFIX = ".line-offsets";
+    public static final int UNKNOWN_LINE_COUNT = -1;
+
+    private static final int MAGIC = 0x4C4F4958; // "LOIX"
+    private static final int VERSION = 1;
+
+    private final long fileSize;
+    private final long fileLastModifiedMillis;
+    private final int interval;
+    private final int lineCount;
+    private final long[] offsets; // offsets[i] is the offset of line 1 + i * interval
+
+    private LineOffsetIndex(long fileSize, long fileLastModifiedMillis, int interval, int lineCount, long[] offsets) {
+        this.fileSize = fileSize;
+        this.fileLastModifiedMillis = fileLastModifiedMillis;
+        this.interval = interval;
+        this.lineCount = lineCount;
+        this.offsets = offsets;
+    }
+
+    public static Path getSidecarPath(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + SIDECAR_FILE_SUFFIX);
+    }
+
+    /**
+     * Returns the index of the file, or null if there is no index or it does not match the current file.
+     */
+    public static LineOffsetIndex load(Path filePath) {
+        Path indexPath = getSidecarPath(filePath);
+        if (!Files.isRegularFile(indexPath)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long fileSize = in.readLong();
+            long fileLastModifiedMillis = in.readLong();
+            int interval = in.readInt();
+            int lineCount = in.readInt();
+            long[] offsets = new long[in.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readLong();
+            }
+            if (fileSize != Files.size(filePath)
+                    || fileLastModifiedMillis != Files.getLastModifiedTime(filePath).toMillis()) {
+                return null;
+            }
+            return new LineOffsetIndex(fileSize, fileLastModifiedMillis, interval, lineCount, offsets);
+        } catch (EOFException e) {
+            return null; // truncated index, treat it as missing
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void delete(Path filePath) {
+        try {
+            Files.deleteIfExists(getSidecarPath(filePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the number of lines of the file, or {@link #UNKNOWN_LINE_COUNT} if the pass that built the index did
+     * not go through every line.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the greatest sampled line that is less than or equal to the given line.
+     */
+    public int getSampledLineAtOrBefore(int line) {
+        return 1 + getSampleIndexAtOrBefore(line) * interval;
+    }
+
+    /**
+     * Returns the start offset of {@link #getSampledLineAtOrBefore(int)}.
+     */
+    public long getOffsetOfSampledLineAtOrBefore(int line) {
+        return offsets[getSampleIndexAtOrBefore(line)];
+    }
+
+    private int getSampleIndexAtOrBefore(int line) {
+        int sampleIndex = (line - 1) / interval;
+        return Integer.max(0, Integer.min(sampleIndex, offsets.length - 1));
+    }
+
+    /**
+     * Collects the offsets of lines as they are written during a pass. Lines must be recorded in increasing order.
+     */
+    public static class Builder {
+
+        private final int interval;
+        private long[] offsets = new long[16];
+        private int size;
+        private int lineCount = UNKNOWN_LINE_COUNT;
+
+        public Builder(int interval) {
+            if (interval < 1) {
+                throw new IllegalArgumentException("Interval must be greater than or equal to 1.");
+            }
+            this.interval = interval;
+        }
+
+        /**
+         * Starts with the samples of an existing index up to (and including) the given line. It is used when the lines
+         * before that line are copied without being read.
+         */
+        public Builder(LineOffsetIndex lineOffsetIndex, int upToLine) {
+            this(lineOffsetIndex.interval);
+            int sampleCount = lineOffsetIndex.getSampleIndexAtOrBefore(upToLine) + 1;
+            offsets = Arrays.copyOf(lineOffsetIndex.offsets, Integer.max(16, sampleCount));
+            size = sampleCount;
+        }
+
+        public void record(int line, long offset) {
+            if ((line - 1) % interval != 0 || (line - 1) / interval != size) {
+                return;
+            }
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        public void setLineCount(int lineCount) {
+            this.lineCount = lineCount;
+        }
+
+        public LineOffsetIndex build(long fileSize, long fileLastModifiedMillis) {
+            long[] sampledOffsets = size == 0 ? new long[] {0} : Arrays.copyOf(offsets, size);
+            return new LineOffsetIndex(fileSize, fileLastModifiedMillis, interval, lineCount, sampledOffsets);
+        }
+
+        /**
+         * Writes the index next to the file, with the current size and last modified time of the file.
+         */
+        public void writeFor(Path filePath) {
+            Path indexPath = getSidecarPath(filePath);
+            try {
+                LineOffsetIndex lineOffsetIndex =
+                        build(Files.size(filePath), Files.getLastModifiedTime(filePath).toMillis());
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeLong(lineOffsetIndex.fileSize);
+                    out.writeLong(lineOffsetIndex.fileLastModifiedMillis);
+                    out.writeInt(lineOffsetIndex.interval);
+                    out.writeInt(lineOffsetIndex.lineCount);
+                    out.writeInt(lineOffsetIndex.offsets.length);
+                    for (long offset : lineOffsetIndex.offsets) {
+                        out.writeLong(offset);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
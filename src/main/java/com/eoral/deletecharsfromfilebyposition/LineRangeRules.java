@@ -0,0 +1,112 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rules that cover more than one line. They are not expanded into one rule per line; instead, a cursor keeps the next
+ * line each rule applies to, so memory does not depend on how many lines the rules cover.
+ */
+public class LineRangeRules {
+
+    private final DeletionRule[] rules;
+
+    public LineRangeRules(List<DeletionRule> rules) {
+        this.rules = rules.toArray(new DeletionRule[0]);
+    }
+
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * Returns the smallest line that a rule applies to, or {@link SortedDeletionRules#NO_MORE_LINES} if there are no
+     * rules.
+     */
+    public int getFirstLine() {
+        int firstLine = SortedDeletionRules.NO_MORE_LINES;
+        for (DeletionRule rule : rules) {
+            firstLine = Integer.min(firstLine, rule.getLine());
+        }
+        return firstLine;
+    }
+
+    /**
+     * Returns the greatest line that a rule applies to, {@link SortedDeletionRules#NO_MORE_LINES} if a range has no
+     * end, or 0 if there are no rules.
+     */
+    public int getLastLine() {
+        int lastLine = 0;
+        for (DeletionRule rule : rules) {
+            if (rule.getLastLine() == null) {
+                return SortedDeletionRules.NO_MORE_LINES;
+            }
+            int lineStep = rule.getLineStep();
+            int lastLineOfRule = rule.getLine() + (rule.getLastLine() - rule.getLine()) / lineStep * lineStep;
+            lastLine = Integer.max(lastLine, lastLineOfRule);
+        }
+        return lastLine;
+    }
+
+    public Cursor cursor(int fromLine) {
+        return new Cursor(fromLine);
+    }
+
+    /**
+     * A forward-only position in the rules. It is meant to be combined with a cursor of single line rules.
+     */
+    public class Cursor {
+
+        private final int[] nextLines; // nextLines[i] is the next line rules[i] applies to
+        private int nextLine;
+
+        private Cursor(int fromLine) {
+            nextLines = new int[rules.length];
+            for (int i = 0; i < rules.length; i++) {
+                nextLines[i] = rules[i].getNextLineAtOrAfter(fromLine);
+            }
+            updateNextLine();
+        }
+
+        private void updateNextLine() {
+            nextLine = SortedDeletionRules.NO_MORE_LINES;
+            for (int line : nextLines) {
+                nextLine = Integer.min(nextLine, line);
+            }
+        }
+
+        public int getNextLine() {
+            return nextLine;
+        }
+
+        /**
+         * Returns the given rules of a single line together with the rules that apply to the same line, and moves the
+         * cursor past the line. Lines must be given in increasing order.
+         */
+        public List<DeletionRule> addRulesOfLine(int line, List<DeletionRule> singleLineRules) {
+            if (line < nextLine || line == SortedDeletionRules.NO_MORE_LINES) {
+                return singleLineRules;
+            }
+            List<DeletionRule> deletionRules = null;
+            for (int i = 0; i < rules.length; i++) {
+                if (nextLines[i] < line) {
+                    nextLines[i] = rules[i].getNextLineAtOrAfter(line);
+                }
+                if (nextLines[i] == line) {
+                    if (deletionRules == null) {
+                        deletionRules = new ArrayList<>(singleLineRules.size() + rules.length);
+                        deletionRules.addAll(singleLineRules);
+                    }
+                    deletionRules.add(rules[i]);
+                    nextLines[i] = rules[i].getNextLineAtOrAfter(line + 1);
+                }
+            }
+            updateNextLine();
+            return deletionRules == null ? singleLineRules : deletionRules;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.nio.file.Path;
+
+/**
+ * What an {@link OutputCommitStrategy} has done to store the result of a file.
+ */
+public class OutputCommitReport {
+
+    private final String strategyName;
+    private final Path resultFilePath;
+    private final long resultSize;
+    private final long bytesCopied;
+    private final boolean changed;
+
+    public OutputCommitReport(String strategyName, Path resultFilePath, long resultSize, long bytesCopied) {
+        this(strategyName, resultFilePath, resultSize, bytesCopied, true);
+    }
+
+    public OutputCommitReport(
+            String strategyName, Path resultFilePath, long resultSize, long bytesCopied, boolean changed) {
+        this.strategyName = strategyName;
+        this.resultFilePath = resultFilePath;
+        this.resultSize = resultSize;
+        this.bytesCopied = bytesCopied;
+        this.changed = changed;
+    }
+
+    public String getStrategyName() {
+        return strategyName;
+    }
+
+    public Path getResultFilePath() {
+        return resultFilePath;
+    }
+
+    public long getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * Returns the number of bytes the commit has copied after the result was written, for example when a temp file
+     * is moved to another file system.
+     */
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    /**
+     * Returns false if the rules have changed nothing, in which case the file has been left untouched (its
+     * modification time included) and nothing has been committed.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+}
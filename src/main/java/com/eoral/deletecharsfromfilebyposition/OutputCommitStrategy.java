@@ -0,0 +1,70 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.nio.file.Path;
+
+/**
+ * Decides where the result of a file is written and how it replaces the file. A strategy is used in three steps: the
+ * output file is created, the result is written to it, and then it is committed, or aborted if writing has failed.
+ */
+public interface OutputCommitStrategy {
+
+    /**
+     * Writes the result to a temp file in the directory of the file, and renames it over the file with an atomic
+     * move. The rename never copies, because both are on the same file system.
+     */
+    static OutputCommitStrategy siblingTempFile() {
+        return new SiblingTempFileCommitStrategy();
+    }
+
+    /**
+     * Writes the result to a temp file in java.io.tmpdir and moves it over the file. The move is a full copy when the
+     * temp directory is on another file system.
+     */
+    static OutputCommitStrategy systemTempFile() {
+        return new SystemTempFileCommitStrategy();
+    }
+
+    /**
+     * Rewrites the file through itself and truncates it. Only for ASCII compatible charsets.
+     */
+    static OutputCommitStrategy inPlace() {
+        return new InPlaceCommitStrategy();
+    }
+
+    /**
+     * Writes the result to the given file, replacing it if it exists, and leaves the input file as it is.
+     */
+    static OutputCommitStrategy separateDestination(Path destinationFilePath) {
+        return new SeparateDestinationCommitStrategy(destinationFilePath);
+    }
+
+    String getName();
+
+    /**
+     * Returns true if the result is written over the input file while it is read.
+     */
+    default boolean isInPlace() {
+        return false;
+    }
+
+    /**
+     * Returns the path the result can be found at after the commit.
+     */
+    Path getResultFilePath(Path inputFilePath);
+
+    /**
+     * Creates the (empty) file the result is written to, and returns its path.
+     */
+    Path createOutputFile(Path inputFilePath);
+
+    /**
+     * Makes the written output the result, forcing it to the storage device as the policy says. Returns the number of
+     * bytes that had to be copied to do so.
+     */
+    long commit(Path inputFilePath, Path outputFilePath, FsyncPolicy fsyncPolicy);
+
+    /**
+     * Cleans up after writing to the output file has failed.
+     */
+    void abort(Path inputFilePath, Path outputFilePath);
+}
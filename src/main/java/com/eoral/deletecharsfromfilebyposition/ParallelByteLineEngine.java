@@ -0,0 +1,237 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link ByteLineEngine} on several parts of a file at the same time. The file is split into chunks that end
+ * right after a "\n", so no line (and no "\r\n") spans two chunks. Lines of every chunk are counted in parallel to find
+ * the number of the first line of each chunk. Then every chunk that has rules is processed on its own thread, and the
+ * results are concatenated in order. Chunks without rules are copied straight from the input.
+ * <p>
+ * Where a chunk's result goes in the output depends on the lengths of the results before it, so only the first chunk
+ * that has rules is written straight into the output. Every later one is written to a hidden file next to the output
+ * file, on the same file system, and copied into the output once all of them have finished.
+ */
+public class ParallelByteLineEngine {
+
+    public static final long DEFAULT_MIN_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteLineEngine byteLineEngine;
+    private final int parallelism;
+    private final long minChunkSize;
+
+    public ParallelByteLineEngine(ByteLineEngine byteLineEngine, int parallelism) {
+        this(byteLineEngine, parallelism, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    public ParallelByteLineEngine(ByteLineEngine byteLineEngine, int parallelism, long minChunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than or equal to 1.");
+        }
+        this.byteLineEngine = byteLineEngine;
+        this.parallelism = parallelism;
+        this.minChunkSize = Long.max(1, minChunkSize);
+    }
+
+    /**
+     * Writes the result to the output channel, which is open on the given output file, starting from offset 0 and
+     * returns the number of bytes written.
+     */
+    public long process(FileChannel input, FileChannel output, Path outputFilePath, DeletionRuleIndex deletionRuleIndex)
+            throws IOException {
+        List<Chunk> chunks = split(input);
+        if (chunks.size() <= 1) {
+            return byteLineEngine.process(input, output, deletionRuleIndex);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            invokeAll(pool, chunks, chunk -> chunk.lineCount = countLines(input, chunk));
+            int firstLineNumber = 1;
+            for (Chunk chunk : chunks) {
+                chunk.firstLineNumber = firstLineNumber;
+                firstLineNumber += chunk.lineCount;
+            }
+            List<Chunk> chunksWithRules = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                int lastLineNumber = chunk.firstLineNumber + chunk.lineCount - 1;
+                if (chunk.lineCount > 0 && deletionRuleIndex.hasRulesBetween(chunk.firstLineNumber, lastLineNumber)) {
+                    chunksWithRules.add(chunk);
+                }
+            }
+            Path absoluteOutputFilePath = outputFilePath.toAbsolutePath();
+            if (!chunksWithRules.isEmpty()) {
+                chunksWithRules.get(0).output = output; // the results before it are copied from the input
+            }
+            invokeAll(pool, chunksWithRules, chunk -> processChunk(input, chunk, deletionRuleIndex,
+                    absoluteOutputFilePath));
+            return concatenate(input, chunks, output);
+        } finally {
+            // Chunks that are still running when another one has failed must not write into the output or create a
+            // chunk file after this returns, so they are stopped and waited for before the chunk files are deleted.
+            pool.shutdownNow();
+            awaitTermination(pool);
+            for (Chunk chunk : chunks) {
+                if (chunk.outputPath != null) {
+                    Utils.deleteRecursively(chunk.outputPath);
+                }
+            }
+        }
+    }
+
+    private List<Chunk> split(FileChannel input) throws IOException {
+        long size = input.size();
+        long chunkSize = Long.max(minChunkSize, size / ((long) parallelism * CHUNKS_PER_THREAD));
+        List<Chunk> chunks = new ArrayList<>();
+        long chunkStart = 0;
+        while (chunkStart < size) {
+            long chunkEnd = chunkStart + chunkSize >= size ? size : findLineStartAtOrAfter(input, chunkStart + chunkSize);
+            chunks.add(new Chunk(chunkStart, chunkEnd));
+            chunkStart = chunkEnd;
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the offset right after the first "\n" at or after the given offset, or the size of the file.
+     */
+    private long findLineStartAtOrAfter(FileChannel input, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = input.read(buffer, position);
+            if (read <= 0) {
+                return input.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private int countLines(FileChannel input, Chunk chunk) throws IOException {
+        ByteLineReader reader = new ByteLineReader(
+                input, chunk.startOffset, chunk.endOffset, ByteLineReader.DEFAULT_MAPPED_WINDOW_SIZE, true);
+        reader.setMaxLineLength(byteLineEngine.getMaxLineLength());
+        int lineCount = 0;
+        while (reader.next()) {
+            while (!reader.isLineComplete()) {
+                reader.nextPart();
+            }
+            lineCount++;
+        }
+        return lineCount;
+    }
+
+    private void processChunk(
+            FileChannel input, Chunk chunk, DeletionRuleIndex deletionRuleIndex, Path outputFilePath)
+            throws IOException {
+        if (chunk.output != null) {
+            chunk.outputLength = byteLineEngine.process(input, chunk.startOffset, chunk.endOffset,
+                    chunk.firstLineNumber, deletionRuleIndex.cursor(chunk.firstLineNumber),
+                    deletionRuleIndex.getLastLine(), chunk.output, chunk.startOffset) - chunk.startOffset;
+            return;
+        }
+        chunk.outputPath = Files.createTempFile(outputFilePath.getParent(),
+                "." + outputFilePath.getFileName() + ".chunk.", Constants.TEMP_FILE_SUFFIX);
+        try (FileChannel output = FileChannel.open(chunk.outputPath,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            chunk.outputLength = byteLineEngine.process(
+                    input, chunk.startOffset, chunk.endOffset, chunk.firstLineNumber,
+                    deletionRuleIndex.cursor(chunk.firstLineNumber), deletionRuleIndex.getLastLine(), output);
+        }
+    }
+
+    private long concatenate(FileChannel input, List<Chunk> chunks, FileChannel output) throws IOException {
+        long position = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.output != null) {
+                position += chunk.outputLength; // already in place
+            } else if (chunk.outputPath == null) {
+                long length = chunk.endOffset - chunk.startOffset;
+                Utils.transfer(input, chunk.startOffset, length, output, position);
+                position += length;
+            } else {
+                try (FileChannel chunkOutput = FileChannel.open(chunk.outputPath, StandardOpenOption.READ)) {
+                    Utils.transfer(chunkOutput, 0, chunk.outputLength, output, position);
+                }
+                position += chunk.outputLength;
+            }
+        }
+        return position;
+    }
+
+    private void invokeAll(ForkJoinPool pool, List<Chunk> chunks, ChunkTask chunkTask) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            tasks.add(pool.submit(() -> {
+                try {
+                    chunkTask.run(chunk);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } catch (RuntimeException | Error e) {
+            for (ForkJoinTask<?> task : tasks) {
+                task.cancel(true); // those that have not started yet never do
+            }
+            throw e;
+        }
+    }
+
+    private static void awaitTermination(ForkJoinPool pool) {
+        boolean interrupted = false;
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface ChunkTask {
+        void run(Chunk chunk) throws IOException;
+    }
+
+    private static class Chunk {
+
+        private final long startOffset;
+        private final long endOffset;
+        private int lineCount;
+        private int firstLineNumber;
+        private FileChannel output; // set if the result is written straight into the output
+        private volatile Path outputPath; // read by the calling thread after a failure, whatever the chunk's state
+        private long outputLength;
+
+        private Chunk(long startOffset, long endOffset) {
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes a file in three stages that run at the same time, so that reading, executing rules and writing overlap.
+ * A reader thread fills batches with lines and the rules of every line, the calling thread executes the rules of a
+ * batch into the batch's output buffer, and a writer thread writes the output buffers in order. Batches are handed over
+ * through bounded queues, and a written batch goes back to the reader to be filled again, so only a fixed number of
+ * batches are ever allocated. Any stage can fail, and the others then stop instead of waiting forever.
+ * <p>
+ * Consecutive lines without rules are not decoded; they are copied into a batch as one block, which is split across
+ * batches if it is longer than one. A line that has rules is always held in a single batch as a whole, so a batch
+ * grows beyond its size for a line that does not fit. The rest of the file after the last line that has rules is
+ * copied with {@link FileChannel#transferTo} after the pipeline has been drained.
+ */
+public class PipelinedLineEngine {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024 * 1024;
+    public static final int DEFAULT_BATCH_COUNT = 4;
+
+    private static final long POLL_MILLIS = 100;
+
+    private final DeletionRuleExecution deletionRuleExecution;
+    private final Charset charset;
+    private final BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine;
+    private final int batchSize;
+    private final int batchCount;
+    private volatile boolean changed;
+
+    public PipelinedLineEngine(
+            DeletionRuleExecution deletionRuleExecution,
+            Charset charset,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine) {
+        this(deletionRuleExecution, charset, behaviorAfterDeletionRulesExecutedForEachLine,
+                DEFAULT_BATCH_SIZE, DEFAULT_BATCH_COUNT);
+    }
+
+    /**
+     * Batch size is the number of bytes of lines a batch holds, and batch count is the number of batches that are
+     * passed around the stages.
+     */
+    public PipelinedLineEngine(
+            DeletionRuleExecution deletionRuleExecution,
+            Charset charset,
+            BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+            int batchSize,
+            int batchCount) {
+        if (batchSize < 1 || batchCount < 1) {
+            throw new IllegalArgumentException("Batch size and batch count must be greater than or equal to 1.");
+        }
+        this.deletionRuleExecution = deletionRuleExecution;
+        this.charset = charset;
+        this.behaviorAfterDeletionRulesExecutedForEachLine = behaviorAfterDeletionRulesExecutedForEachLine;
+        this.batchSize = batchSize;
+        this.batchCount = batchCount;
+    }
+
+    /**
+     * Returns true if any line processed by this engine so far has been deleted or has lost any char.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Writes the result to the output channel starting from offset 0 and returns the number of bytes written.
+     */
+    public long process(FileChannel input, FileChannel output, SortedDeletionRules sortedDeletionRules)
+            throws IOException {
+        Stages stages = new Stages(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            stages.free.add(new Batch(batchSize));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> reading = executor.submit(() -> stages.run(() -> read(input, sortedDeletionRules, stages)));
+            Future<Long> writing = executor.submit(() -> stages.run(() -> write(output, stages)));
+            stages.run(() -> {
+                boolean last;
+                do {
+                    Batch batch = stages.take(stages.filled);
+                    transform(batch);
+                    last = batch.last; // once handed over, the batch may already be refilled
+                    stages.put(stages.transformed, batch);
+                } while (!last);
+                return null;
+            });
+            long tailOffset = await(reading);
+            long outputLength = await(writing);
+            long tailLength = input.size() - tailOffset;
+            Utils.transfer(input, tailOffset, tailLength, output, outputLength);
+            return outputLength + tailLength;
+        } catch (IOException | RuntimeException | Error e) {
+            // the stage that has failed first, rather than one that has stopped because of it
+            Throwable failure = stages.failure != null ? stages.failure : e;
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw (Error) failure;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the offset right after the last line that has rules.
+     */
+    private long read(FileChannel input, SortedDeletionRules sortedDeletionRules, Stages stages) throws IOException {
+        ByteLineReader reader = new ByteLineReader(
+                input, 0, input.size(), ByteLineReader.DEFAULT_MAPPED_WINDOW_SIZE, true);
+        reader.setMaxLineLength(batchSize); // parts of a long line without rules are spread over batches
+        DeletionRuleCursor deletionRuleCursor = sortedDeletionRules.cursor(1);
+        int lastLine = sortedDeletionRules.getLastLine();
+        Batch batch = stages.takeFreeBatch();
+        long tailOffset = 0;
+        int lineNumber = 0;
+        while (lineNumber < lastLine && reader.next()) {
+            lineNumber++;
+            if (lineNumber < deletionRuleCursor.getNextLine()) {
+                while (true) {
+                    if (!batch.hasRoomFor(reader.getLineLength() + reader.getTerminatorLength())) {
+                        stages.put(stages.filled, batch);
+                        batch = stages.takeFreeBatch();
+                    }
+                    batch.addPassThrough(reader.getLineWithTerminator());
+                    if (reader.isLineComplete()) {
+                        break;
+                    }
+                    reader.nextPart();
+                }
+            } else {
+                List<DeletionRule> deletionRulesOfLine = deletionRuleCursor.getByLine(lineNumber);
+                if (!batch.hasRoomFor(reader.getLineLength() + reader.getTerminatorLength())) {
+                    stages.put(stages.filled, batch);
+                    batch = stages.takeFreeBatch();
+                }
+                batch.addLine(reader.getLine(), deletionRulesOfLine);
+                while (!reader.isLineComplete()) {
+                    reader.nextPart();
+                    batch.appendToLastLine(reader.getLine());
+                }
+                batch.setTerminatorOfLastLine(reader.getTerminator());
+            }
+            tailOffset = reader.getLineEndOffset();
+        }
+        batch.last = true;
+        stages.put(stages.filled, batch);
+        return tailOffset;
+    }
+
+    private void transform(Batch batch) {
+        batch.output.clear();
+        ByteBuffer input = batch.input.duplicate();
+        for (int i = 0; i < batch.entryCount; i++) {
+            input.limit(batch.starts[i] + batch.lengths[i] + batch.terminatorLengths[i]);
+            input.position(batch.starts[i]);
+            List<DeletionRule> deletionRulesOfLine = batch.rules.get(i);
+            if (deletionRulesOfLine == null) {
+                batch.putOutput(input);
+                continue;
+            }
+            ByteBuffer line = input.duplicate();
+            line.limit(batch.starts[i] + batch.lengths[i]);
+            ByteBuffer terminator = input.duplicate();
+            terminator.position(line.limit());
+            if (deletionRuleExecution.getColumnUnit() == ColumnUnit.BYTE) {
+                ByteBuffer restOfTheLine = deletionRuleExecution.deleteBytesFromLine(
+                        line, deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
+                if (restOfTheLine != line) {
+                    changed = true;
+                }
+                if (restOfTheLine != null) {
+                    batch.putOutput(restOfTheLine);
+                    batch.putOutput(terminator);
+                }
+                continue;
+            }
+            String lineStr = charset.decode(line.duplicate()).toString();
+            String restOfTheLine = deletionRuleExecution.deleteCharsFromLine(
+                    lineStr, deletionRulesOfLine, behaviorAfterDeletionRulesExecutedForEachLine);
+            if (restOfTheLine == null) {
+                changed = true;
+                continue; // line is deleted together with its line break
+            }
+            if (restOfTheLine.equals(lineStr)) {
+                batch.putOutput(input); // keep the original bytes
+            } else {
+                changed = true;
+                batch.putOutput(ByteBuffer.wrap(restOfTheLine.getBytes(charset)));
+                batch.putOutput(terminator);
+            }
+        }
+        batch.output.flip();
+    }
+
+    /**
+     * Returns the number of bytes written.
+     */
+    private long write(FileChannel output, Stages stages) throws IOException {
+        long position = 0;
+        while (true) {
+            Batch batch = stages.take(stages.transformed);
+            while (batch.output.hasRemaining()) {
+                position += output.write(batch.output, position);
+            }
+            boolean last = batch.last;
+            stages.put(stages.free, batch);
+            if (last) {
+                return position;
+            }
+        }
+    }
+
+    private static long await(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    private interface Stage<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Queues between the stages, and the first failure of any stage.
+     */
+    private static class Stages {
+
+        private final BlockingQueue<Batch> free;
+        private final BlockingQueue<Batch> filled;
+        private final BlockingQueue<Batch> transformed;
+        private volatile Throwable failure;
+
+        Stages(int batchCount) {
+            free = new ArrayBlockingQueue<>(batchCount);
+            filled = new ArrayBlockingQueue<>(batchCount);
+            transformed = new ArrayBlockingQueue<>(batchCount);
+        }
+
+        /**
+         * Runs a stage, and makes the other stages stop if it fails.
+         */
+        <T> T run(Stage<T> stage) throws IOException {
+            try {
+                return stage.run();
+            } catch (IOException | RuntimeException | Error e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                throw e;
+            }
+        }
+
+        Batch takeFreeBatch() throws IOException {
+            Batch batch = take(free);
+            batch.clear();
+            return batch;
+        }
+
+        Batch take(BlockingQueue<Batch> queue) throws IOException {
+            try {
+                Batch batch;
+                while ((batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    checkFailure();
+                }
+                return batch;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        /**
+         * Queues never hold more batches than there are, so this only waits if the queue's stage has failed.
+         */
+        void put(BlockingQueue<Batch> queue, Batch batch) throws IOException {
+            checkFailure();
+            queue.add(batch);
+        }
+
+        private void checkFailure() throws IOException {
+            if (failure != null) {
+                throw new IOException("Another stage of the pipeline has failed.", failure);
+            }
+        }
+    }
+
+    /**
+     * Lines read from the input, and the result of executing their rules. A line whose rules are null is a block of
+     * lines that are passed through as they are.
+     */
+    private static class Batch {
+
+        private final int size;
+        private ByteBuffer input;
+        private ByteBuffer output;
+        private int entryCount;
+        private int[] starts = new int[256];
+        private int[] lengths = new int[256];
+        private int[] terminatorLengths = new int[256];
+        private final List<List<DeletionRule>> rules = new ArrayList<>();
+        private boolean last;
+
+        Batch(int size) {
+            this.size = size;
+            this.input = ByteBuffer.allocate(size);
+            this.output = ByteBuffer.allocate(size);
+        }
+
+        void clear() {
+            input.clear();
+            entryCount = 0;
+            rules.clear();
+            last = false;
+        }
+
+        /**
+         * An empty batch always has room, since a line with rules must not be split.
+         */
+        boolean hasRoomFor(int length) {
+            return entryCount == 0 || input.position() + length <= size;
+        }
+
+        void addPassThrough(ByteBuffer bytes) {
+            if (entryCount > 0 && rules.get(entryCount - 1) == null) {
+                lengths[entryCount - 1] += bytes.remaining(); // continues the previous block
+                putInput(bytes);
+            } else {
+                addEntry(null);
+                lengths[entryCount - 1] = bytes.remaining();
+                putInput(bytes);
+            }
+        }
+
+        void addLine(ByteBuffer line, List<DeletionRule> deletionRulesOfLine) {
+            addEntry(deletionRulesOfLine);
+            appendToLastLine(line);
+        }
+
+        void appendToLastLine(ByteBuffer part) {
+            lengths[entryCount - 1] += part.remaining();
+            putInput(part);
+        }
+
+        void setTerminatorOfLastLine(ByteBuffer terminator) {
+            terminatorLengths[entryCount - 1] = terminator.remaining();
+            putInput(terminator);
+        }
+
+        private void addEntry(List<DeletionRule> deletionRulesOfLine) {
+            if (entryCount == starts.length) {
+                starts = Arrays.copyOf(starts, entryCount * 2);
+                lengths = Arrays.copyOf(lengths, entryCount * 2);
+                terminatorLengths = Arrays.copyOf(terminatorLengths, entryCount * 2);
+            }
+            starts[entryCount] = input.position();
+            lengths[entryCount] = 0;
+            terminatorLengths[entryCount] = 0;
+            rules.add(deletionRulesOfLine);
+            entryCount++;
+        }
+
+        private void putInput(ByteBuffer bytes) {
+            input = ensureRemaining(input, bytes.remaining());
+            input.put(bytes);
+        }
+
+        void putOutput(ByteBuffer bytes) {
+            output = ensureRemaining(output, bytes.remaining());
+            output.put(bytes.duplicate());
+        }
+
+        private static ByteBuffer ensureRemaining(ByteBuffer buffer, int length) {
+            if (buffer.remaining() >= length) {
+                return buffer;
+            }
+            long capacity = Long.max(buffer.capacity() * 2L, (long) buffer.position() + length);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("A line is too long to be processed in a pipeline.");
+            }
+            ByteBuffer grown = ByteBuffer.allocate((int) capacity);
+            buffer.flip();
+            grown.put(buffer);
+            return grown;
+        }
+    }
+}
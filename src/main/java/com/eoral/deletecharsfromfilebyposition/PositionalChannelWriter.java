@@ -0,0 +1,104 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered writer that writes to a file channel with positional writes, starting from a given offset. It never moves
+ * the position of the channel. It can also write sequentially to any other channel, in which case the position is
+ * only counted.
+ */
+public class PositionalChannelWriter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final boolean positional;
+    private final ByteBuffer buffer;
+    private long flushedPosition;
+
+    public PositionalChannelWriter(FileChannel channel, long startPosition) {
+        this(channel, startPosition, DEFAULT_BUFFER_SIZE);
+    }
+
+    public PositionalChannelWriter(FileChannel channel, long startPosition, int bufferSize) {
+        this(channel, true, startPosition, bufferSize);
+    }
+
+    /**
+     * Writes to the channel sequentially, from its current position.
+     */
+    public PositionalChannelWriter(WritableByteChannel channel) {
+        this(channel, false, 0, DEFAULT_BUFFER_SIZE);
+    }
+
+    private PositionalChannelWriter(WritableByteChannel channel, boolean positional, long startPosition, int bufferSize) {
+        this.channel = channel;
+        this.positional = positional;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.flushedPosition = startPosition;
+    }
+
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.remaining()) {
+            flush();
+        }
+        if (length >= buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes, offset, length));
+        } else {
+            buffer.put(bytes, offset, length);
+        }
+    }
+
+    public void write(ByteBuffer bytes) throws IOException {
+        if (bytes.remaining() > buffer.remaining()) {
+            flush();
+        }
+        if (bytes.remaining() >= buffer.capacity()) {
+            writeFully(bytes);
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Moves the position forward without writing anything, leaving the bytes in the file as they are. Buffered bytes
+     * are flushed first.
+     */
+    public void skip(long length) throws IOException {
+        if (!positional) {
+            throw new IllegalStateException("Bytes can only be skipped when writing to a file channel.");
+        }
+        flush();
+        flushedPosition += length;
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            if (positional) {
+                flushedPosition += ((FileChannel) channel).write(byteBuffer, flushedPosition);
+            } else {
+                flushedPosition += channel.write(byteBuffer);
+            }
+        }
+    }
+
+    /**
+     * Returns the file offset of the next byte to be written, including the bytes that are still buffered.
+     */
+    public long getPosition() {
+        return flushedPosition + buffer.position();
+    }
+}
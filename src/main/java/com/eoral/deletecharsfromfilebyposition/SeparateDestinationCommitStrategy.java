@@ -0,0 +1,57 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SeparateDestinationCommitStrategy implements OutputCommitStrategy {
+
+    private final Path destinationFilePath;
+
+    public SeparateDestinationCommitStrategy(Path destinationFilePath) {
+        this.destinationFilePath = destinationFilePath;
+    }
+
+    @Override
+    public String getName() {
+        return "separate-destination";
+    }
+
+    @Override
+    public Path getResultFilePath(Path inputFilePath) {
+        return destinationFilePath;
+    }
+
+    @Override
+    public Path createOutputFile(Path inputFilePath) {
+        try {
+            Path absoluteInputFilePath = inputFilePath.toAbsolutePath().normalize();
+            Path absoluteDestinationFilePath = destinationFilePath.toAbsolutePath().normalize();
+            if (absoluteInputFilePath.equals(absoluteDestinationFilePath)
+                    || (Files.exists(destinationFilePath) && Files.isSameFile(inputFilePath, destinationFilePath))) {
+                throw new IllegalArgumentException("Destination must be different from the input file.");
+            }
+            Files.newOutputStream(destinationFilePath).close(); // creates or truncates
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return destinationFilePath;
+    }
+
+    @Override
+    public long commit(Path inputFilePath, Path outputFilePath, FsyncPolicy fsyncPolicy) {
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            Utils.forceFile(outputFilePath);
+        }
+        if (fsyncPolicy == FsyncPolicy.FILE_AND_DIRECTORY) {
+            Utils.forceDirectory(outputFilePath.toAbsolutePath().getParent());
+        }
+        return 0;
+    }
+
+    @Override
+    public void abort(Path inputFilePath, Path outputFilePath) {
+        Utils.deleteIfExists(outputFilePath);
+    }
+}
@@ -0,0 +1,56 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class SiblingTempFileCommitStrategy implements OutputCommitStrategy {
+
+    @Override
+    public String getName() {
+        return "sibling-temp-file";
+    }
+
+    @Override
+    public Path getResultFilePath(Path inputFilePath) {
+        return inputFilePath;
+    }
+
+    @Override
+    public Path createOutputFile(Path inputFilePath) {
+        Path absoluteInputFilePath = inputFilePath.toAbsolutePath();
+        try {
+            return Files.createTempFile(absoluteInputFilePath.getParent(),
+                    "." + absoluteInputFilePath.getFileName() + ".", Constants.TEMP_FILE_SUFFIX);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long commit(Path inputFilePath, Path outputFilePath, FsyncPolicy fsyncPolicy) {
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            Utils.forceFile(outputFilePath);
+        }
+        try {
+            Files.move(outputFilePath, inputFilePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Some file systems cannot rename atomically; the move is still a rename within the directory.
+            Utils.moveFileReplaceExisting(outputFilePath, inputFilePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (fsyncPolicy == FsyncPolicy.FILE_AND_DIRECTORY) {
+            Utils.forceDirectory(inputFilePath.toAbsolutePath().getParent());
+        }
+        return 0;
+    }
+
+    @Override
+    public void abort(Path inputFilePath, Path outputFilePath) {
+        Utils.deleteIfExists(outputFilePath);
+    }
+}
@@ -0,0 +1,244 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for flat objects, used for the JSON lines that the app reads and writes. Values can be strings,
+ * numbers, booleans and null when parsing; lists of values are also supported when writing.
+ */
+public class SimpleJson {
+
+    private SimpleJson() {
+    }
+
+    public static Map<String, Object> parseObject(String str) {
+        return new Parser(str).parseObjectAndEnd();
+    }
+
+    public static String toJson(Map<String, ?> object) {
+        StringBuilder stringBuilder = new StringBuilder();
+        appendValue(stringBuilder, object);
+        return stringBuilder.toString();
+    }
+
+    private static void appendValue(StringBuilder stringBuilder, Object value) {
+        if (value == null) {
+            stringBuilder.append("null");
+        } else if (value instanceof String) {
+            appendString(stringBuilder, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            stringBuilder.append(value);
+        } else if (value instanceof Map) {
+            stringBuilder.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    stringBuilder.append(',');
+                }
+                first = false;
+                appendString(stringBuilder, String.valueOf(entry.getKey()));
+                stringBuilder.append(':');
+                appendValue(stringBuilder, entry.getValue());
+            }
+            stringBuilder.append('}');
+        } else if (value instanceof List) {
+            stringBuilder.append('[');
+            boolean first = true;
+            for (Object element : (List<?>) value) {
+                if (!first) {
+                    stringBuilder.append(',');
+                }
+                first = false;
+                appendValue(stringBuilder, element);
+            }
+            stringBuilder.append(']');
+        } else {
+            appendString(stringBuilder, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder stringBuilder, String str) {
+        stringBuilder.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '"' || c == '\\') {
+                stringBuilder.append('\\').append(c);
+            } else if (c == '\n') {
+                stringBuilder.append("\\n");
+            } else if (c == '\r') {
+                stringBuilder.append("\\r");
+            } else if (c == '\t') {
+                stringBuilder.append("\\t");
+            } else if (c < 0x20) {
+                stringBuilder.append(String.format("\\u%04x", (int) c));
+            } else {
+                stringBuilder.append(c);
+            }
+        }
+        stringBuilder.append('"');
+    }
+
+    private static class Parser {
+
+        private final String str;
+        private int position;
+
+        private Parser(String str) {
+            this.str = str;
+        }
+
+        private Map<String, Object> parseObjectAndEnd() {
+            skipWhitespace();
+            Map<String, Object> object = parseObject();
+            skipWhitespace();
+            if (position != str.length()) {
+                throw error("Unexpected content after object");
+            }
+            return object;
+        }
+
+        private Map<String, Object> parseObject() {
+            expect('{');
+            Map<String, Object> object = new LinkedHashMap<>();
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                object.put(key, parseValue());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return object;
+                } else if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            } else if (c == '-' || (c >= '0' && c <= '9')) {
+                return parseNumber();
+            } else if (str.startsWith("true", position)) {
+                position += 4;
+                return Boolean.TRUE;
+            } else if (str.startsWith("false", position)) {
+                position += 5;
+                return Boolean.FALSE;
+            } else if (str.startsWith("null", position)) {
+                position += 4;
+                return null;
+            } else {
+                throw error("Unsupported value");
+            }
+        }
+
+        private Number parseNumber() {
+            int start = position;
+            while (position < str.length() && "+-0123456789.eE".indexOf(str.charAt(position)) >= 0) {
+                position++;
+            }
+            String number = str.substring(start, position);
+            try {
+                if (number.contains(".") || number.contains("e") || number.contains("E")) {
+                    return Double.parseDouble(number);
+                } else {
+                    return Long.parseLong(number);
+                }
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder stringBuilder = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return stringBuilder.toString();
+                } else if (c == '\\') {
+                    char escaped = next();
+                    switch (escaped) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            stringBuilder.append(escaped);
+                            break;
+                        case 'b':
+                            stringBuilder.append('\b');
+                            break;
+                        case 'f':
+                            stringBuilder.append('\f');
+                            break;
+                        case 'n':
+                            stringBuilder.append('\n');
+                            break;
+                        case 'r':
+                            stringBuilder.append('\r');
+                            break;
+                        case 't':
+                            stringBuilder.append('\t');
+                            break;
+                        case 'u':
+                            if (position + 4 > str.length()) {
+                                throw error("Invalid unicode escape");
+                            }
+                            try {
+                                stringBuilder.append((char) Integer.parseInt(str.substring(position, position + 4), 16));
+                            } catch (NumberFormatException e) {
+                                throw error("Invalid unicode escape");
+                            }
+                            position += 4;
+                            break;
+                        default:
+                            throw error("Invalid escape");
+                    }
+                } else {
+                    stringBuilder.append(c);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < str.length() && Character.isWhitespace(str.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            if (position >= str.length()) {
+                throw error("Unexpected end of input");
+            }
+            return str.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                position--;
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " of JSON: " + str);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deletion rules that can be read in line order through a {@link DeletionRuleCursor}. Rules whose line is counted from
+ * the end of the file are kept apart, since their lines are only known once the end of the file is found; the other
+ * methods do not see them.
+ */
+public interface SortedDeletionRules {
+
+    int NO_MORE_LINES = Integer.MAX_VALUE;
+
+    boolean isEmpty();
+
+    /**
+     * Returns the smallest line that has rules, or {@link #NO_MORE_LINES} if there are no rules.
+     */
+    int getFirstLine();
+
+    /**
+     * Returns the greatest line that has rules, or 0 if there are no rules.
+     */
+    int getLastLine();
+
+    /**
+     * Returns a cursor whose next line is the smallest line that has rules and is greater than or equal to the given
+     * line.
+     */
+    DeletionRuleCursor cursor(int fromLine);
+
+    /**
+     * Returns a digest of every rule, including those counted from the end, that does not depend on the order in which
+     * the rules have been given or on how they are stored. See {@link DeletionRule#hash}.
+     */
+    long getDigest();
+
+    /**
+     * Returns the rules whose line is counted from the end of the file, see {@link TrailingLines}.
+     */
+    default List<DeletionRule> getRulesCountedFromEnd() {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,324 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Executes the deletion rules of a single line that is given in parts, so that the line is never held in memory as a
+ * whole. Parts are decoded into a small buffer (unless columns are bytes), the current column is counted, chars that
+ * are inside a rule's column range are dropped, and the rest is encoded and written right away. The result is the
+ * same as {@link DeletionRuleExecution#deleteCharsFromLine}, except that malformed bytes outside deleted ranges are
+ * written as replacement chars, or as they were if they are to be kept. Either way, a malformed sequence counts as
+ * one column, like the replacement char it is decoded to.
+ * <p>
+ * For delete-line-if-blank, only whether a char other than whitespace has been kept so far is tracked. Until one is,
+ * the kept whitespace is not written but counted as runs of the same byte (whitespace chars are single ASCII bytes in
+ * an ASCII compatible charset), so that it can be dropped if the line turns out to be blank. A blank prefix of any
+ * length takes memory only for the number of times its byte changes.
+ */
+public class StreamingLineEditor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ColumnUnit columnUnit;
+    private final boolean deleteLineIfBlank;
+    private final CharsetDecoder decoder;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer undecoded = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer decoded = CharBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer kept = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer encoded;
+
+    private PositionalChannelWriter writer;
+    private boolean deletesLine;
+    private boolean emptiesLine;
+    private DeletionIntervals deletionIntervals;
+    private int intervalIndex;
+    private long column; // number of columns before the next char or byte
+    private boolean highSurrogatePassed;
+    private boolean nonBlankKept;
+    private boolean changed;
+    private byte[] whitespaceRunBytes = new byte[16]; // whitespace kept before any other char
+    private long[] whitespaceRunLengths = new long[16];
+    private int whitespaceRunCount;
+
+    /**
+     * Malformed bytes that are not deleted are written as they were instead of being replaced if keep malformed bytes
+     * is true, which guarantees that the result is never longer than the line.
+     */
+    public StreamingLineEditor(Charset charset, ColumnUnit columnUnit,
+                               BehaviorAfterDeletionRulesExecutedForEachLine behaviorAfterDeletionRulesExecutedForEachLine,
+                               boolean keepMalformedBytes) {
+        CodingErrorAction codingErrorAction = keepMalformedBytes ? CodingErrorAction.REPORT : CodingErrorAction.REPLACE;
+        this.columnUnit = columnUnit;
+        this.deleteLineIfBlank = behaviorAfterDeletionRulesExecutedForEachLine != null
+                && behaviorAfterDeletionRulesExecutedForEachLine.isDeleteLineIfBlank();
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(codingErrorAction).onUnmappableCharacter(codingErrorAction);
+        // a surrogate pair that is cut by a rule is replaced, like String.getBytes does, which never makes it longer
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoded = ByteBuffer.allocate((int) Math.ceil(BUFFER_SIZE * encoder.maxBytesPerChar()));
+    }
+
+    /**
+     * Starts a line that has the given rules, whose result is written to the given writer.
+     */
+    public void begin(List<DeletionRule> deletionRulesOfLine, PositionalChannelWriter writer) {
+        this.writer = writer;
+        deletesLine = false;
+        emptiesLine = false;
+        for (DeletionRule deletionRule : deletionRulesOfLine) {
+            deletesLine |= deletionRule.deletesLine();
+            emptiesLine |= deletionRule.emptiesLine();
+        }
+        deletionIntervals = DeletionIntervals.of(deletionRulesOfLine);
+        intervalIndex = 0;
+        column = 0;
+        highSurrogatePassed = false;
+        nonBlankKept = !deleteLineIfBlank; // nothing is held back unless the line can be deleted when blank
+        changed = deletesLine || emptiesLine;
+        undecoded.clear();
+        decoder.reset();
+        encoder.reset();
+        whitespaceRunCount = 0;
+    }
+
+    /**
+     * Processes the next part of the line, excluding its line break.
+     */
+    public void accept(ByteBuffer part) throws IOException {
+        if (deletesLine || emptiesLine) {
+            return;
+        }
+        if (columnUnit == ColumnUnit.BYTE) {
+            acceptBytes(part.duplicate());
+            return;
+        }
+        ByteBuffer source = part.duplicate();
+        while (source.hasRemaining()) {
+            int length = Integer.min(undecoded.remaining(), source.remaining());
+            ByteBuffer chunk = source.duplicate();
+            chunk.limit(chunk.position() + length);
+            undecoded.put(chunk);
+            source.position(source.position() + length);
+            undecoded.flip();
+            decode(false);
+            undecoded.compact(); // keeps the bytes of a char that continues in the next chunk
+        }
+    }
+
+    /**
+     * Ends the line with the given line break. Returns false if the line is deleted, in which case nothing of it has
+     * been written.
+     */
+    public boolean end(ByteBuffer terminator) throws IOException {
+        if (deletesLine) {
+            return false;
+        }
+        if (!emptiesLine && columnUnit != ColumnUnit.BYTE) {
+            undecoded.flip();
+            decode(true);
+            check(decoder.flush(decoded));
+            keepDecodedChars();
+            encode(true);
+            check(encoder.flush(encoded));
+            writeEncodedBytes();
+        }
+        if (!nonBlankKept) {
+            whitespaceRunCount = 0;
+            changed = true;
+            return false;
+        }
+        writer.write(terminator);
+        return true;
+    }
+
+    /**
+     * Returns true if the last line has been deleted or has lost any char. Malformed bytes that have been replaced do
+     * not count.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    private void acceptBytes(ByteBuffer part) throws IOException {
+        while (part.hasRemaining()) {
+            long nextColumn = column + 1;
+            skipIntervalsEndingBefore(nextColumn);
+            if (intervalIndex < deletionIntervals.size() && deletionIntervals.getStart(intervalIndex) <= nextColumn) {
+                // deleted up to the end of the interval
+                long count = Long.min(part.remaining(), deletionIntervals.getEnd(intervalIndex) - column);
+                part.position(part.position() + (int) count);
+                column += count;
+                changed = true;
+            } else {
+                long keptUntilColumn = intervalIndex < deletionIntervals.size()
+                        ? deletionIntervals.getStart(intervalIndex) - 1 : Long.MAX_VALUE;
+                int count = (int) Long.min(part.remaining(), keptUntilColumn - column);
+                ByteBuffer keptBytes = part.duplicate();
+                keptBytes.limit(keptBytes.position() + count);
+                while (!nonBlankKept && keptBytes.hasRemaining()) {
+                    byte b = keptBytes.get(keptBytes.position());
+                    if (b < 0 || b > ' ') {
+                        keepNonBlank();
+                    } else {
+                        holdBackWhitespace(b);
+                        keptBytes.position(keptBytes.position() + 1);
+                    }
+                }
+                writer.write(keptBytes);
+                part.position(part.position() + count);
+                column += count;
+            }
+        }
+    }
+
+    private void decode(boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult coderResult = decoder.decode(undecoded, decoded, endOfInput);
+            keepDecodedChars();
+            if (coderResult.isError()) {
+                keepMalformedBytes(coderResult.length());
+            } else if (coderResult.isUnderflow()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts the malformed bytes at the position of the undecoded bytes as one column, and writes them as they are
+     * unless they are deleted.
+     */
+    private void keepMalformedBytes(int length) throws IOException {
+        column++;
+        highSurrogatePassed = false;
+        skipIntervalsEndingBefore(column);
+        if (intervalIndex < deletionIntervals.size() && deletionIntervals.getStart(intervalIndex) <= column) {
+            changed = true;
+        } else {
+            keepNonBlank(); // like the replacement char
+            // The kept chars are written first. A high surrogate among them cannot be followed by its low surrogate
+            // any more, so the encoder is ended to replace it, and started again.
+            encode(true);
+            check(encoder.flush(encoded));
+            writeEncodedBytes();
+            encoder.reset();
+            ByteBuffer malformedBytes = undecoded.duplicate();
+            malformedBytes.limit(malformedBytes.position() + length);
+            writer.write(malformedBytes);
+        }
+        undecoded.position(undecoded.position() + length);
+    }
+
+    /**
+     * Moves the decoded chars that are not deleted to the kept chars, and encodes them when there are enough.
+     */
+    private void keepDecodedChars() throws IOException {
+        decoded.flip();
+        while (decoded.hasRemaining()) {
+            char c = decoded.get();
+            if (!(columnUnit == ColumnUnit.CODE_POINT && highSurrogatePassed && Character.isLowSurrogate(c))) {
+                column++;
+            }
+            highSurrogatePassed = Character.isHighSurrogate(c);
+            skipIntervalsEndingBefore(column);
+            if (intervalIndex < deletionIntervals.size() && deletionIntervals.getStart(intervalIndex) <= column) {
+                changed = true;
+                continue; // deleted
+            }
+            if (!nonBlankKept) {
+                if (c > ' ') {
+                    keepNonBlank();
+                } else {
+                    holdBackWhitespace((byte) c);
+                    continue;
+                }
+            }
+            if (!kept.hasRemaining()) {
+                encode(false);
+            }
+            kept.put(c);
+        }
+        decoded.clear();
+    }
+
+    /**
+     * Called when the first char other than whitespace is kept. Every char kept before it has been held back, so the
+     * held back whitespace is written first.
+     */
+    private void keepNonBlank() throws IOException {
+        nonBlankKept = true;
+        byte[] bytes = new byte[0];
+        for (int i = 0; i < whitespaceRunCount; i++) {
+            long remaining = whitespaceRunLengths[i];
+            while (remaining > 0) {
+                int length = (int) Long.min(remaining, BUFFER_SIZE);
+                if (bytes.length < length || bytes[0] != whitespaceRunBytes[i]) {
+                    bytes = new byte[Integer.max(length, bytes.length)];
+                    Arrays.fill(bytes, whitespaceRunBytes[i]);
+                }
+                writer.write(bytes, 0, length);
+                remaining -= length;
+            }
+        }
+        whitespaceRunCount = 0;
+    }
+
+    /**
+     * Holds back a whitespace byte that is kept before any other char.
+     */
+    private void holdBackWhitespace(byte b) {
+        if (whitespaceRunCount > 0 && whitespaceRunBytes[whitespaceRunCount - 1] == b) {
+            whitespaceRunLengths[whitespaceRunCount - 1]++;
+            return;
+        }
+        if (whitespaceRunCount == whitespaceRunBytes.length) {
+            whitespaceRunBytes = Arrays.copyOf(whitespaceRunBytes, 2 * whitespaceRunCount);
+            whitespaceRunLengths = Arrays.copyOf(whitespaceRunLengths, 2 * whitespaceRunCount);
+        }
+        whitespaceRunBytes[whitespaceRunCount] = b;
+        whitespaceRunLengths[whitespaceRunCount] = 1;
+        whitespaceRunCount++;
+    }
+
+    private void skipIntervalsEndingBefore(long column) {
+        while (intervalIndex < deletionIntervals.size() && deletionIntervals.getEnd(intervalIndex) < column) {
+            intervalIndex++;
+        }
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        kept.flip();
+        while (true) {
+            CoderResult coderResult = encoder.encode(kept, encoded, endOfInput);
+            check(coderResult);
+            if (coderResult.isUnderflow()) {
+                break;
+            }
+            writeEncodedBytes();
+        }
+        kept.compact(); // keeps a high surrogate whose low surrogate is not kept yet
+        writeEncodedBytes();
+    }
+
+    private void writeEncodedBytes() throws IOException {
+        encoded.flip();
+        writer.write(encoded);
+        encoded.clear();
+    }
+
+    private void check(CoderResult coderResult) {
+        if (coderResult.isError()) {
+            throw new IllegalStateException("Line cannot be decoded or encoded in the charset.");
+        }
+    }
+}
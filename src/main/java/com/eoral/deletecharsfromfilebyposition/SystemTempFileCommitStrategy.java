@@ -0,0 +1,50 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SystemTempFileCommitStrategy implements OutputCommitStrategy {
+
+    @Override
+    public String getName() {
+        return "system-temp-file";
+    }
+
+    @Override
+    public Path getResultFilePath(Path inputFilePath) {
+        return inputFilePath;
+    }
+
+    @Override
+    public Path createOutputFile(Path inputFilePath) {
+        return Utils.createTempFile();
+    }
+
+    @Override
+    public long commit(Path inputFilePath, Path outputFilePath, FsyncPolicy fsyncPolicy) {
+        long bytesCopied;
+        try {
+            boolean sameFileStore = Files.getFileStore(outputFilePath)
+                    .equals(Files.getFileStore(inputFilePath.toAbsolutePath().getParent()));
+            bytesCopied = sameFileStore ? 0 : Files.size(outputFilePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Utils.moveFileReplaceExisting(outputFilePath, inputFilePath);
+        // The move may be a copy, so the file is forced after it, where it ends up.
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            Utils.forceFile(inputFilePath);
+        }
+        if (fsyncPolicy == FsyncPolicy.FILE_AND_DIRECTORY) {
+            Utils.forceDirectory(inputFilePath.toAbsolutePath().getParent());
+        }
+        return bytesCopied;
+    }
+
+    @Override
+    public void abort(Path inputFilePath, Path outputFilePath) {
+        Utils.deleteIfExists(outputFilePath);
+    }
+}
@@ -0,0 +1,130 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last lines of a file, found by reading it backwards from its end with positional reads, so that rules whose line
+ * is counted from the end (-1 is the last line) can be resolved without reading the rest of the file. Lines end like
+ * in {@link ByteLineReader}: with "\n", "\r" or "\r\n", and the last line may have no line break. This only works for
+ * charsets that pass {@link Utils#isAsciiCompatible(java.nio.charset.Charset)}.
+ */
+public class TrailingLines {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final long offset;
+    private final int count;
+
+    private TrailingLines(long offset, int count) {
+        this.offset = offset;
+        this.count = count;
+    }
+
+    /**
+     * Finds the start of the given number of last lines of the channel, up to the given end offset. If the channel has
+     * fewer lines, every line is found and the offset is 0.
+     */
+    public static TrailingLines find(FileChannel channel, long endOffset, int count) throws IOException {
+        BackwardReader reader = new BackwardReader(channel);
+        long position = endOffset; // every line that starts at or after it has been found
+        if (position > 0 && reader.get(position - 1) == '\n') {
+            position -= position > 1 && reader.get(position - 2) == '\r' ? 2 : 1;
+        } else if (position > 0 && reader.get(position - 1) == '\r') {
+            position--;
+        }
+        int found = 0;
+        long lineStart = endOffset;
+        while (found < count && position > 0) {
+            long i = position - 1;
+            while (i >= 0 && reader.get(i) != '\n' && reader.get(i) != '\r') {
+                i--;
+            }
+            lineStart = i + 1;
+            found++;
+            if (i < 0) {
+                break;
+            }
+            position = reader.get(i) == '\n' && i > 0 && reader.get(i - 1) == '\r' ? i - 1 : i;
+        }
+        if (found < count && position == 0 && lineStart > 0 && endOffset > 0) {
+            lineStart = 0; // an empty first line
+            found++;
+        }
+        return new TrailingLines(found == 0 ? endOffset : lineStart, found);
+    }
+
+    /**
+     * Returns the largest number of lines from the end that the given rules count, which is how many last lines have
+     * to be found to resolve them.
+     */
+    public static int getLineCountToFind(List<DeletionRule> rulesCountedFromEnd) {
+        int lineCount = 0;
+        for (DeletionRule deletionRule : rulesCountedFromEnd) {
+            lineCount = Integer.max(lineCount, -deletionRule.getLine());
+        }
+        return lineCount;
+    }
+
+    /**
+     * Returns the rules with their lines counted from the start, for a file of the given number of lines. Rules that
+     * count more lines than that are dropped, like rules beyond the end of the file.
+     */
+    public static DeletionRuleIndex resolve(List<DeletionRule> rulesCountedFromEnd, int lineCount) {
+        List<DeletionRule> deletionRules = new ArrayList<>(rulesCountedFromEnd.size());
+        for (DeletionRule deletionRule : rulesCountedFromEnd) {
+            int line = lineCount + deletionRule.getLine() + 1;
+            if (line >= 1) {
+                deletionRules.add(new DeletionRule(line, deletionRule.getStartColumn(), deletionRule.getEndColumn()));
+            }
+        }
+        return new DeletionRuleIndex(deletionRules);
+    }
+
+    /**
+     * Returns the offset where the first of the last lines starts, or the end offset if no line has been found.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of last lines that have been found.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Reads single bytes at decreasing offsets through a block that is filled with positional reads.
+     */
+    private static class BackwardReader {
+
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        private long blockOffset;
+        private int blockLength;
+
+        private BackwardReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private byte get(long position) throws IOException {
+            if (position < blockOffset || position >= blockOffset + blockLength) {
+                blockOffset = Long.max(0, position - BLOCK_SIZE + 1);
+                block.clear();
+                block.limit((int) (position + 1 - blockOffset));
+                while (block.hasRemaining()) {
+                    if (channel.read(block, blockOffset + block.position()) < 0) {
+                        throw new IllegalStateException("File has been truncated while it is read.");
+                    }
+                }
+                blockLength = block.position();
+            }
+            return block.get((int) (position - blockOffset));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Input stream that holds back the last lines of another stream until its end is reached, so that rules whose line is
+ * counted from the end can be resolved when a stream cannot be read backwards. Only the bytes of the given number of
+ * last lines (and of the line being read) are buffered, whatever the size of the stream. Lines end like in
+ * {@link ByteLineReader}. This only works for charsets that pass
+ * {@link Utils#isAsciiCompatible(java.nio.charset.Charset)}.
+ */
+public class TrailingLinesInputStream extends InputStream {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private final int heldLineCount;
+    private final long[] lineStarts; // offsets of the last held lines, by line number modulo held line count
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private long bufferOffset; // offset of buffer[0] in the stream
+    private int bufferLength;
+    private int releasedLength; // bytes of the buffer that can be read
+    private int readPosition;
+    private int lineCount; // lines that have at least one byte so far
+    private boolean lineOpen;
+    private boolean carriageReturnPassed;
+    private boolean endOfInput;
+
+    public TrailingLinesInputStream(InputStream in, int heldLineCount) {
+        this.in = in;
+        this.heldLineCount = heldLineCount;
+        this.lineStarts = new long[heldLineCount];
+    }
+
+    /**
+     * Returns a cursor over the given rules, whose lines are resolved once the end of the stream is reached. Before
+     * that, its next line is the first line that is still held back, which no rule can come before.
+     */
+    public DeletionRuleCursor cursor(List<DeletionRule> rulesCountedFromEnd) {
+        return new DeletionRuleCursor() {
+
+            private DeletionRuleCursor resolvedCursor;
+
+            @Override
+            public int getNextLine() {
+                if (!endOfInput) {
+                    return Integer.max(0, lineCount - heldLineCount) + 1;
+                }
+                return getResolvedCursor().getNextLine();
+            }
+
+            @Override
+            public List<DeletionRule> getByLine(int line) {
+                if (!endOfInput) {
+                    return Collections.emptyList();
+                }
+                return getResolvedCursor().getByLine(line);
+            }
+
+            private DeletionRuleCursor getResolvedCursor() {
+                if (resolvedCursor == null) {
+                    resolvedCursor = TrailingLines.resolve(rulesCountedFromEnd, lineCount).cursor(1);
+                }
+                return resolvedCursor;
+            }
+        };
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (readPosition == releasedLength) {
+            if (endOfInput) {
+                return -1;
+            }
+            fill();
+        }
+        int count = Integer.min(len, releasedLength - readPosition);
+        System.arraycopy(buffer, readPosition, b, off, count);
+        readPosition += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void fill() throws IOException {
+        if (readPosition > 0) {
+            System.arraycopy(buffer, readPosition, buffer, 0, bufferLength - readPosition);
+            bufferOffset += readPosition;
+            bufferLength -= readPosition;
+            releasedLength -= readPosition;
+            readPosition = 0;
+        }
+        if (bufferLength == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, bufferLength, buffer.length - bufferLength);
+        if (read < 0) {
+            endOfInput = true;
+            releasedLength = bufferLength;
+            return;
+        }
+        for (int i = bufferLength; i < bufferLength + read; i++) {
+            byte b = buffer[i];
+            if (carriageReturnPassed) {
+                carriageReturnPassed = false;
+                if (b == '\n') {
+                    continue; // the rest of a "\r\n" line break
+                }
+            }
+            if (!lineOpen) {
+                lineOpen = true;
+                lineCount++;
+                lineStarts[lineCount % lineStarts.length] = bufferOffset + i;
+            }
+            if (b == '\n' || b == '\r') {
+                lineOpen = false;
+                carriageReturnPassed = b == '\r';
+            }
+        }
+        bufferLength += read;
+        if (lineCount > heldLineCount) {
+            // every line before the held ones has ended where the first held line starts
+            long releasedOffset = lineStarts[(lineCount - heldLineCount + 1) % lineStarts.length];
+            releasedLength = (int) (releasedOffset - bufferOffset);
+        }
+    }
+}
@@ -3,10 +3,13 @@ package com.eoral.deletecharsfromfilebyposition;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -45,6 +48,43 @@ public class Utils {
         }
     }
 
+    public static void deleteIfExists(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces the content of the file to the storage device.
+     */
+    public static void forceFile(Path filePath) {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces the entries of the directory, like the name of a file that was just renamed, to the storage device.
+     * Nothing is done on platforms where a directory cannot be opened, like Windows.
+     */
+    public static void forceDirectory(Path directoryPath) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directoryPath, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static void moveFileReplaceExisting(Path sourceFilePath, Path targetFilePath) {
         try {
             Files.move(sourceFilePath, targetFilePath, StandardCopyOption.REPLACE_EXISTING);
@@ -61,6 +101,27 @@ public class Utils {
         }
     }
 
+    /**
+     * Copies count bytes of the source channel, starting from the given position, to the target channel at the given
+     * target position. It uses {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} so
+     * the operating system can copy the bytes without passing them through the JVM.
+     */
+    public static void transfer(FileChannel source, long position, long count, FileChannel target, long targetPosition) {
+        try {
+            target.position(targetPosition);
+            long transferred = 0;
+            while (transferred < count) {
+                long n = source.transferTo(position + transferred, count - transferred, target);
+                if (n <= 0) {
+                    throw new IOException("Unexpected end of file while transferring bytes.");
+                }
+                transferred += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static boolean areFileContentsIdentical(Path path1, Path path2, Charset charset) {
         try {
             String content1 = Files.readString(path1, charset);
@@ -78,4 +139,32 @@ public class Utils {
         }
         return columns;
     }
+
+    /**
+     * Returns true if the charset can encode, encodes every ASCII char as the same single byte, and is not one of the
+     * ISO-2022 family charsets (including the Windows 5022x ones), which are stateful and are excluded by name. This
+     * does not mean that ASCII bytes never occur inside multibyte chars: in Shift_JIS, GBK and Big5, trail bytes can be
+     * ASCII letters or symbols. Line breaks can still be found in the raw bytes without decoding, since no byte of a
+     * multibyte char is an ASCII control char or space (so never "\r" or "\n") in any charset of the JDK that passes.
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        if (!charset.canEncode() || charset.name().contains("2022") || charset.name().contains("5022")) {
+            return false;
+        }
+        char[] chars = new char[128];
+        byte[] expectedBytes = new byte[128];
+        for (int i = 0; i < 128; i++) {
+            chars[i] = (char) i;
+            expectedBytes[i] = (byte) i;
+        }
+        return Arrays.equals(new String(chars).getBytes(charset), expectedBytes);
+    }
+
+    /**
+     * Returns true if the charset encodes every char as a single byte, so that the byte offset of a column can be
+     * computed without decoding.
+     */
+    public static boolean isSingleByte(Charset charset) {
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f;
+    }
 }
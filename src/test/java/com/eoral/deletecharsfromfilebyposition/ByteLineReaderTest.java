@@ -0,0 +1,123 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ByteLineReaderTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    List<String> readLines(String content, int windowSize, boolean memoryMapped) throws IOException {
+        Path path = tempDirectoryPath.resolve("lines.txt");
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteLineReader reader = new ByteLineReader(channel, 0, channel.size(), windowSize, memoryMapped);
+            long expectedLineStartOffset = 0;
+            while (reader.next()) {
+                assertEquals(expectedLineStartOffset, reader.getLineStartOffset());
+                assertEquals(reader.getLineLength(), reader.getLine().remaining());
+                assertEquals(reader.getTerminatorLength(), reader.getTerminator().remaining());
+                lines.add(StandardCharsets.UTF_8.decode(reader.getLineWithTerminator()).toString());
+                expectedLineStartOffset = reader.getLineEndOffset();
+            }
+            assertEquals(channel.size(), expectedLineStartOffset);
+        }
+        return lines;
+    }
+
+    @Test
+    void shouldRecognizeAllLineBreaks() throws IOException {
+        for (boolean memoryMapped : new boolean[] {false, true}) {
+            for (int windowSize = 1; windowSize <= 8; windowSize++) {
+                List<String> lines = readLines("a\nbb\r\nccc\rd\r\r\n\ne", windowSize, memoryMapped);
+                assertEquals(List.of("a\n", "bb\r\n", "ccc\r", "d\r", "\r\n", "\n", "e"), lines);
+            }
+        }
+    }
+
+    @Test
+    void shouldNotReturnExtraLineAfterLastLineBreak() throws IOException {
+        assertEquals(List.of("a\n", "b\r"), readLines("a\nb\r", 4, false));
+        assertEquals(List.of("a\n", "b\r"), readLines("a\nb\r", 4, true));
+    }
+
+    @Test
+    void shouldReturnNoLineWhenFileIsEmpty() throws IOException {
+        assertTrue(readLines("", 4, false).isEmpty());
+        assertTrue(readLines("", 4, true).isEmpty());
+    }
+
+    @Test
+    void shouldKeepPinnedLinesInWindow() throws IOException {
+        Path path = tempDirectoryPath.resolve("pinned.txt");
+        Files.write(path, "ab\ncd\nef\ngh\n".getBytes(StandardCharsets.UTF_8));
+        for (boolean memoryMapped : new boolean[] {false, true}) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteLineReader reader = new ByteLineReader(channel, 0, channel.size(), 2, memoryMapped);
+                assertTrue(reader.next());
+                assertTrue(reader.next());
+                reader.pin();
+                assertTrue(reader.next());
+                assertTrue(reader.next());
+                assertEquals(3, reader.getPinnedOffset());
+                assertEquals("cd\nef\n", StandardCharsets.UTF_8.decode(reader.getPinnedRun(false)).toString());
+                assertEquals("cd\nef\ngh\n", StandardCharsets.UTF_8.decode(reader.getPinnedRun(true)).toString());
+            }
+        }
+    }
+
+    @Test
+    void shouldStopAtEndOffset() throws IOException {
+        Path path = tempDirectoryPath.resolve("range.txt");
+        Files.write(path, "ab\ncd\nef\n".getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteLineReader reader = new ByteLineReader(channel, 3, 6, 16, true);
+            assertTrue(reader.next());
+            assertEquals(3, reader.getLineStartOffset());
+            assertEquals(2, reader.getLineLength());
+            assertEquals(1, reader.getTerminatorLength());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void shouldReturnLinesLongerThanMaxLineLengthInParts() throws IOException {
+        Path path = tempDirectoryPath.resolve("parts.txt");
+        Files.write(path, "abcdefg\r\nhij\nklmn".getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteLineReader reader = new ByteLineReader(channel, 0, channel.size(), 4, false);
+            reader.setMaxLineLength(4);
+            List<String> parts = new ArrayList<>();
+            while (reader.next()) {
+                StringBuilder line = new StringBuilder(StandardCharsets.UTF_8.decode(reader.getLine()));
+                while (!reader.isLineComplete()) {
+                    reader.nextPart();
+                    line.append('|').append(StandardCharsets.UTF_8.decode(reader.getLine()));
+                }
+                parts.add(line + StandardCharsets.UTF_8.decode(reader.getTerminator()).toString());
+            }
+            assertEquals(List.of("abcd|efg\r\n", "hij\n", "klmn|"), parts);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChunkPipeTest {
+
+    @Test
+    void shouldPassBytesToOtherThreadInOrder() throws IOException {
+        byte[] bytes = new byte[100000];
+        new Random(3).nextBytes(bytes);
+        ChunkPipe pipe = new ChunkPipe(1000, 2);
+        CompletableFuture<Void> writing = CompletableFuture.runAsync(() -> {
+            try (OutputStream output = pipe.getOutputStream()) {
+                for (int offset = 0; offset < bytes.length; offset += 777) {
+                    output.write(bytes, offset, Integer.min(777, bytes.length - offset));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try (InputStream input = pipe.getInputStream()) {
+            assertArrayEquals(bytes, input.readAllBytes());
+        }
+        writing.join();
+    }
+
+    @Test
+    void shouldThrowExceptionToReaderWhenWriterFails() {
+        ChunkPipe pipe = new ChunkPipe(1000, 2);
+        IllegalStateException cause = new IllegalStateException("failed");
+        CompletableFuture.runAsync(() -> pipe.fail(cause));
+        IOException thrown = assertThrows(IOException.class, () -> pipe.getInputStream().read());
+        assertEquals(cause, thrown.getCause());
+    }
+}
@@ -0,0 +1,160 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeletionBatcherTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+    final Charset charset = StandardCharsets.UTF_8;
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    Path createFile(String fileName, String content) throws IOException {
+        Path path = tempDirectoryPath.resolve(fileName);
+        Files.writeString(path, content, charset);
+        return path;
+    }
+
+    @Test
+    void shouldApplyRulesSubmittedFromManyThreadsInOnePass() throws Exception {
+        int lineCount = 200;
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int line = 1; line <= lineCount; line++) {
+            content.append("abc").append(line).append('\n');
+            expected.append("bc").append(line).append('\n');
+        }
+        Path filePath = createFile("shared.txt", content.toString());
+        List<Future<CompletableFuture<OutputCommitReport>>> submissions = new ArrayList<>();
+        ExecutorService submitters = Executors.newFixedThreadPool(8);
+        try (DeletionBatcher deletionBatcher = new DeletionBatcher(new DeletionRuleExecution(), charset, null,
+                new ExecutionOptions(), 2, TimeUnit.HOURS.toMillis(1), Integer.MAX_VALUE)) {
+            for (int line = 1; line <= lineCount; line++) {
+                int lineToDelete = line;
+                submissions.add(submitters.submit(() ->
+                        deletionBatcher.submit(filePath, List.of(new DeletionRule(lineToDelete, 1, 1)))));
+            }
+            List<CompletableFuture<OutputCommitReport>> results = new ArrayList<>();
+            for (Future<CompletableFuture<OutputCommitReport>> submission : submissions) {
+                results.add(submission.get());
+            }
+            assertFalse(results.get(0).isDone());
+            deletionBatcher.flush();
+            for (CompletableFuture<OutputCommitReport> result : results) {
+                assertSame(results.get(0).get(), result.get()); // a single pass
+            }
+        } finally {
+            submitters.shutdown();
+        }
+        assertEquals(expected.toString(), Files.readString(filePath, charset));
+        assertTrue(Files.isRegularFile(DeletionBatcher.getLockPath(filePath)));
+    }
+
+    @Test
+    void shouldApplyPendingRulesAfterMaxDelayOrMaxPendingRules() throws Exception {
+        Path delayedFilePath = createFile("delayed.txt", "abc\ndef\n");
+        Path fullFilePath = createFile("full.txt", "abc\ndef\n");
+        try (DeletionBatcher deletionBatcher = new DeletionBatcher(
+                new DeletionRuleExecution(), charset, null, new ExecutionOptions(), 1, 50, 2)) {
+            CompletableFuture<OutputCommitReport> delayed =
+                    deletionBatcher.submit(delayedFilePath, List.of(new DeletionRule(2, null, null)));
+            assertTrue(delayed.get(10, TimeUnit.SECONDS).isChanged());
+            assertEquals("abc\n", Files.readString(delayedFilePath, charset));
+
+            CompletableFuture<OutputCommitReport> first =
+                    deletionBatcher.submit(fullFilePath, List.of(new DeletionRule(1, 1, 1)));
+            CompletableFuture<OutputCommitReport> second =
+                    deletionBatcher.submit(fullFilePath, List.of(new DeletionRule(2, 3, 3)));
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals("bc\nde\n", Files.readString(fullFilePath, charset));
+        }
+    }
+
+    @Test
+    void shouldReportFailedPassToEverySubmission() throws Exception {
+        Path missingFilePath = tempDirectoryPath.resolve("missing.txt");
+        DeletionBatcher deletionBatcher = new DeletionBatcher(new DeletionRuleExecution(), charset, null,
+                new ExecutionOptions(), 1, TimeUnit.HOURS.toMillis(1), Integer.MAX_VALUE);
+        CompletableFuture<OutputCommitReport> result =
+                deletionBatcher.submit(missingFilePath, List.of(new DeletionRule(1, null, null)));
+        deletionBatcher.close();
+        ExecutionException thrown =
+                Assertions.assertThrows(ExecutionException.class, () -> result.get(0, TimeUnit.SECONDS));
+        assertTrue(thrown.getCause() instanceof RuntimeException);
+        Assertions.assertThrows(IllegalStateException.class, () ->
+                deletionBatcher.submit(missingFilePath, List.of(new DeletionRule(1, null, null))));
+    }
+
+    @Test
+    void shouldApplyBatchThatBecomesFullWhileBatcherIsClosed() throws Exception {
+        Path filePath = tempDirectoryPath.resolve("racing.txt");
+        DeletionRuleExecution deletionRuleExecution = new DeletionRuleExecution() {
+            @Override
+            public OutputCommitReport deleteCharsFromFile(
+                    Path inputFilePath, Charset inputFileCharset, List<DeletionRule> deletionRules,
+                    BehaviorAfterDeletionRulesExecutedForEachLine behavior, ExecutionOptions executionOptions) {
+                return null; // only whether the pass has run matters here
+            }
+        };
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        try {
+            for (int iteration = 0; iteration < 1000; iteration++) {
+                DeletionBatcher deletionBatcher = new DeletionBatcher(deletionRuleExecution, charset, null,
+                        new ExecutionOptions(), 1, TimeUnit.HOURS.toMillis(1), 2);
+                List<Future<List<CompletableFuture<OutputCommitReport>>>> submissions = new ArrayList<>();
+                CyclicBarrier start = new CyclicBarrier(5);
+                for (int i = 0; i < 4; i++) {
+                    submissions.add(submitters.submit(() -> {
+                        start.await();
+                        // every second submission fills the batch, some of them while the batcher is closed
+                        List<CompletableFuture<OutputCommitReport>> results = new ArrayList<>();
+                        try {
+                            for (int j = 0; j < 50; j++) {
+                                results.add(deletionBatcher.submit(filePath, List.of(new DeletionRule(1, 1, 1))));
+                            }
+                        } catch (IllegalStateException e) {
+                            // closed
+                        }
+                        return results;
+                    }));
+                }
+                start.await();
+                deletionBatcher.close();
+                for (Future<List<CompletableFuture<OutputCommitReport>>> submission : submissions) {
+                    for (CompletableFuture<OutputCommitReport> result : submission.get(10, TimeUnit.SECONDS)) {
+                        assertTrue(result.isDone()); // applied before close has returned
+                    }
+                }
+            }
+        } finally {
+            submitters.shutdown();
+        }
+    }
+}
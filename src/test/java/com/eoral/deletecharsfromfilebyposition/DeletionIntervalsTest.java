@@ -0,0 +1,165 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeletionIntervalsTest {
+
+    private static final String SMILE = "\uD83D\uDE00";
+    private static final String GRIN = "\uD83D\uDE01";
+
+    @Test
+    void shouldBeEmptyWhenThereIsNoRule() {
+        DeletionIntervals intervals = DeletionIntervals.of(new ArrayList<>());
+        assertTrue(intervals.isEmpty());
+        assertEquals("abc", intervals.applyTo("abc"));
+    }
+
+    @Test
+    void shouldIgnoreRulesThatDeleteLine() {
+        List<DeletionRule> rules = new ArrayList<>();
+        rules.add(TestUtils.createRuleThatDeletesLine(1));
+        assertTrue(DeletionIntervals.of(rules).isEmpty());
+    }
+
+    @Test
+    void shouldSortAndMergeOverlappingAndAdjacentRanges() {
+        List<DeletionRule> rules = new ArrayList<>();
+        rules.add(new DeletionRule(1, 20, 25));
+        rules.add(new DeletionRule(1, 3, 5));
+        rules.add(new DeletionRule(1, 6, 8));
+        rules.add(new DeletionRule(1, 4, 7));
+        rules.add(new DeletionRule(1, 24, null));
+        DeletionIntervals intervals = DeletionIntervals.of(rules);
+        assertEquals(2, intervals.size());
+        assertEquals(3, intervals.getStart(0));
+        assertEquals(8, intervals.getEnd(0));
+        assertEquals(20, intervals.getStart(1));
+        assertEquals(Integer.MAX_VALUE, intervals.getEnd(1));
+    }
+
+    @Test
+    void shouldNotAffectLineWhenAllRangesStartAfterLineEnd() {
+        List<DeletionRule> rules = new ArrayList<>();
+        rules.add(new DeletionRule(1, 5, 9));
+        DeletionIntervals intervals = DeletionIntervals.of(rules);
+        assertFalse(intervals.affects(4));
+        assertTrue(intervals.affects(5));
+    }
+
+    @Test
+    void shouldDeleteColumnsOfSingleRange() {
+        assertEquals("abfghij", applyTo("abcdefghij", "1:3-5"));
+        assertEquals("bcdefghij", applyTo("abcdefghij", "1:1-1"));
+        assertEquals("abcdefghi", applyTo("abcdefghij", "1:10-10"));
+        assertEquals("", applyTo("abcdefghij", "1:1-10"));
+    }
+
+    @Test
+    void shouldDeleteColumnsOfOverlappingRanges() {
+        assertEquals("aghij", applyTo("abcdefghij", "1:2-4,1:3-6"));
+        assertEquals("aghij", applyTo("abcdefghij", "1:3-6,1:2-4"));
+        assertEquals("abefghij", applyTo("abcdefghij", "1:3-4,1:3-4"));
+    }
+
+    @Test
+    void shouldDeleteColumnsOfAdjacentRanges() {
+        assertEquals("afghij", applyTo("abcdefghij", "1:2-3,1:4-5"));
+        assertEquals("afghij", applyTo("abcdefghij", "1:4-5,1:2-3"));
+        assertEquals("adghij", applyTo("abcdefghij", "1:2-3,1:5-6")); // one column apart
+    }
+
+    @Test
+    void shouldDeleteColumnsOfNestedRanges() {
+        assertEquals("aij", applyTo("abcdefghij", "1:2-8,1:4-5"));
+        assertEquals("aij", applyTo("abcdefghij", "1:4-5,1:2-8"));
+        assertEquals("aij", applyTo("abcdefghij", "1:2-8,1:2-2,1:8-8"));
+    }
+
+    @Test
+    void shouldDeleteColumnsOfOpenEndedRanges() {
+        assertEquals("abcdefg", applyTo("abcdefghij", "1:8-"));
+        assertEquals("", applyTo("abcdefghij", "1:1-"));
+        assertEquals("abc", applyTo("abcdefghij", "1:4-6,1:5-"));
+        assertEquals("ab", applyTo("abcdefghij", "1:3-,1:5-6"));
+        assertEquals("ab", applyTo("abcdefghij", "1:5-,1:3-"));
+        assertEquals("abcdefghi", applyTo("abcdefghij", "1:10-"));
+    }
+
+    @Test
+    void shouldIgnoreColumnsPastEndOfLine() {
+        assertEquals("abcdefgh", applyTo("abcdefghij", "1:9-20"));
+        assertEquals("abcdefghij", applyTo("abcdefghij", "1:11-12"));
+        assertEquals("abcdefghij", applyTo("abcdefghij", "1:11-"));
+        assertEquals("bcdefghij", applyTo("abcdefghij", "1:1-1,1:11-"));
+        assertEquals("", applyTo("", "1:1-3,1:2-"));
+    }
+
+    @Test
+    void shouldDeleteWholeSurrogatePairsOfCodePointColumns() {
+        String line = "a" + SMILE + "b" + GRIN + "c"; // 5 code points, 7 chars
+        assertEquals("ab" + GRIN + "c", applyToCodePoints(line, "1:2-2"));
+        assertEquals("b" + GRIN + "c", applyToCodePoints(line, "1:1-2"));
+        assertEquals("a" + GRIN + "c", applyToCodePoints(line, "1:2-3"));
+        assertEquals("a" + SMILE + "c", applyToCodePoints(line, "1:3-4"));
+        assertEquals("a" + SMILE + "b", applyToCodePoints(line, "1:4-"));
+        assertEquals("", applyToCodePoints(line, "1:1-"));
+    }
+
+    @Test
+    void shouldMergeRangesOfCodePointColumns() {
+        String line = "a" + SMILE + "b" + GRIN + "c";
+        assertEquals(GRIN + "c", applyToCodePoints(line, "1:1-2,1:2-3")); // overlapping
+        assertEquals("ac", applyToCodePoints(line, "1:3-4,1:2-2")); // adjacent
+        assertEquals("a", applyToCodePoints(line, "1:2-5,1:3-3")); // nested
+        assertEquals("a", applyToCodePoints(line, "1:4-,1:2-3")); // open-ended
+    }
+
+    @Test
+    void shouldCountCodePointsNotCharsForEndOfLine() {
+        String line = SMILE + GRIN; // 2 code points, 4 chars
+        assertEquals(line, applyToCodePoints(line, "1:3-4"));
+        assertEquals(line, applyToCodePoints(line, "1:3-"));
+        assertEquals(SMILE, applyToCodePoints(line, "1:2-"));
+        assertEquals(SMILE, applyToCodePoints(line, "1:2-9"));
+        assertEquals("a" + SMILE + "b" + GRIN + "c", applyToCodePoints("a" + SMILE + "b" + GRIN + "c", "1:6-"));
+    }
+
+    @Test
+    void shouldCountUnpairedSurrogateAsOneCodePoint() {
+        assertEquals("ab", applyToCodePoints("a\uD83Db", "1:2-2"));
+        assertEquals("a", applyToCodePoints("\uDE00a", "1:1-1"));
+        assertEquals("\uD83D", applyToCodePoints("\uD83D" + SMILE, "1:2-"));
+    }
+
+    @Test
+    void shouldKeepSameBytesAsCharsOfAsciiLine() {
+        List<DeletionRule> rules = new ArrayList<>();
+        rules.add(new DeletionRule(1, 2, 3));
+        rules.add(new DeletionRule(1, 6, null));
+        ByteBuffer line = ByteBuffer.wrap("xxabcdefg".getBytes(StandardCharsets.US_ASCII), 2, 7);
+        ByteBuffer rest = DeletionIntervals.of(rules).applyTo(line);
+        assertEquals("ade", StandardCharsets.US_ASCII.decode(rest).toString());
+        assertEquals(2, line.position());
+        assertSame(line, DeletionIntervals.of(List.of(new DeletionRule(1, 8, 9))).applyTo(line));
+    }
+
+    private String applyTo(String line, String rules) {
+        return DeletionIntervals.of(DeletionRuleParser.parseMultiple(rules)).applyTo(line);
+    }
+
+    private String applyToCodePoints(String line, String rules) {
+        return DeletionIntervals.of(DeletionRuleParser.parseMultiple(rules)).applyToCodePoints(line);
+    }
+}
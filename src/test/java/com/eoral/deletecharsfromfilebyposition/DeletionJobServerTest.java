@@ -0,0 +1,132 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeletionJobServerTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    Map<String, Map<String, Object>> run(DeletionJobServer server, String input) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        server.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+        Map<String, Map<String, Object>> resultsById = new HashMap<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            Map<String, Object> result = SimpleJson.parseObject(line);
+            resultsById.put((String) result.get("id"), result);
+        }
+        return resultsById;
+    }
+
+    String createJob(String id, Path path, String rules, boolean deleteLineIfBlank) {
+        Map<String, Object> job = new HashMap<>();
+        job.put("id", id);
+        job.put("file", path.toString());
+        job.put("charset", "UTF-8");
+        job.put("rules", rules);
+        job.put("deleteLineIfBlank", deleteLineIfBlank);
+        return SimpleJson.toJson(job) + "\n";
+    }
+
+    @Test
+    void shouldRunJobsAndReportTheirStatus() throws IOException {
+        Path path1 = tempDirectoryPath.resolve("file1.txt");
+        Path path2 = tempDirectoryPath.resolve("file2.txt");
+        Files.writeString(path1, "abcde\n  x\nfgh\n", StandardCharsets.UTF_8);
+        Files.writeString(path2, "12345\n", StandardCharsets.UTF_8);
+        String input = createJob("a", path1, "1:2-3,2:3-3", true)
+                + "\n"
+                + createJob("b", path2, "1:5-5", false)
+                + createJob("c", tempDirectoryPath.resolve("missing.txt"), "1", false)
+                + createJob("d", path2, "1:x", false)
+                + "{\"id\": \"e\", \"charset\": \"UTF-8\"}\n"
+                + "not json\n";
+        Map<String, Map<String, Object>> resultsById = run(new DeletionJobServer(2), input);
+        assertEquals(6, resultsById.size());
+        assertEquals("ok", resultsById.get("a").get("status"));
+        assertEquals("ok", resultsById.get("b").get("status"));
+        assertEquals("error", resultsById.get("c").get("status"));
+        assertEquals("error", resultsById.get("d").get("status"));
+        assertEquals("error", resultsById.get("e").get("status"));
+        assertEquals("error", resultsById.get(null).get("status"));
+        assertTrue(resultsById.get("a").get("runMillis") instanceof Long);
+        assertTrue(resultsById.get("a").get("waitMillis") instanceof Long);
+        assertNull(resultsById.get("a").get("error"));
+        assertEquals(List.of("ade", "fgh"), Files.readAllLines(path1, StandardCharsets.UTF_8));
+        assertEquals(List.of("1234"), Files.readAllLines(path2, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldSerializeJobsThatTargetSameFile() throws IOException {
+        Path path = tempDirectoryPath.resolve("same.txt");
+        Path otherPath = tempDirectoryPath.resolve("other.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append("0123456789abcdefghijklmnopqrstuvwxyz\n");
+        }
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+        Files.writeString(otherPath, content, StandardCharsets.UTF_8);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            input.append(createJob("same" + i, path, "1:1-1", false));
+            input.append(createJob("other" + i, otherPath, "2000:1-1", false));
+        }
+        Map<String, Map<String, Object>> resultsById = run(new DeletionJobServer(4, 3), input.toString());
+        assertEquals(60, resultsById.size());
+        for (Map<String, Object> result : resultsById.values()) {
+            assertEquals("ok", result.get("status"));
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals("uvwxyz", lines.get(0));
+        List<String> otherLines = Files.readAllLines(otherPath, StandardCharsets.UTF_8);
+        assertEquals("uvwxyz", otherLines.get(1999));
+    }
+
+    @Test
+    void shouldRunLaterJobsOfFileWhenResultOfEarlierJobCannotBeWritten() throws IOException {
+        Path path = tempDirectoryPath.resolve("unwritable-result.txt");
+        Files.writeString(path, "abc\n", StandardCharsets.UTF_8);
+        String input = createJob("a", path, "1:1-1", false) + createJob("b", path, "1:1-1", false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+
+            private boolean failed;
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                if (!failed) {
+                    failed = true;
+                    throw new UncheckedIOException(new IOException("Result cannot be written."));
+                }
+                super.write(b, off, len);
+            }
+        };
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> new DeletionJobServer(1, 1)
+                .run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out));
+        assertEquals("c\n", Files.readString(path, StandardCharsets.UTF_8));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"id\":\"b\""));
+    }
+}
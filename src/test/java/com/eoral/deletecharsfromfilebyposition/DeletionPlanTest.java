@@ -0,0 +1,77 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeletionPlanTest {
+
+    @Test
+    void shouldResolveRulesOfEachLineAheadOfTime() {
+        DeletionPlan deletionPlan = DeletionPlan.compile("1:2-4,1:3-6,1:8-,2:1-,2:4-5,3:2-2,3,5-9~2:1-1");
+        assertEquals(List.of("1:2-6", "1:8-", "2:1-", "3", "5-9~2:1-1"), toStrings(deletionPlan.getRules()));
+        assertEquals(1, deletionPlan.getFirstLine());
+        assertEquals(9, deletionPlan.getLastLine());
+    }
+
+    @Test
+    void shouldGiveSameResultAsRulesItIsCompiledFrom() {
+        // a range whose columns overlap and touch those of single lines, and rules that a deleted line absorbs
+        String deletionRulesStr = "2-6~2:3-4,4:1-2,4:5-5,5:1-,5:3-3,7:2-2,7";
+        List<String> expected =
+                Arrays.asList("abcdefgh", "abefgh", "abcdefgh", "fgh", "", "abefgh", null, "abcdefgh");
+        DeletionRuleExecution deletionRuleExecution = new DeletionRuleExecution();
+        DeletionRuleIndex.Cursor rulesCursor =
+                new DeletionRuleIndex(DeletionRuleParser.parseMultiple(deletionRulesStr)).cursor();
+        DeletionRuleIndex.Cursor planCursor = DeletionPlan.compile(deletionRulesStr).cursor();
+        for (int line = 1; line <= expected.size(); line++) {
+            assertEquals(expected.get(line - 1),
+                    deletionRuleExecution.deleteCharsFromLine("abcdefgh", rulesCursor.getByLine(line), null));
+            assertEquals(expected.get(line - 1),
+                    deletionRuleExecution.deleteCharsFromLine("abcdefgh", planCursor.getByLine(line), null));
+        }
+    }
+
+    @Test
+    void shouldWriteAndReadBackPlan() throws IOException {
+        DeletionPlan deletionPlan = DeletionPlan.compile("100000:2-4,7,7000:1-,3-:5-,10-20~3,*:300000-");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        deletionPlan.writeTo(out);
+        DeletionPlan readPlan = DeletionPlan.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(toStrings(deletionPlan.getRules()), toStrings(readPlan.getRules()));
+        assertThrows(IllegalArgumentException.class,
+                () -> DeletionPlan.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3, 4})));
+    }
+
+    private List<String> toStrings(List<DeletionRule> deletionRules) {
+        List<String> strings = new ArrayList<>();
+        for (DeletionRule deletionRule : deletionRules) {
+            StringBuilder str = new StringBuilder();
+            str.append(deletionRule.getLine());
+            if (!deletionRule.coversSingleLine()) {
+                str.append('-').append(deletionRule.getLastLine() == null ? "" : deletionRule.getLastLine());
+                if (deletionRule.getLineStep() != 1) {
+                    str.append('~').append(deletionRule.getLineStep());
+                }
+            }
+            if (deletionRule.getStartColumn() != null) {
+                str.append(':').append(deletionRule.getStartColumn()).append('-');
+                if (deletionRule.getEndColumn() != null) {
+                    str.append(deletionRule.getEndColumn());
+                }
+            }
+            strings.add(str.toString());
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,53 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeletionPreviewTest {
+
+    @Test
+    void shouldWriteJsonLineForEveryLineThatHasRulesAndStopAfterLastOne() {
+        BehaviorAfterDeletionRulesExecutedForEachLine behavior = new BehaviorAfterDeletionRulesExecutedForEachLine();
+        behavior.setDeleteLineIfBlank(true);
+        byte[] content = "abcdef\r\nskip\n x \nghi\n".getBytes(StandardCharsets.UTF_8);
+        InputStream failingRest = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("Input was read after the last line that has rules.");
+            }
+        };
+        StringWriter output = new StringWriter();
+        new DeletionPreview(new DeletionRuleExecution(), behavior).preview(
+                new SequenceInputStream(new ByteArrayInputStream(content), failingRest), StandardCharsets.UTF_8,
+                new DeletionRuleIndex(DeletionRuleParser.parseMultiple("1:2-3,1:5-9,3:2-2,4")), output);
+        assertEquals(""
+                + "{\"line\":1,\"original\":\"abcdef\",\"removed\":[{\"startColumn\":2,\"endColumn\":3,\"text\":\"bc\"},"
+                + "{\"startColumn\":5,\"endColumn\":6,\"text\":\"ef\"}],\"result\":\"ad\",\"lineDeleted\":false}\n"
+                + "{\"line\":3,\"original\":\" x \",\"removed\":[{\"startColumn\":2,\"endColumn\":2,\"text\":\"x\"}],"
+                + "\"result\":null,\"lineDeleted\":true}\n"
+                + "{\"line\":4,\"original\":\"ghi\",\"removed\":[{\"startColumn\":1,\"endColumn\":3,\"text\":\"ghi\"}],"
+                + "\"result\":null,\"lineDeleted\":true}\n",
+                output.toString());
+    }
+
+    @Test
+    void shouldPreviewWhenCharsetIsNotAsciiCompatible() {
+        Charset utf16 = StandardCharsets.UTF_16;
+        StringWriter output = new StringWriter();
+        new DeletionPreview(new DeletionRuleExecution(), null).preview(
+                new ByteArrayInputStream("abc\nd\u00e9f".getBytes(utf16)), utf16,
+                new DeletionRuleIndex(DeletionRuleParser.parseMultiple("2:2-")), output);
+        assertEquals("{\"line\":2,\"original\":\"d\u00e9f\",\"removed\":[{\"startColumn\":2,\"endColumn\":3,"
+                + "\"text\":\"\u00e9f\"}],\"result\":\"d\",\"lineDeleted\":false}\n", output.toString());
+    }
+}
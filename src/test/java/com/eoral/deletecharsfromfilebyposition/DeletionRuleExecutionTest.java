@@ -1,19 +1,40 @@
 package com.eoral.deletecharsfromfilebyposition;
 
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -36,6 +57,60 @@ public class DeletionRuleExecutionTest {
         return pathOfCopy;
     }
 
+    Path createFileInTempDirectory(String fileName, String content, Charset charset) {
+        Path path = tempDirectoryPath.resolve(fileName);
+        try {
+            Files.write(path, content.getBytes(charset));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return path;
+    }
+
+    String readFile(Path path, Charset charset) {
+        try {
+            return Files.readString(path, charset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the task on a file with the given content and an empty output file, and returns what it has written.
+     */
+    String processFile(String content, FileChannelTask task) throws IOException {
+        Path inputPath = createFileInTempDirectory("input.txt", content, charset);
+        Path outputPath = tempDirectoryPath.resolve("output.txt");
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            task.run(input, output, outputPath);
+        }
+        return readFile(outputPath, charset);
+    }
+
+    /**
+     * Formats rules of single lines the way they are written in a rules file, one per line.
+     */
+    String formatRules(List<DeletionRule> deletionRules) {
+        StringBuilder deletionRulesStr = new StringBuilder();
+        for (DeletionRule deletionRule : deletionRules) {
+            deletionRulesStr.append(deletionRule.getLine());
+            if (deletionRule.getStartColumn() != null) {
+                deletionRulesStr.append(':').append(deletionRule.getStartColumn()).append('-');
+                if (deletionRule.getEndColumn() != null) {
+                    deletionRulesStr.append(deletionRule.getEndColumn());
+                }
+            }
+            deletionRulesStr.append('\n');
+        }
+        return deletionRulesStr.toString();
+    }
+
+    interface FileChannelTask {
+        void run(FileChannel input, FileChannel output, Path outputPath) throws IOException;
+    }
+
     @Test
     void shouldReturnLineAsIsWhenThereIsNoRule() {
         String line = "abc";
@@ -265,4 +340,526 @@ public class DeletionRuleExecutionTest {
         Path expectedFilePath = resourcesDirPath.resolve("base-test-file-after-deletion.txt");
         assertTrue(Utils.areFileContentsIdentical(testFilePath, expectedFilePath, charset));
     }
+
+    @Test
+    void shouldKeepLineBreaksAndCopyLinesAfterLastRuleAsTheyAre() {
+        Path testFilePath = createFileInTempDirectory("line-breaks.txt", "abc\r\ndef\r\nghi\rjkl\nmno", charset);
+        new DeletionRuleExecution().deleteCharsFromFile(testFilePath.toString(), charset.name(), "1:2-2,2", null);
+        assertEquals("ac\r\nghi\rjkl\nmno", readFile(testFilePath, charset));
+    }
+
+    @Test
+    void shouldDeleteCharsFromLastLineWithoutLineBreak() {
+        Path testFilePath = createFileInTempDirectory("last-line.txt", "abc\ndef", charset);
+        new DeletionRuleExecution().deleteCharsFromFile(testFilePath.toString(), charset.name(), "2:1-1,5", null);
+        assertEquals("abc\nef", readFile(testFilePath, charset));
+    }
+
+    @Test
+    void shouldDeleteCharsFromFileWhenCharsetIsNotAsciiCompatible() {
+        Charset utf16 = StandardCharsets.UTF_16;
+        Path testFilePath = createFileInTempDirectory("utf-16.txt", "abc\nd\u00e9f\nghi\n", utf16);
+        new DeletionRuleExecution().deleteCharsFromFile(testFilePath.toString(), utf16.name(), "2:2-2,3", null);
+        assertEquals("abc" + System.lineSeparator() + "df" + System.lineSeparator(), readFile(testFilePath, utf16));
+    }
+
+    @Test
+    void shouldDeleteCharsFromFileInPlace() {
+        Path testFilePath = createCopyOfBaseTestFileInTempDirectory();
+        String deletionRulesStr = "2,3,4:1-,5:1-,7:2-2,7:5-10,7:9-15,8:3-3,8:6-11,8:10-16,9:4-4,9:7-12,9:11-17,10:5-5,10:8-13,10:12-18";
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setInPlace(true);
+        new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath.toString(), charset.name(), deletionRulesStr, null, executionOptions);
+        Path expectedFilePath = resourcesDirPath.resolve("base-test-file-after-deletion.txt");
+        assertTrue(Utils.areFileContentsIdentical(testFilePath, expectedFilePath, charset));
+    }
+
+    @Test
+    void shouldShiftBytesAfterLastRuleLineWhenDeletingInPlace() {
+        Path testFilePath = createFileInTempDirectory("in-place.txt", "abc\r\ndef\nghi\njkl", charset);
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setInPlace(true);
+        new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath.toString(), charset.name(), "2:2-3,9", null, executionOptions);
+        assertEquals("abc\r\nd\nghi\njkl", readFile(testFilePath, charset));
+    }
+
+    @Test
+    void shouldKeepMalformedBytesAsTheyAreWhenDeletingInPlace() throws IOException {
+        byte[] content = {'a', 'b', 'c', '\n', 'x', (byte) 0xff, (byte) 0xfe, 'y', 'z', '\n', 't', '\n'};
+        byte[] expected = {'b', 'c', '\n', 'x', (byte) 0xff, 'z', '\n', 't', '\n'};
+        for (int maxLineLength : new int[] {ByteLineEngine.DEFAULT_MAX_LINE_LENGTH, 2}) {
+            Path testFilePath = tempDirectoryPath.resolve("in-place-malformed.txt");
+            Files.write(testFilePath, content);
+            try (FileChannel channel =
+                         FileChannel.open(testFilePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // each malformed byte is one column, so column 3 is 0xfe and column 4 is y
+                new ByteLineEngine(new DeletionRuleExecution(), charset, null, maxLineLength).processInPlace(
+                        channel, new DeletionRuleIndex(DeletionRuleParser.parseMultiple("1:1-1,2:3-4")));
+            }
+            assertArrayEquals(expected, Files.readAllBytes(testFilePath));
+        }
+    }
+
+    @Test
+    void shouldRejectInPlaceModeWhenCharsetIsNotAsciiCompatible() {
+        Path testFilePath = createFileInTempDirectory("in-place-utf-16.txt", "abc", StandardCharsets.UTF_16);
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setInPlace(true);
+        IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new DeletionRuleExecution().deleteCharsFromFile(
+                    testFilePath.toString(), StandardCharsets.UTF_16.name(), "1:1-1", null, executionOptions);
+        });
+        assertEquals("In-place mode is not supported for charset UTF-16.", thrown.getMessage());
+    }
+
+    /**
+     * The one randomized test: every engine is compared with {@link DeletionRuleExecution#deleteCharsFromLine} on the
+     * same random files and rules. Edge cases of each engine have targeted tests of their own.
+     */
+    @Test
+    void shouldGiveSameResultAsLineByLineExecutionForRandomFiles() throws IOException {
+        Random random = new Random(7);
+        for (int iteration = 0; iteration < 50; iteration++) {
+            int lineCount = 1 + random.nextInt(200);
+            List<DeletionRule> deletionRules = TestUtils.createRandomRules(random, lineCount, random.nextInt(60));
+            String[] contentAndExpectedResult = TestUtils.createRandomContentAndExpectedResult(random, lineCount, deletionRules);
+            for (boolean inPlace : new boolean[] {false, true}) {
+                Path testFilePath = createFileInTempDirectory("random.txt", contentAndExpectedResult[0], charset);
+                ExecutionOptions executionOptions = new ExecutionOptions();
+                executionOptions.setInPlace(inPlace);
+                new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset, deletionRules, null, executionOptions);
+                assertEquals(contentAndExpectedResult[1], readFile(testFilePath, charset));
+            }
+            Path testFilePath = createFileInTempDirectory("random.txt", contentAndExpectedResult[0], charset);
+            ExecutionOptions executionOptions = new ExecutionOptions();
+            executionOptions.setDeletionRulesMemoryBudget(5 * DeletionRuleSorter.ESTIMATED_BYTES_PER_RULE);
+            new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset,
+                    new StringReader(formatRules(deletionRules)), null, executionOptions);
+            assertEquals(contentAndExpectedResult[1], readFile(testFilePath, charset));
+            ByteArrayOutputStream streamOutput = new ByteArrayOutputStream();
+            new DeletionRuleExecution().deleteCharsFromStream(new ByteArrayInputStream(
+                    contentAndExpectedResult[0].getBytes(charset)), streamOutput, charset, deletionRules, null);
+            assertEquals(contentAndExpectedResult[1], streamOutput.toString(charset));
+            StringWriter writer = new StringWriter();
+            new DeletionRuleExecution().deleteCharsFromStream(
+                    new StringReader(contentAndExpectedResult[0]), writer, deletionRules, null);
+            assertEquals(contentAndExpectedResult[1], writer.toString());
+            // small batches, so that lines and blocks of lines are spread over many of them
+            PipelinedLineEngine pipelinedLineEngine = new PipelinedLineEngine(new DeletionRuleExecution(), charset,
+                    null, 1 + random.nextInt(200), 1 + random.nextInt(4));
+            assertEquals(contentAndExpectedResult[1], processFile(contentAndExpectedResult[0],
+                    (input, output, outputPath) ->
+                            pipelinedLineEngine.process(input, output, new DeletionRuleIndex(deletionRules))));
+            ByteLineEngine byteLineEngine = new ByteLineEngine(new DeletionRuleExecution(), charset, null);
+            int parallelism = 1 + random.nextInt(4);
+            long minChunkSize = 1 + random.nextInt(200); // small chunks, so that there are many of them
+            assertEquals(contentAndExpectedResult[1], processFile(contentAndExpectedResult[0],
+                    (input, output, outputPath) -> new ParallelByteLineEngine(byteLineEngine, parallelism, minChunkSize)
+                            .process(input, output, outputPath, new DeletionRuleIndex(deletionRules))));
+        }
+    }
+
+    @Test
+    void shouldDeleteCharsWithRulesReadFromReaderAndSortedOnDisk() {
+        // with room for two rules, the rules of lines 1 and 3 are spread over three sorted runs
+        String deletionRulesStr = "3:1-1\n1:2-2,4\n3:6-\n1:5-5,2-3:3-3\n1:2-3";
+        for (boolean inPlace : new boolean[] {false, true}) {
+            Path testFilePath = createFileInTempDirectory("rules-from-reader.txt", "abcdef\nghijkl\nmnopqr\nstuvwx\n",
+                    charset);
+            ExecutionOptions executionOptions = new ExecutionOptions();
+            executionOptions.setInPlace(inPlace);
+            executionOptions.setDeletionRulesMemoryBudget(2 * DeletionRuleSorter.ESTIMATED_BYTES_PER_RULE);
+            new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset,
+                    new StringReader(deletionRulesStr), null, executionOptions);
+            assertEquals("adf\nghjkl\nnpq\n", readFile(testFilePath, charset));
+        }
+    }
+
+    @Test
+    void shouldDeleteCharsFromLineRangesTogetherWithRulesOfSingleLines() {
+        String deletionRulesStr = "2-6~2:1-1,5-:4-,*:2-2,3,8:1-1,1:4-4,20-:1-";
+        String content = "abcd\n".repeat(8);
+        for (int mode = 0; mode < 3; mode++) {
+            Path testFilePath = createFileInTempDirectory("line-ranges.txt", content, charset);
+            ExecutionOptions executionOptions = new ExecutionOptions();
+            executionOptions.setInPlace(mode == 1);
+            if (mode == 2) {
+                // the ranges stay in memory while each rule of a single line goes to a sorted run of its own
+                executionOptions.setDeletionRulesMemoryBudget(DeletionRuleSorter.ESTIMATED_BYTES_PER_RULE);
+            }
+            new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset,
+                    new StringReader(deletionRulesStr.replace(',', '\n')), null, executionOptions);
+            assertEquals("ac\ncd\ncd\nac\nc\nac\nc\n", readFile(testFilePath, charset));
+        }
+    }
+
+    @Test
+    void shouldDeleteCharsFromStreamAndKeepLineBreaks() {
+        ByteArrayInputStream input = new ByteArrayInputStream("abc\r\ndef\r\nghi\rjkl\nmno".getBytes(charset));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new DeletionRuleExecution().deleteCharsFromStream(
+                input, output, charset, DeletionRuleParser.parseMultiple("1:2-2,2,4:1-1"), null);
+        assertEquals("ac\r\nghi\rkl\nmno", output.toString(charset));
+    }
+
+    @Test
+    void shouldDeleteCharsFromStreamWhenCharsetIsNotAsciiCompatible() {
+        Charset utf16 = StandardCharsets.UTF_16;
+        ByteArrayInputStream input = new ByteArrayInputStream("abc\r\nd\u00e9f\rghi\njkl".getBytes(utf16));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new DeletionRuleExecution().deleteCharsFromStream(
+                input, output, utf16, DeletionRuleParser.parseMultiple("2:2-2,3"), null);
+        assertEquals("abc\r\ndf\rjkl", output.toString(utf16));
+    }
+
+    @Test
+    void shouldDeleteCharsFromStreamThatIsReadOneByteAtATime() {
+        String content = "abc\r\nd\u00e9f\r\rghi\njkl";
+        InputStream input = new ByteArrayInputStream(content.getBytes(charset)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Integer.min(len, 1)); // splits "\r\n" and the bytes of "\u00e9"
+            }
+        };
+        List<DeletionRule> deletionRules = DeletionRuleParser.parseMultiple("1:3-3,2:2-2,3,4:1-1,5:1-,9");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new DeletionRuleExecution().deleteCharsFromStream(input, output, charset, deletionRules, null);
+        assertEquals("ab\r\ndf\rhi\n", output.toString(charset));
+        StringWriter writer = new StringWriter();
+        new DeletionRuleExecution().deleteCharsFromStream(new StringReader(content), writer, deletionRules, null);
+        assertEquals("ab\r\ndf\rhi\n", writer.toString());
+    }
+
+    @Test
+    void shouldDeleteCharsFromGzipFileAndKeepItCompressed() throws IOException {
+        // many more lines than fit in one chunk between the stages, with rules in the first, middle and last of them
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int line = 1; line <= 50000; line++) {
+            content.append("line ").append(line).append('\n');
+            if (line == 1) {
+                expected.append(line).append('\n');
+            } else if (line == 50000) {
+                expected.append('\n');
+            } else if (line != 25000) {
+                expected.append("line ").append(line).append('\n');
+            }
+        }
+        Path testFilePath = tempDirectoryPath.resolve("compressed.txt.gz");
+        try (GZIPOutputStream output = new GZIPOutputStream(Files.newOutputStream(testFilePath))) {
+            output.write(content.toString().getBytes(charset));
+        }
+        new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1:1-5,25000,50000:1-"), null);
+        assertTrue(GzipPipeline.isGzipFile(testFilePath));
+        try (GZIPInputStream input = new GZIPInputStream(Files.newInputStream(testFilePath))) {
+            assertEquals(expected.toString(), new String(input.readAllBytes(), charset));
+        }
+    }
+
+    @Test
+    void shouldLeaveCorruptGzipFileAsItIs() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+            output.write("abc\ndef\n".repeat(10000).getBytes(charset));
+        }
+        byte[] content = Arrays.copyOf(compressed.toByteArray(), compressed.size() / 2);
+        Path testFilePath = tempDirectoryPath.resolve("corrupt.txt.gz");
+        Files.write(testFilePath, content);
+        assertThrows(UncheckedIOException.class, () -> new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1"), null));
+        assertArrayEquals(content, Files.readAllBytes(testFilePath));
+    }
+
+    @Test
+    void shouldReplaceFileThroughSiblingTempFileWithoutCopying() throws IOException {
+        Path directoryPath = Files.createDirectories(tempDirectoryPath.resolve("sibling"));
+        Path testFilePath = directoryPath.resolve("sibling.txt");
+        Files.write(testFilePath, "abc\ndef\n".getBytes(charset));
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setFsyncPolicy(FsyncPolicy.FILE_AND_DIRECTORY);
+        OutputCommitReport report = new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1"), null, executionOptions);
+        assertEquals("def\n", readFile(testFilePath, charset));
+        assertEquals("sibling-temp-file", report.getStrategyName());
+        assertEquals(testFilePath, report.getResultFilePath());
+        assertEquals(4, report.getResultSize());
+        assertEquals(0, report.getBytesCopied());
+        try (Stream<Path> files = Files.list(directoryPath)) {
+            assertEquals(List.of(testFilePath), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void shouldLeaveFileUntouchedWhenRulesChangeNothing() throws IOException {
+        Path directoryPath = Files.createDirectories(tempDirectoryPath.resolve("unchanged"));
+        Path testFilePath = directoryPath.resolve("unchanged.txt");
+        Files.write(testFilePath, "abc\ndef\n".getBytes(charset));
+        FileTime lastModifiedTime = FileTime.fromMillis(1_000_000_000_000L);
+        for (boolean inPlace : new boolean[] {false, true}) {
+            Files.setLastModifiedTime(testFilePath, lastModifiedTime);
+            ExecutionOptions executionOptions = new ExecutionOptions();
+            executionOptions.setInPlace(inPlace);
+            OutputCommitReport report = new DeletionRuleExecution().deleteCharsFromFile(
+                    testFilePath, charset, DeletionRuleParser.parseMultiple("1:4-9,2:5-,3,7:1-2"), null, executionOptions);
+            assertFalse(report.isChanged());
+            assertEquals(8, report.getResultSize());
+            assertEquals("abc\ndef\n", readFile(testFilePath, charset));
+            assertEquals(lastModifiedTime, Files.getLastModifiedTime(testFilePath));
+            try (Stream<Path> files = Files.list(directoryPath)) {
+                assertEquals(List.of(testFilePath), files.collect(Collectors.toList()));
+            }
+        }
+
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setLineOffsetIndexEnabled(true);
+        LineOffsetIndex.Builder builder = new LineOffsetIndex.Builder(LineOffsetIndex.DEFAULT_INTERVAL);
+        builder.setLineCount(2);
+        builder.writeFor(testFilePath);
+        assertFalse(new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("3:1-1"), null, executionOptions).isChanged());
+        assertEquals(lastModifiedTime, Files.getLastModifiedTime(testFilePath));
+    }
+
+    @Test
+    void shouldLeaveGzipFileUntouchedWhenRulesChangeNothing() throws IOException {
+        Path directoryPath = Files.createDirectories(tempDirectoryPath.resolve("unchanged-gzip"));
+        Path testFilePath = directoryPath.resolve("unchanged.txt.gz");
+        try (GZIPOutputStream output = new GZIPOutputStream(Files.newOutputStream(testFilePath))) {
+            output.write("abc\ndef\n".getBytes(charset));
+        }
+        byte[] content = Files.readAllBytes(testFilePath);
+        FileTime lastModifiedTime = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(testFilePath, lastModifiedTime);
+        OutputCommitReport report = new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset,
+                DeletionRuleParser.parseMultiple("1:4-9,2:5-,7:1-2"), null, new ExecutionOptions());
+        assertFalse(report.isChanged());
+        assertArrayEquals(content, Files.readAllBytes(testFilePath));
+        assertEquals(lastModifiedTime, Files.getLastModifiedTime(testFilePath));
+        try (Stream<Path> files = Files.list(directoryPath)) {
+            assertEquals(List.of(testFilePath), files.collect(Collectors.toList()));
+        }
+
+        assertTrue(new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset,
+                DeletionRuleParser.parseMultiple("2:1-1"), null, new ExecutionOptions()).isChanged());
+        try (GZIPInputStream input = new GZIPInputStream(Files.newInputStream(testFilePath))) {
+            assertEquals("abc\nef\n", new String(input.readAllBytes(), charset));
+        }
+    }
+
+    @Test
+    void shouldContinueInterruptedResumableRunFromLastCheckpoint() throws IOException {
+        Path directoryPath = Files.createDirectories(tempDirectoryPath.resolve("resumable"));
+        Path testFilePath = directoryPath.resolve("resumable.txt");
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        List<DeletionRule> deletionRules = new ArrayList<>();
+        for (int line = 1; line <= 1000; line++) {
+            content.append("line ").append(line).append('\n');
+            if (line <= 900) {
+                deletionRules.add(new DeletionRule(line, 1, 1));
+                expected.append("ine ").append(line).append('\n');
+            } else {
+                expected.append("line ").append(line).append('\n');
+            }
+        }
+        Files.write(testFilePath, content.toString().getBytes(charset));
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setCheckpointInterval(1000);
+        int[] processedLineCount = new int[1];
+        DeletionRuleExecution interruptedDeletionRuleExecution = new DeletionRuleExecution() {
+            @Override
+            public String deleteCharsFromLine(String line, List<DeletionRule> deletionRules,
+                                              BehaviorAfterDeletionRulesExecutedForEachLine behavior) {
+                if (++processedLineCount[0] == 600) {
+                    throw new IllegalStateException("Killed on purpose.");
+                }
+                return super.deleteCharsFromLine(line, deletionRules, behavior);
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> interruptedDeletionRuleExecution.deleteCharsFromFile(
+                testFilePath, charset, deletionRules, null, executionOptions));
+        assertEquals(content.toString(), readFile(testFilePath, charset));
+        assertTrue(Files.exists(CheckpointJournal.getJournalPath(testFilePath)));
+        assertTrue(Files.exists(CheckpointJournal.getOutputPath(testFilePath)));
+
+        processedLineCount[0] = 0;
+        DeletionRuleExecution countingDeletionRuleExecution = new DeletionRuleExecution() {
+            @Override
+            public String deleteCharsFromLine(String line, List<DeletionRule> deletionRules,
+                                              BehaviorAfterDeletionRulesExecutedForEachLine behavior) {
+                processedLineCount[0]++;
+                return super.deleteCharsFromLine(line, deletionRules, behavior);
+            }
+        };
+        OutputCommitReport report = countingDeletionRuleExecution.deleteCharsFromFile(
+                testFilePath, charset, deletionRules, null, executionOptions);
+        assertTrue(report.isChanged());
+        assertEquals(expected.toString(), readFile(testFilePath, charset));
+        assertTrue(processedLineCount[0] < 450); // lines before the last checkpoint are not processed again
+        try (Stream<Path> files = Files.list(directoryPath)) {
+            assertEquals(List.of(testFilePath), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void shouldStartResumableRunOverWhenRulesHaveChanged() throws IOException {
+        Path directoryPath = Files.createDirectories(tempDirectoryPath.resolve("resumable-changed"));
+        Path testFilePath = directoryPath.resolve("resumable.txt");
+        StringBuilder content = new StringBuilder();
+        for (int line = 1; line <= 100; line++) {
+            content.append("line ").append(line).append('\n');
+        }
+        Files.write(testFilePath, content.toString().getBytes(charset));
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setCheckpointInterval(100);
+        DeletionRuleExecution interruptedDeletionRuleExecution = new DeletionRuleExecution() {
+            @Override
+            public String deleteCharsFromLine(String line, List<DeletionRule> deletionRules,
+                                              BehaviorAfterDeletionRulesExecutedForEachLine behavior) {
+                if (line.equals("line 80")) {
+                    throw new IllegalStateException("Killed on purpose.");
+                }
+                return super.deleteCharsFromLine(line, deletionRules, behavior);
+            }
+        };
+        // same first and last line, other columns
+        assertThrows(IllegalStateException.class, () -> interruptedDeletionRuleExecution.deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1-100:1-1"), null, executionOptions));
+        new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1-100:2-2"), null, executionOptions);
+        assertEquals(content.toString().replace("line ", "lne "), readFile(testFilePath, charset));
+    }
+
+    @Test
+    void shouldWriteResultToSeparateDestinationAndLeaveFileAsItIs() {
+        Path testFilePath = createFileInTempDirectory("source.txt", "abc\ndef\n", charset);
+        Path destinationFilePath = tempDirectoryPath.resolve("destination.txt");
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setOutputCommitStrategy(OutputCommitStrategy.separateDestination(destinationFilePath));
+        executionOptions.setFsyncPolicy(FsyncPolicy.FILE);
+        OutputCommitReport report = new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("2:1-1"), null, executionOptions);
+        assertEquals("abc\ndef\n", readFile(testFilePath, charset));
+        assertEquals("abc\nef\n", readFile(destinationFilePath, charset));
+        assertEquals(destinationFilePath, report.getResultFilePath());
+        executionOptions.setOutputCommitStrategy(OutputCommitStrategy.separateDestination(testFilePath));
+        assertThrows(IllegalArgumentException.class, () -> new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1"), null, executionOptions));
+    }
+
+    @Test
+    void shouldCountColumnsInSelectedUnit() {
+        String content = "a\uD83D\uDE00b\uD83D\uDE00c\n";
+        Path testFilePath = createFileInTempDirectory("column-unit.txt", content, charset);
+        new DeletionRuleExecution(ColumnUnit.CHAR).deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1:2-3"), null);
+        assertEquals("ab\uD83D\uDE00c\n", readFile(testFilePath, charset));
+        createFileInTempDirectory("column-unit.txt", content, charset);
+        new DeletionRuleExecution(ColumnUnit.CODE_POINT).deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1:2-3"), null);
+        assertEquals("a\uD83D\uDE00c\n", readFile(testFilePath, charset));
+        createFileInTempDirectory("column-unit.txt", content, charset);
+        new DeletionRuleExecution(ColumnUnit.BYTE).deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("1:2-5"), null);
+        assertEquals("ab\uD83D\uDE00c\n", readFile(testFilePath, charset));
+        assertThrows(IllegalArgumentException.class, () -> new DeletionRuleExecution(ColumnUnit.BYTE)
+                .deleteCharsFromFile(testFilePath, StandardCharsets.UTF_16, DeletionRuleParser.parseMultiple("1"), null));
+    }
+
+    @Test
+    void shouldDeleteLongBlankLinesWithoutHoldingThemWhenWritingToStream() throws IOException {
+        String whitespace = " ".repeat(100_000) + "\t".repeat(3) + " ".repeat(100_000);
+        String content = whitespace + "x\n" + whitespace + "x" + whitespace + "\nab\n";
+        int column = whitespace.length() + 1;
+        List<DeletionRule> deletionRules = DeletionRuleParser.parseMultiple("1:" + column + "-" + column);
+        String expected = whitespace + "x" + whitespace + "\nab\n";
+        BehaviorAfterDeletionRulesExecutedForEachLine behavior = new BehaviorAfterDeletionRulesExecutedForEachLine();
+        behavior.setDeleteLineIfBlank(true);
+        for (ColumnUnit columnUnit : ColumnUnit.values()) {
+            ByteLineEngine byteLineEngine =
+                    new ByteLineEngine(new DeletionRuleExecution(columnUnit), charset, behavior, 4);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byteLineEngine.process(new ByteArrayInputStream(content.getBytes(charset)), output,
+                    new DeletionRuleIndex(deletionRules));
+            assertTrue(expected.equals(output.toString(charset))); // not assertEquals, which would print both
+        }
+    }
+
+    @Test
+    void shouldDeleteCharsFromLinesCountedFromEnd() {
+        String content = "abc\ndef\r\nghi\rjkl";
+        Path testFilePath = createFileInTempDirectory("from-end.txt", content, charset);
+        new DeletionRuleExecution().deleteCharsFromFile(
+                testFilePath, charset, DeletionRuleParser.parseMultiple("-1:1-1,-3,1:3-3,-9"), null,
+                new ExecutionOptions());
+        assertEquals("ab\nghi\rkl", readFile(testFilePath, charset));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new DeletionRuleExecution().deleteCharsFromStream(new ByteArrayInputStream(content.getBytes(charset)), output,
+                charset, DeletionRuleParser.parseMultiple("-1:1-1,-3,1:3-3,-9"), null);
+        assertEquals("ab\nghi\rkl", output.toString(charset));
+    }
+
+    @Test
+    void shouldIgnoreLinesCountedFromEndThatAreBeforeFirstLine() {
+        assertDeletesFromStreamAndFile("abc\ndef\n", "-5,-3:1-1,-2:2-2", "ac\ndef\n");
+        assertDeletesFromStreamAndFile("abc", "-2,-1:2-", "a");
+        assertDeletesFromStreamAndFile("", "-1", "");
+    }
+
+    @Test
+    void shouldCombineLinesCountedFromEndWithLinesCountedFromStart() {
+        StringBuilder content = new StringBuilder();
+        for (int line = 1; line <= 10; line++) {
+            content.append("ab").append(line).append(line < 10 ? "\r\n" : "");
+        }
+        // -2 is line 9 and -10 is line 1, which also have rules counted from the start
+        assertDeletesFromStreamAndFile(content.toString(), "9:1-1,-2:2-2,-1,1-3~2:1-1,-10:3-",
+                "b\r\nab2\r\nb3\r\nab4\r\nab5\r\nab6\r\nab7\r\nab8\r\n9\r\n");
+    }
+
+    void assertDeletesFromStreamAndFile(String content, String deletionRulesStr, String expected) {
+        List<DeletionRule> deletionRules = DeletionRuleParser.parseMultiple(deletionRulesStr);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new DeletionRuleExecution().deleteCharsFromStream(new ByteArrayInputStream(content.getBytes(charset)),
+                output, charset, deletionRules, null);
+        assertEquals(expected, output.toString(charset));
+        for (boolean inPlace : new boolean[] {false, true}) {
+            Path testFilePath = createFileInTempDirectory("from-end.txt", content, charset);
+            ExecutionOptions executionOptions = new ExecutionOptions();
+            executionOptions.setInPlace(inPlace);
+            new DeletionRuleExecution().deleteCharsFromFile(
+                    testFilePath, charset, deletionRules, null, executionOptions);
+            assertEquals(expected, readFile(testFilePath, charset));
+        }
+    }
+
+    @Test
+    void shouldRejectLinesCountedFromEndWhenCharsetIsNotAsciiCompatible() {
+        Path testFilePath = createFileInTempDirectory("from-end-utf16.txt", "abc\ndef", StandardCharsets.UTF_16);
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () ->
+                new DeletionRuleExecution().deleteCharsFromFile(testFilePath, StandardCharsets.UTF_16,
+                        DeletionRuleParser.parseMultiple("-1"), null, new ExecutionOptions()));
+        assertEquals("Rules counted from the end are not supported for charset UTF-16.", thrown.getMessage());
+    }
+
+    @Test
+    void shouldRejectLinesCountedFromEndInFixedWidthRecordOrResumableMode() {
+        Path testFilePath = createFileInTempDirectory("from-end-modes.txt", "abc\ndef", charset);
+        ExecutionOptions fixedWidthExecutionOptions = new ExecutionOptions();
+        fixedWidthExecutionOptions.setRecordLength(4);
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () ->
+                new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset,
+                        DeletionRuleParser.parseMultiple("-1"), null, fixedWidthExecutionOptions));
+        assertEquals("Rules counted from the end cannot be combined with fixed-width record mode.",
+                thrown.getMessage());
+        ExecutionOptions resumableExecutionOptions = new ExecutionOptions();
+        resumableExecutionOptions.setCheckpointInterval(1);
+        thrown = assertThrows(IllegalArgumentException.class, () ->
+                new DeletionRuleExecution().deleteCharsFromFile(testFilePath, charset,
+                        DeletionRuleParser.parseMultiple("-1"), null, resumableExecutionOptions));
+        assertEquals("Rules counted from the end cannot be combined with resumable mode.", thrown.getMessage());
+    }
 }
@@ -0,0 +1,79 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeletionRuleIndexTest {
+
+    @Test
+    void shouldReturnRulesOfEachLineInIncreasingLineOrder() {
+        DeletionRule rule1 = new DeletionRule(7, 1, 2);
+        DeletionRule rule2 = new DeletionRule(3, 3, 4);
+        DeletionRule rule3 = new DeletionRule(7, 5, 6);
+        DeletionRule rule4 = new DeletionRule(3, 7, 8);
+        List<DeletionRule> rules = new ArrayList<>();
+        rules.add(rule1);
+        rules.add(rule2);
+        rules.add(rule3);
+        rules.add(rule4);
+        DeletionRuleIndex index = new DeletionRuleIndex(rules);
+        assertEquals(3, index.getFirstLine());
+        assertEquals(7, index.getLastLine());
+        DeletionRuleIndex.Cursor cursor = index.cursor();
+        assertTrue(cursor.getByLine(1).isEmpty());
+        assertEquals(3, cursor.getNextLine());
+        assertEquals(List.of(rule2, rule4), cursor.getByLine(3));
+        assertEquals(7, cursor.getNextLine());
+        assertTrue(cursor.getByLine(4).isEmpty());
+        assertEquals(List.of(rule1, rule3), cursor.getByLine(7));
+        assertEquals(DeletionRuleIndex.NO_MORE_LINES, cursor.getNextLine());
+        assertTrue(cursor.getByLine(8).isEmpty());
+    }
+
+    @Test
+    void shouldSkipLinesThatWereNotAskedFor() {
+        List<DeletionRule> rules = new ArrayList<>();
+        rules.add(new DeletionRule(2, 1, 2));
+        rules.add(new DeletionRule(5, 1, 2));
+        DeletionRuleIndex.Cursor cursor = new DeletionRuleIndex(rules).cursor();
+        assertEquals(1, cursor.getByLine(5).size());
+        assertEquals(DeletionRuleIndex.NO_MORE_LINES, cursor.getNextLine());
+    }
+
+    @Test
+    void shouldBeEmptyWhenThereIsNoRule() {
+        DeletionRuleIndex index = new DeletionRuleIndex(new ArrayList<>());
+        assertTrue(index.isEmpty());
+        assertEquals(DeletionRuleIndex.NO_MORE_LINES, index.getFirstLine());
+        assertEquals(0, index.getLastLine());
+        assertTrue(index.cursor().getByLine(1).isEmpty());
+    }
+
+    @Test
+    void shouldCombineRulesOfSingleLinesWithLineRanges() {
+        DeletionRule single = new DeletionRule(4, 1, 1);
+        DeletionRule range = new DeletionRule(3, 9, 3, 2, 2); // lines 3, 6 and 9
+        DeletionRule open = new DeletionRule(8, null, 1, 5, null);
+        DeletionRuleIndex index = new DeletionRuleIndex(List.of(single, range, open));
+        assertEquals(3, index.getFirstLine());
+        assertEquals(DeletionRuleIndex.NO_MORE_LINES, index.getLastLine());
+        assertEquals(3, index.getRuleCount());
+        DeletionRuleIndex.Cursor cursor = index.cursor(5);
+        assertEquals(6, cursor.getNextLine());
+        assertEquals(List.of(range), cursor.getByLine(6));
+        assertEquals(8, cursor.getNextLine());
+        assertEquals(Set.of(open, range), Set.copyOf(cursor.getByLine(9)));
+        assertEquals(List.of(open), cursor.getByLine(1000));
+        assertTrue(index.hasRulesBetween(4, 4));
+        assertTrue(!index.hasRulesBetween(5, 5));
+        assertEquals(9, new DeletionRuleIndex(List.of(range)).getLastLine());
+    }
+}
@@ -4,7 +4,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -39,6 +42,19 @@ public class DeletionRuleParserTest {
         }
     }
 
+    @Test
+    void shouldCreateRuleWhenNegativeIntegerIsGivenAsLineNumber() {
+        DeletionRule rule = DeletionRuleParser.parseSingle("-1");
+        assertEquals(-1, rule.getLine());
+        assertNull(rule.getStartColumn());
+        rule = DeletionRuleParser.parseSingle("-3:1-5");
+        assertEquals(-3, rule.getLine());
+        assertEquals(1, rule.getStartColumn());
+        assertEquals(5, rule.getEndColumn());
+        Assertions.assertTrue(rule.isCountedFromEnd());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DeletionRuleParser.parseSingle("-0"));
+    }
+
     @Test
     void shouldThrowExceptionWhenStringIsGivenAsStartColumnNumber() {
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
@@ -123,4 +139,118 @@ public class DeletionRuleParserTest {
         List<DeletionRule> rules = DeletionRuleParser.parseMultiple("123:1-99,456:2-100");
         assertEquals(2, rules.size());
     }
+
+    @Test
+    void shouldParseRulesSeparatedByCommasAndLineBreaksFromReader() {
+        List<DeletionRule> rules = new ArrayList<>();
+        DeletionRuleParser.parseMultiple(new StringReader("1,2:3-\r\n\n 4:5-6 ,\n7"),
+                (line, lastLine, lineStep, startColumn, endColumn) ->
+                        rules.add(DeletionRuleParser.toDeletionRule(line, lastLine, lineStep, startColumn, endColumn)));
+        assertEquals(4, rules.size());
+        assertEquals(1, rules.get(0).getLine());
+        assertEquals(3, rules.get(1).getStartColumn());
+        assertNull(rules.get(1).getEndColumn());
+        assertEquals(6, rules.get(2).getEndColumn());
+        assertEquals(7, rules.get(3).getLine());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenRuleBetweenCommasIsEmptyInReader() {
+        IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            DeletionRuleParser.parseMultiple(new StringReader("1,,2"), (line, lastLine, lineStep, startColumn, endColumn) -> { });
+        });
+        assertEquals("Invalid deletion rule: ", thrown.getMessage());
+    }
+
+    /**
+     * The regular expression based implementation that the parser replaced.
+     */
+    DeletionRule parseSingleWithRegex(String str) {
+        if (str.matches("^[1-9][0-9]*$")) {
+            return new DeletionRule(Integer.parseInt(str), null, null);
+        } else if (str.matches("^[1-9][0-9]*:[1-9][0-9]*-$")) {
+            String[] parts = str.split(":|-");
+            return new DeletionRule(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), null);
+        } else if (str.matches("^[1-9][0-9]*:[1-9][0-9]*-[1-9][0-9]*$")) {
+            String[] parts = str.split(":|-");
+            return new DeletionRule(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        } else {
+            throw new IllegalArgumentException("Invalid deletion rule: " + str);
+        }
+    }
+
+    String describe(DeletionRule rule) {
+        return rule.getLine() + ":" + rule.getStartColumn() + "-" + rule.getEndColumn();
+    }
+
+    String describeResultOrError(Runnable parse, DeletionRule[] result) {
+        try {
+            parse.run();
+            return describe(result[0]);
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    @Test
+    void shouldBehaveLikeRegexImplementationForRandomStrings() {
+        Random random = new Random(3);
+        String alphabet = "0123456789:-x, ";
+        for (int iteration = 0; iteration < 20000; iteration++) {
+            StringBuilder str = new StringBuilder();
+            int length = random.nextInt(14);
+            for (int i = 0; i < length; i++) {
+                str.append(alphabet.charAt(random.nextInt(random.nextBoolean() ? 10 : alphabet.length())));
+            }
+            if (str.toString().split(":", -1)[0].contains("-")) {
+                continue; // line ranges were not valid before
+            }
+            DeletionRule[] expected = new DeletionRule[1];
+            DeletionRule[] actual = new DeletionRule[1];
+            assertEquals(
+                    describeResultOrError(() -> expected[0] = parseSingleWithRegex(str.toString()), expected),
+                    describeResultOrError(() -> actual[0] = DeletionRuleParser.parseSingle(str.toString()), actual),
+                    str.toString());
+        }
+    }
+
+    @Test
+    void shouldIgnoreTrailingEmptyRulesLikeSplit() {
+        assertEquals(0, DeletionRuleParser.parseMultiple(",,").size());
+        assertEquals(1, DeletionRuleParser.parseMultiple("1,,").size());
+        IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            DeletionRuleParser.parseMultiple("");
+        });
+        assertEquals("Invalid deletion rule: ", thrown.getMessage());
+    }
+
+    String describeRange(DeletionRule rule) {
+        return rule.getLine() + "-" + rule.getLastLine() + "~" + rule.getLineStep()
+                + ":" + rule.getStartColumn() + "-" + rule.getEndColumn();
+    }
+
+    @Test
+    void shouldParseLineRangesStepsAndWildcard() {
+        assertEquals("100-200~1:3-5", describeRange(DeletionRuleParser.parseSingle("100-200:3-5")));
+        assertEquals("500-null~1:1-null", describeRange(DeletionRuleParser.parseSingle("500-:1-")));
+        assertEquals("1-null~2:4-6", describeRange(DeletionRuleParser.parseSingle("1-~2:4-6")));
+        assertEquals("10-20~3:null-null", describeRange(DeletionRuleParser.parseSingle("10-20~3")));
+        assertEquals("1-null~1:2-4", describeRange(DeletionRuleParser.parseSingle("*:2-4")));
+        assertEquals("1-null~5:null-null", describeRange(DeletionRuleParser.parseSingle("*~5")));
+        assertEquals("7-7~1:null-null", describeRange(DeletionRuleParser.parseSingle("7")));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenLineRangeIsInvalid() {
+        for (String str : new String[] {"5~2", "1-~", "1-~0", "*5", "**", "*-3", "1-2-3", "1-2:"}) {
+            IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                DeletionRuleParser.parseSingle(str);
+            });
+            assertEquals("Invalid deletion rule: " + str, thrown.getMessage());
+        }
+        IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            DeletionRuleParser.parseSingle("200-100:1-2");
+        });
+        assertEquals("Last line must be greater than or equal to line.", thrown.getMessage());
+    }
 }
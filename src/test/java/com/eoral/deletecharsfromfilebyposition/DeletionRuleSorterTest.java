@@ -0,0 +1,78 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeletionRuleSorterTest {
+
+    List<String> describe(List<DeletionRule> deletionRules) {
+        List<String> descriptions = new ArrayList<>();
+        for (DeletionRule deletionRule : deletionRules) {
+            descriptions.add(deletionRule.getLine() + ":" + deletionRule.getStartColumn() + "-" + deletionRule.getEndColumn());
+        }
+        descriptions.sort(null);
+        return descriptions;
+    }
+
+    @Test
+    void shouldKeepRulesInMemoryWhenTheyFitInBudget() {
+        try (DeletionRuleSorter sorter = new DeletionRuleSorter(10 * DeletionRuleSorter.ESTIMATED_BYTES_PER_RULE)) {
+            sorter.add(new DeletionRule(5, 1, 2));
+            sorter.add(new DeletionRule(2, null, null));
+            assertFalse(sorter.hasSpilled());
+            SortedDeletionRules sortedDeletionRules = sorter.sort();
+            assertTrue(sortedDeletionRules instanceof DeletionRuleIndex);
+            assertEquals(2, sortedDeletionRules.getFirstLine());
+            assertEquals(5, sortedDeletionRules.getLastLine());
+        }
+    }
+
+    @Test
+    void shouldMergeSpilledRunsInLineOrder() {
+        Random random = new Random(5);
+        List<DeletionRule> deletionRules = TestUtils.createRandomRules(random, 500, 1000);
+        DeletionRuleIndex expected = new DeletionRuleIndex(deletionRules);
+        try (DeletionRuleSorter sorter = new DeletionRuleSorter(37 * DeletionRuleSorter.ESTIMATED_BYTES_PER_RULE)) {
+            deletionRules.forEach(sorter::add);
+            assertTrue(sorter.hasSpilled());
+            SortedDeletionRules sortedDeletionRules = sorter.sort();
+            assertFalse(sortedDeletionRules.isEmpty());
+            assertEquals(expected.getFirstLine(), sortedDeletionRules.getFirstLine());
+            assertEquals(expected.getLastLine(), sortedDeletionRules.getLastLine());
+            for (int fromLine : new int[] {1, 250}) {
+                DeletionRuleCursor expectedCursor = expected.cursor(fromLine);
+                DeletionRuleCursor cursor = sortedDeletionRules.cursor(fromLine);
+                for (int line = fromLine; line <= 500; line += 1 + random.nextInt(3)) {
+                    assertEquals(expectedCursor.getNextLine(), cursor.getNextLine());
+                    assertEquals(describe(expectedCursor.getByLine(line)), describe(cursor.getByLine(line)));
+                }
+                assertEquals(describe(expectedCursor.getByLine(501)), describe(cursor.getByLine(501)));
+                assertEquals(SortedDeletionRules.NO_MORE_LINES, cursor.getNextLine());
+            }
+        }
+    }
+
+    @Test
+    void shouldHaveSameDigestAsDeletionRuleIndex() {
+        List<DeletionRule> deletionRules = List.of(new DeletionRule(7, 1, 2), new DeletionRule(3, null, null),
+                new DeletionRule(100, 200, 1, 4, null), new DeletionRule(1, null, 2, null, null),
+                new DeletionRule(-1, 2, 3), new DeletionRule(5, 5, 1, 1, 1));
+        long expected = new DeletionRuleIndex(deletionRules).getDigest();
+        for (long memoryBudget : new long[] {DeletionRuleSorter.DEFAULT_MEMORY_BUDGET, 1}) {
+            try (DeletionRuleSorter sorter = new DeletionRuleSorter(memoryBudget)) {
+                deletionRules.forEach(sorter::add);
+                assertEquals(memoryBudget == 1, sorter.hasSpilled());
+                assertEquals(expected, sorter.sort().getDigest());
+            }
+        }
+    }
+}
@@ -16,7 +16,8 @@ public class DeletionRuleTest {
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             new DeletionRule(null, null, null);
         });
-        assertEquals("Line must be greater than or equal to 1.", thrown.getMessage());
+        assertEquals("Line must be greater than or equal to 1, or less than or equal to -1 to count from the end.",
+                thrown.getMessage());
     }
 
     @Test
@@ -24,7 +25,8 @@ public class DeletionRuleTest {
         IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
             new DeletionRule(0, null, null);
         });
-        assertEquals("Line must be greater than or equal to 1.", thrown.getMessage());
+        assertEquals("Line must be greater than or equal to 1, or less than or equal to -1 to count from the end.",
+                thrown.getMessage());
     }
 
     @Test
@@ -181,4 +183,27 @@ public class DeletionRuleTest {
         assertTrue(effectedColumns.contains(4));
         assertTrue(effectedColumns.contains(5));
     }
+
+    @Test
+    void shouldFindNextLineOfSteppedRange() {
+        DeletionRule rule = new DeletionRule(3, 13, 5, 1, 2);
+        assertFalse(rule.coversSingleLine());
+        assertEquals(3, rule.getNextLineAtOrAfter(1));
+        assertEquals(3, rule.getNextLineAtOrAfter(3));
+        assertEquals(8, rule.getNextLineAtOrAfter(4));
+        assertEquals(13, rule.getNextLineAtOrAfter(9));
+        assertEquals(DeletionRule.NO_MORE_LINES, rule.getNextLineAtOrAfter(14));
+        DeletionRule openRule = new DeletionRule(2, null, 1000000000, null, null);
+        assertEquals(2000000002, openRule.getNextLineAtOrAfter(1000000003));
+        assertEquals(DeletionRule.NO_MORE_LINES, openRule.getNextLineAtOrAfter(2000000003));
+        assertTrue(new DeletionRule(4, 1, 2).coversSingleLine());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenLineStepIsLessThanOne() {
+        IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new DeletionRule(1, null, 0, null, null);
+        });
+        assertEquals("Line step must be greater than or equal to 1.", thrown.getMessage());
+    }
 }
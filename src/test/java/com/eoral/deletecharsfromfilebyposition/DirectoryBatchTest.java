@@ -0,0 +1,73 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DirectoryBatchTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+    final Charset charset = StandardCharsets.UTF_8;
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    Path createFile(String relativePath, byte[] content) throws IOException {
+        Path path = tempDirectoryPath.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content);
+        return path;
+    }
+
+    @Test
+    void shouldProcessMatchingFilesAndKeepGoingPastFailures() throws IOException {
+        Path first = createFile("a.dat", "abc\ndef\n".getBytes(charset));
+        Path second = createFile("sub/deeper/b.dat", "abc\n".getBytes(charset));
+        Path notIncluded = createFile("c.txt", "abc\n".getBytes(charset));
+        Path excluded = createFile("archive/d.dat", "abc\n".getBytes(charset));
+        Path corrupt = createFile("sub/e.dat", new byte[] {0x1f, (byte) 0x8b, 1, 2, 3});
+        DeletionPlan deletionPlan = DeletionPlan.compile("1:1-1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DirectoryBatch.Summary summary = new DirectoryBatch(3, List.of("*.dat"), List.of("archive"))
+                .run(tempDirectoryPath, filePath -> new DeletionRuleExecution().deleteCharsFromFile(
+                        filePath, charset, deletionPlan, null, new ExecutionOptions()), out);
+
+        assertEquals(3, summary.getFileCount());
+        assertEquals(1, summary.getFailedFileCount());
+        assertEquals("bc\ndef\n", Files.readString(first, charset));
+        assertEquals("bc\n", Files.readString(second, charset));
+        assertEquals("abc\n", Files.readString(notIncluded, charset));
+        assertEquals("abc\n", Files.readString(excluded, charset));
+
+        Map<String, String> statusByFile = new HashMap<>();
+        String[] lines = out.toString(charset).split("\n");
+        for (String line : lines) {
+            Map<String, Object> object = SimpleJson.parseObject(line);
+            statusByFile.put(String.valueOf(object.get("file")), (String) object.get("status"));
+        }
+        assertEquals(4, lines.length);
+        assertEquals("ok", statusByFile.get(first.toString()));
+        assertEquals("ok", statusByFile.get(second.toString()));
+        assertEquals("error", statusByFile.get(corrupt.toString()));
+        assertEquals("done", SimpleJson.parseObject(lines[3]).get("status"));
+        try (Stream<Path> files = Files.list(corrupt.getParent())) {
+            assertEquals(2, files.count()); // no temp file is left behind
+        }
+    }
+}
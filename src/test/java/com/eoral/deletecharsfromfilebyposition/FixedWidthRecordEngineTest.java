@@ -0,0 +1,96 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FixedWidthRecordEngineTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+    final Charset charset = StandardCharsets.ISO_8859_1;
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    String process(String content, List<DeletionRule> deletionRules, int recordLength, int terminatorLength,
+                   BehaviorAfterDeletionRulesExecutedForEachLine behavior) throws IOException {
+        Path inputPath = tempDirectoryPath.resolve("input.dat");
+        Path outputPath = tempDirectoryPath.resolve("output.dat");
+        Files.write(inputPath, content.getBytes(charset));
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long outputLength = new FixedWidthRecordEngine(charset, behavior, recordLength, terminatorLength)
+                    .process(input, output, new DeletionRuleIndex(deletionRules));
+            assertEquals(output.size(), outputLength);
+        }
+        return Files.readString(outputPath, charset);
+    }
+
+    @Test
+    void shouldDeleteRecordsThatBecomeBlankWithTheirTerminators() throws IOException {
+        List<DeletionRule> deletionRules =
+                List.of(new DeletionRule(1, 1, 2), new DeletionRule(2, 3, 4), new DeletionRule(3, 2, 3));
+        BehaviorAfterDeletionRulesExecutedForEachLine behavior = new BehaviorAfterDeletionRulesExecutedForEachLine();
+        behavior.setDeleteLineIfBlank(true);
+        assertEquals("eh\n", process("ab  \n  cd\nefgh\n", deletionRules, 5, 1, behavior));
+        assertEquals("  \n  \neh\n", process("ab  \n  cd\nefgh\n", deletionRules, 5, 1, null));
+    }
+
+    @Test
+    void shouldProcessRecordsOfManyWindowsAndKeepMissingLastTerminatorMissing() throws IOException {
+        // more records than fit in a window, and more kept slices of a window than a single gathering write takes
+        int recordCount = 300_001;
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int line = 1; line <= recordCount; line++) {
+            content.append("abc");
+            if (line % 1000 != 0) {
+                expected.append("ac");
+            }
+            if (line < recordCount) {
+                content.append('\n');
+                if (line % 1000 != 0) {
+                    expected.append('\n');
+                }
+            }
+        }
+        List<DeletionRule> deletionRules =
+                List.of(new DeletionRule(1, null, 1, 2, 2), new DeletionRule(1000, null, 1000, null, null));
+        assertEquals(expected.toString(), process(content.toString(), deletionRules, 4, 1, null));
+    }
+
+    @Test
+    void shouldProcessRecordsWithoutTerminator() throws IOException {
+        List<DeletionRule> deletionRules = List.of(new DeletionRule(1, 1, 2), new DeletionRule(2, null, null),
+                new DeletionRule(3, 3, null), new DeletionRule(4, 1, null));
+        assertEquals("cdIJ", process("abcdEFGHIJKLmnop", deletionRules, 4, 0, null));
+    }
+
+    @Test
+    void shouldRejectFileWhoseSizeIsNotMultipleOfRecordLength() {
+        assertThrows(IllegalArgumentException.class,
+                () -> process("abcd\nefg", List.of(new DeletionRule(1, 1, 1)), 5, 1, null));
+    }
+
+    @Test
+    void shouldRejectMultibyteCharsets() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FixedWidthRecordEngine(StandardCharsets.UTF_8, null, 5, 1));
+    }
+}
@@ -0,0 +1,106 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class LineOffsetIndexTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+    final Charset charset = StandardCharsets.UTF_8;
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    /**
+     * Line n is "line n" followed by "\n".
+     */
+    Path createNumberedLines(String fileName, int lineCount) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int line = 1; line <= lineCount; line++) {
+            content.append("line ").append(line).append('\n');
+        }
+        Path path = tempDirectoryPath.resolve(fileName);
+        Files.write(path, content.toString().getBytes(charset));
+        return path;
+    }
+
+    long offsetOfLine(Path path, int line) throws IOException {
+        List<String> lines = Files.readAllLines(path, charset);
+        long offset = 0;
+        for (int i = 0; i < line - 1; i++) {
+            offset += lines.get(i).getBytes(charset).length + 1;
+        }
+        return offset;
+    }
+
+    void deleteChars(Path path, String deletionRulesStr, boolean inPlace) {
+        ExecutionOptions executionOptions = new ExecutionOptions();
+        executionOptions.setLineOffsetIndexEnabled(true);
+        executionOptions.setInPlace(inPlace);
+        new DeletionRuleExecution().deleteCharsFromFile(
+                path.toString(), charset.name(), deletionRulesStr, null, executionOptions);
+    }
+
+    @Test
+    void shouldWriteIndexOfRewrittenFile() throws IOException {
+        Path path = createNumberedLines("numbered.txt", 10000);
+        deleteChars(path, "2,5000:1-5", false);
+        LineOffsetIndex lineOffsetIndex = LineOffsetIndex.load(path);
+        assertNotNull(lineOffsetIndex);
+        assertEquals(LineOffsetIndex.UNKNOWN_LINE_COUNT, lineOffsetIndex.getLineCount());
+        assertEquals(4097, lineOffsetIndex.getSampledLineAtOrBefore(4999));
+        assertEquals(offsetOfLine(path, 4097), lineOffsetIndex.getOffsetOfSampledLineAtOrBefore(4999));
+        assertEquals(1, lineOffsetIndex.getSampledLineAtOrBefore(4096));
+        assertEquals(0, lineOffsetIndex.getOffsetOfSampledLineAtOrBefore(4096));
+    }
+
+    @Test
+    void shouldUseIndexOnNextRun() throws IOException {
+        for (boolean inPlace : new boolean[] {false, true}) {
+            Path path = createNumberedLines("reused.txt", 10000);
+            deleteChars(path, "1", inPlace); // builds the index
+            deleteChars(path, "9000:1-5,9999", inPlace); // line 9000 is "line 9001" now
+            List<String> lines = Files.readAllLines(path, charset);
+            assertEquals(9998, lines.size());
+            assertEquals("9001", lines.get(8999));
+            assertEquals("line 9999", lines.get(9997));
+            LineOffsetIndex lineOffsetIndex = LineOffsetIndex.load(path);
+            assertNotNull(lineOffsetIndex);
+            assertEquals(9998, lineOffsetIndex.getLineCount());
+            assertEquals(8193, lineOffsetIndex.getSampledLineAtOrBefore(9000));
+            assertEquals(offsetOfLine(path, 8193), lineOffsetIndex.getOffsetOfSampledLineAtOrBefore(9000));
+            deleteChars(path, "8500:1-4", inPlace); // starts reading from line 8193
+            lines = Files.readAllLines(path, charset);
+            assertEquals(" 8501", lines.get(8499));
+            lineOffsetIndex = LineOffsetIndex.load(path);
+            assertNotNull(lineOffsetIndex);
+            assertEquals(offsetOfLine(path, 4097), lineOffsetIndex.getOffsetOfSampledLineAtOrBefore(5000));
+            assertEquals(offsetOfLine(path, 8193), lineOffsetIndex.getOffsetOfSampledLineAtOrBefore(9000));
+        }
+    }
+
+    @Test
+    void shouldIgnoreIndexWhenFileHasChanged() throws IOException {
+        Path path = createNumberedLines("changed.txt", 10);
+        deleteChars(path, "1:1-1", false);
+        assertNotNull(LineOffsetIndex.load(path));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() - 60000));
+        assertNull(LineOffsetIndex.load(path));
+    }
+}
@@ -0,0 +1,114 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ParallelByteLineEngineTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+    final Charset charset = StandardCharsets.UTF_8;
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    String process(String content, List<DeletionRule> deletionRules, int parallelism, long minChunkSize)
+            throws IOException {
+        Path inputPath = tempDirectoryPath.resolve("input.txt");
+        Path outputPath = tempDirectoryPath.resolve("output.txt");
+        Files.write(inputPath, content.getBytes(charset));
+        ByteLineEngine byteLineEngine = new ByteLineEngine(new DeletionRuleExecution(), charset, null);
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long outputLength = new ParallelByteLineEngine(byteLineEngine, parallelism, minChunkSize)
+                    .process(input, output, outputPath, new DeletionRuleIndex(deletionRules));
+            assertEquals(output.size(), outputLength);
+        }
+        return Files.readString(outputPath, charset);
+    }
+
+    @Test
+    void shouldNumberLinesOfEachChunkAfterLinesOfChunksBeforeIt() throws IOException {
+        List<DeletionRule> deletionRules = List.of(new DeletionRule(2, null, 2, 1, 1));
+        assertEquals("abc\n\nefgh\n\njk\nmn\n", process("abc\nd\nefgh\ni\njk\nlmn\n", deletionRules, 3, 3));
+    }
+
+    @Test
+    void shouldKeepLinesLongerThanChunkSizeInOneChunk() throws IOException {
+        List<DeletionRule> deletionRules = List.of(new DeletionRule(1, 10, null), new DeletionRule(3, 1, 2));
+        assertEquals("abcdefghi\nk\nnopqrstu", process("abcdefghij\nk\nlmnopqrstu", deletionRules, 4, 2));
+    }
+
+    @Test
+    void shouldNotSplitCarriageReturnAndLineFeed() throws IOException {
+        List<DeletionRule> deletionRules = List.of(new DeletionRule(3, 1, 1));
+        assertEquals("a\r\n\r\nc\r\n", process("a\r\n\r\nxc\r\n", deletionRules, 4, 1));
+    }
+
+    @Test
+    void shouldWriteChunksAfterFirstOneWithRulesNextToOutputAndDeleteThem() throws IOException {
+        List<DeletionRule> deletionRules = List.of(new DeletionRule(3, 1, 1), new DeletionRule(5, 2, 2));
+        assertEquals("abc\ndef\nhi\njkl\nmo\npqr\n",
+                process("abc\ndef\nghi\njkl\nmno\npqr\n", deletionRules, 2, 4));
+        try (Stream<Path> paths = Files.list(tempDirectoryPath)) {
+            assertEquals(List.of("input.txt", "output.txt"),
+                    paths.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void shouldStopOtherChunksAndDeleteTheirFilesWhenOneFails() throws IOException {
+        DeletionRuleExecution failingDeletionRuleExecution = new DeletionRuleExecution() {
+            @Override
+            public String deleteCharsFromLine(String line, List<DeletionRule> deletionRules,
+                                              BehaviorAfterDeletionRulesExecutedForEachLine behavior) {
+                if (line.equals("fail")) {
+                    throw new IllegalStateException("Failed on purpose.");
+                }
+                try {
+                    Thread.sleep(5); // the other chunks are still running when the failing one has failed
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.deleteCharsFromLine(line, deletionRules, behavior);
+            }
+        };
+        Path directoryPath = Utils.createTempDirectory();
+        Path inputPath = directoryPath.resolve("input.txt");
+        Path outputPath = directoryPath.resolve("output.txt");
+        Files.write(inputPath, ("fail\n" + "line\n".repeat(400)).getBytes(charset));
+        ByteLineEngine byteLineEngine = new ByteLineEngine(failingDeletionRuleExecution, charset, null);
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+                    new ParallelByteLineEngine(byteLineEngine, 4, 50).process(input, output, outputPath,
+                            new DeletionRuleIndex(List.of(new DeletionRule(1, null, 1, 1, 1)))));
+            assertTrue(e.getMessage().endsWith("Failed on purpose."));
+        }
+        try (Stream<Path> paths = Files.list(directoryPath)) {
+            assertEquals(List.of("input.txt", "output.txt"),
+                    paths.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+        } finally {
+            Utils.deleteRecursively(directoryPath);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.eoral.deletecharsfromfilebyposition;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PipelinedLineEngineTest {
+
+    final Path tempDirectoryPath = Utils.createTempDirectory();
+    final Charset charset = StandardCharsets.UTF_8;
+
+    @AfterAll
+    void tearDown() {
+        Utils.deleteRecursively(tempDirectoryPath);
+    }
+
+    String process(PipelinedLineEngine pipelinedLineEngine, String content, List<DeletionRule> deletionRules)
+            throws IOException {
+        Path inputPath = tempDirectoryPath.resolve("input.txt");
+        Path outputPath = tempDirectoryPath.resolve("output.txt");
+        Files.write(inputPath, content.getBytes(charset));
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long outputLength = pipelinedLineEngine.process(input, output, new DeletionRuleIndex(deletionRules));
+            assertEquals(output.size(), outputLength);
+        }
+        return Files.readString(outputPath, charset);
+    }
+
+    @Test
+    void shouldSpreadLongLinesWithoutRulesOverBatchesAndGrowBatchForLongLineWithRules() throws IOException {
+        String longLine = "abcdefghij".repeat(10);
+        String content = longLine + "\r\n" + longLine + "\n" + "x\n" + longLine;
+        List<DeletionRule> deletionRules = List.of(new DeletionRule(2, 2, 99), new DeletionRule(3, null, null));
+        PipelinedLineEngine pipelinedLineEngine = new PipelinedLineEngine(new DeletionRuleExecution(), charset,
+                null, 16, 2);
+        assertEquals(longLine + "\r\naj\n" + longLine, process(pipelinedLineEngine, content, deletionRules));
+    }
+
+    @Test
+    void shouldStopEveryStageWhenOneFails() {
+        DeletionRuleExecution failingDeletionRuleExecution = new DeletionRuleExecution() {
+            @Override
+            public String deleteCharsFromLine(String line, List<DeletionRule> deletionRules,
+                                              BehaviorAfterDeletionRulesExecutedForEachLine behavior) {
+                throw new IllegalStateException("Failed on purpose.");
+            }
+        };
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        PipelinedLineEngine pipelinedLineEngine = new PipelinedLineEngine(failingDeletionRuleExecution, charset,
+                null, 64, 2);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> process(pipelinedLineEngine,
+                content.toString(), List.of(new DeletionRule(5000, 1, 1), new DeletionRule(9000, 1, 1))));
+        assertEquals("Failed on purpose.", e.getMessage());
+    }
+
+    @Test
+    void shouldStopEveryStageWhenWriterFails() throws IOException {
+        Path inputPath = tempDirectoryPath.resolve("input.txt");
+        Path outputPath = tempDirectoryPath.resolve("read-only-output.txt");
+        Files.write(inputPath, "line\n".repeat(10000).getBytes(charset));
+        Files.write(outputPath, new byte[0]);
+        PipelinedLineEngine pipelinedLineEngine = new PipelinedLineEngine(new DeletionRuleExecution(), charset,
+                null, 64, 2);
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.READ)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(NonWritableChannelException.class,
+                    () -> pipelinedLineEngine.process(input, output,
+                            new DeletionRuleIndex(List.of(new DeletionRule(9000, 1, 1))))));
+        }
+    }
+
+    @Test
+    void shouldStopEveryStageWhenCallingThreadIsInterrupted() throws IOException {
+        Path inputPath = tempDirectoryPath.resolve("input.txt");
+        Path outputPath = tempDirectoryPath.resolve("output.txt");
+        Files.write(inputPath, "line\n".repeat(10000).getBytes(charset));
+        PipelinedLineEngine pipelinedLineEngine = new PipelinedLineEngine(new DeletionRuleExecution(), charset,
+                null, 64, 2);
+        try (FileChannel input = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                Thread.currentThread().interrupt(); // as if the run was cancelled while it waits for a batch
+                try {
+                    assertThrows(InterruptedIOException.class, () -> pipelinedLineEngine.process(input, output,
+                            new DeletionRuleIndex(List.of(new DeletionRule(9000, 1, 1)))));
+                    assertTrue(Thread.currentThread().isInterrupted());
+                } finally {
+                    Thread.interrupted();
+                }
+            });
+        }
+    }
+}
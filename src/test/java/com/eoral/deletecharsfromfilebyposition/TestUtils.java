@@ -1,5 +1,9 @@
 package com.eoral.deletecharsfromfilebyposition;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public class TestUtils {
 
     private TestUtils() {}
@@ -11,4 +15,51 @@ public class TestUtils {
     public static DeletionRule createRuleThatEmptiesLine(Integer line) {
         return new DeletionRule(line, 1, null);
     }
+
+    /**
+     * Builds a file of random lines with random line breaks, and computes the expected result line by line with
+     * {@link DeletionRuleExecution#deleteCharsFromLine}.
+     */
+    public static String[] createRandomContentAndExpectedResult(Random random, int lineCount, List<DeletionRule> deletionRules) {
+        String[] lineBreaks = {"\n", "\r\n", "\r"};
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        DeletionRuleIndex.Cursor cursor = new DeletionRuleIndex(deletionRules).cursor();
+        for (int lineNumber = 1; lineNumber <= lineCount; lineNumber++) {
+            StringBuilder lineBuilder = new StringBuilder();
+            int lineLength = random.nextInt(40);
+            for (int i = 0; i < lineLength; i++) {
+                lineBuilder.append(random.nextInt(8) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+            }
+            String line = lineBuilder.toString();
+            String lineBreak = lineNumber == lineCount && random.nextBoolean() ? "" : lineBreaks[random.nextInt(3)];
+            if (line.isEmpty() && lineBreak.startsWith("\n") && content.length() > 0
+                    && content.charAt(content.length() - 1) == '\r') {
+                lineBreak = "\r"; // otherwise the previous "\r" and this "\n" would form a single line break
+            }
+            content.append(line).append(lineBreak);
+            String rest = new DeletionRuleExecution().deleteCharsFromLine(line, cursor.getByLine(lineNumber), null);
+            if (rest != null) {
+                expected.append(rest).append(lineBreak);
+            }
+        }
+        return new String[] {content.toString(), expected.toString()};
+    }
+
+    public static List<DeletionRule> createRandomRules(Random random, int lineCount, int ruleCount) {
+        List<DeletionRule> deletionRules = new ArrayList<>();
+        for (int i = 0; i < ruleCount; i++) {
+            int line = 1 + random.nextInt(lineCount + 2);
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                deletionRules.add(new DeletionRule(line, null, null));
+            } else if (kind == 1) {
+                deletionRules.add(new DeletionRule(line, 1 + random.nextInt(45), null));
+            } else {
+                int startColumn = 1 + random.nextInt(45);
+                deletionRules.add(new DeletionRule(line, startColumn, startColumn + random.nextInt(10)));
+            }
+        }
+        return deletionRules;
+    }
 }